@@ -18,6 +18,7 @@ package io.neutronjms.provider.amqp;
 
 import io.neutronjms.jms.JmsDestination;
 import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+import io.neutronjms.jms.message.JmsInboundMessagePool;
 import io.neutronjms.jms.message.JmsMessage;
 import io.neutronjms.jms.meta.JmsConsumerId;
 import io.neutronjms.jms.meta.JmsConsumerInfo;
@@ -26,6 +27,7 @@ import io.neutronjms.provider.AsyncResult;
 import io.neutronjms.provider.ProviderConstants.ACK_TYPE;
 import io.neutronjms.provider.ProviderListener;
 import io.neutronjms.util.IOExceptionSupport;
+import io.neutronjms.util.PooledBuffer;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -62,24 +64,33 @@ import org.slf4j.LoggerFactory;
 public class AmqpConsumer extends AbstractAmqpResource<JmsConsumerInfo, Receiver> {
 
     private static final Logger LOG = LoggerFactory.getLogger(AmqpConsumer.class);
+    private static final int INCOMING_BUFFER_SIZE = 1024 * 64;
 
     protected static final Symbol COPY = Symbol.getSymbol("copy");
     protected static final Symbol JMS_NO_LOCAL_SYMBOL = Symbol.valueOf("no-local");
     protected static final Symbol JMS_SELECTOR_SYMBOL = Symbol.valueOf("jms-selector");
 
     protected final AmqpSession session;
-    protected final InboundTransformer inboundTransformer =
-        new JMSMappingInboundTransformer(AmqpJMSVendor.INSTANCE);;
+    protected final InboundTransformer inboundTransformer;
+    protected final JmsInboundMessagePool messagePool;
     protected final Map<JmsMessageId, Delivery> delivered = new LinkedHashMap<JmsMessageId, Delivery>();
     protected boolean presettle;
 
     private final ByteArrayOutputStream streamBuffer = new ByteArrayOutputStream();
-    private final byte incomingBuffer[] = new byte[1024 * 64];
 
     public AmqpConsumer(AmqpSession session, JmsConsumerInfo info) {
         super(info);
         this.session = session;
 
+        // Incoming messages are taken from a pool when the consumer recycles them.
+        if (info.isMessageRecycling() && !info.isBrowser()) {
+            this.messagePool = new JmsInboundMessagePool(info.getPrefetchSize(), info.isMessageRecyclingDebug());
+            this.inboundTransformer = new JMSMappingInboundTransformer(new AmqpJMSVendor(messagePool));
+        } else {
+            this.messagePool = null;
+            this.inboundTransformer = new JMSMappingInboundTransformer(AmqpJMSVendor.INSTANCE);
+        }
+
         // Add a shortcut back to this Consumer for quicker lookups
         this.info.getConsumerId().setProviderHint(this);
     }
@@ -88,7 +99,7 @@ public class AmqpConsumer extends AbstractAmqpResource<JmsConsumerInfo, Receiver
      * Starts the consumer by setting the link credit to the given prefetch value.
      */
     public void start(AsyncResult request) {
-        this.endpoint.flow(info.getPrefetchSize());
+        this.endpoint.flow(info.getCreditWindow());
         request.onSuccess();
     }
 
@@ -123,10 +134,32 @@ public class AmqpConsumer extends AbstractAmqpResource<JmsConsumerInfo, Receiver
 
     @Override
     public void opened() {
+        checkSelectorAccepted();
         this.session.addResource(this);
         super.opened();
     }
 
+    /**
+     * A peer lists only the filters it applies in the source it returns on attach, if
+     * the selector filter is missing the JMS framework is told to apply the selector.
+     */
+    protected void checkSelectorAccepted() {
+        if (info.getSelector() == null || info.getSelector().trim().equals("")) {
+            return;
+        }
+
+        Map<?, ?> filters = null;
+        Object remoteSource = endpoint.getRemoteSource();
+        if (remoteSource instanceof Source) {
+            filters = ((Source) remoteSource).getFilter();
+        }
+
+        if (filters == null || !filters.containsKey(JMS_SELECTOR_SYMBOL)) {
+            LOG.debug("Remote peer did not accept the selector of consumer {}, filtering in the client", getConsumerId());
+            info.setClientSideSelector(true);
+        }
+    }
+
     @Override
     public void closed() {
         this.session.removeResource(this);
@@ -172,6 +205,7 @@ public class AmqpConsumer extends AbstractAmqpResource<JmsConsumerInfo, Receiver
         for (Delivery delivery : delivered.values()) {
             delivery.disposition(Accepted.getInstance());
             delivery.settle();
+            recycle(delivery);
         }
         delivered.clear();
     }
@@ -229,31 +263,49 @@ public class AmqpConsumer extends AbstractAmqpResource<JmsConsumerInfo, Receiver
                 delivery.disposition(Accepted.getInstance());
                 delivery.settle();
             }
+            recycle(delivery);
         } else if (ackType.equals(ACK_TYPE.REDELIVERED)) {
             Modified disposition = new Modified();
             disposition.setUndeliverableHere(false);
             disposition.setDeliveryFailed(true);
             delivery.disposition(disposition);
             delivery.settle();
+            recycle(delivery);
         } else if (ackType.equals(ACK_TYPE.POISONED)) {
             deliveryFailed(delivery, false);
+            recycle(delivery);
         } else {
             LOG.warn("Unsupporeted Ack Type for message: {}", messageId);
         }
     }
 
+    /**
+     * Returns the envelope of a settled delivery to the message pool, by now the consumer
+     * has taken its copy of the message and nothing else refers to the envelope.
+     */
+    private void recycle(Delivery delivery) {
+        if (messagePool != null && delivery.getContext() instanceof JmsInboundMessageDispatch) {
+            JmsInboundMessageDispatch envelope = (JmsInboundMessageDispatch) delivery.getContext();
+            delivery.setContext(null);
+            messagePool.release(envelope);
+        }
+    }
+
     /**
      * We only send more credits as the credit window dwindles to a certain point and
-     * then we open the window back up to full prefetch size.
+     * then we open the window back up to its full size, which is the prefetch size
+     * unless the consumer is using an adaptive prefetch window.  No credit is sent while
+     * the consumer has reached the memory limit of its buffer.
      */
     private void sendFlowIfNeeded() {
-        if (info.getPrefetchSize() == 0) {
+        if (info.getPrefetchSize() == 0 || info.isCreditWithheld()) {
             return;
         }
 
+        int window = info.getCreditWindow();
         int currentCredit = endpoint.getCredit();
-        if (currentCredit <= info.getPrefetchSize() * 0.2) {
-            endpoint.flow(info.getPrefetchSize() - currentCredit);
+        if (currentCredit <= window * 0.2) {
+            endpoint.flow(window - currentCredit);
         }
     }
 
@@ -287,6 +339,14 @@ public class AmqpConsumer extends AbstractAmqpResource<JmsConsumerInfo, Receiver
         }
     }
 
+    /**
+     * Tops the link back up to its credit window once the client stopped withholding
+     * the credit of this consumer.
+     */
+    public void resumeCredit() {
+        sendFlowIfNeeded();
+    }
+
     @Override
     public void processDeliveryUpdates() throws IOException {
         Delivery incoming = null;
@@ -334,8 +394,10 @@ public class AmqpConsumer extends AbstractAmqpResource<JmsConsumerInfo, Receiver
         }
 
         // Store link to delivery in the hint for use in acknowledge requests.
+        int priority;
         try {
             message.getFacade().getMessageId().setProviderHint(incoming);
+            priority = message.getFacade().getPriority();
         } catch (JMSException e) {
             throw IOExceptionSupport.create(e);
         }
@@ -345,10 +407,13 @@ public class AmqpConsumer extends AbstractAmqpResource<JmsConsumerInfo, Receiver
         // mode and the consumer will see it as a normal received message.
         message.onSend();
 
-        JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+        JmsInboundMessageDispatch envelope =
+            messagePool != null ? messagePool.createEnvelope() : new JmsInboundMessageDispatch();
         envelope.setMessage(message);
         envelope.setConsumerId(info.getConsumerId());
         envelope.setProviderHint(incoming);
+        envelope.setPriority(priority);
+        envelope.setSize(encoded.getLength());
 
         // Store reference to envelope in delivery context for recovery
         incoming.setContext(envelope);
@@ -418,8 +483,14 @@ public class AmqpConsumer extends AbstractAmqpResource<JmsConsumerInfo, Receiver
         Buffer buffer;
         int count;
 
-        while ((count = endpoint.recv(incomingBuffer, 0, incomingBuffer.length)) > 0) {
-            streamBuffer.write(incomingBuffer, 0, count);
+        PooledBuffer incomingBuffer = session.getProvider().getBufferPool().allocate(INCOMING_BUFFER_SIZE);
+        try {
+            byte[] scratch = incomingBuffer.getData();
+            while ((count = endpoint.recv(scratch, 0, scratch.length)) > 0) {
+                streamBuffer.write(scratch, 0, count);
+            }
+        } finally {
+            incomingBuffer.release();
         }
 
         buffer = streamBuffer.toBuffer();
@@ -446,6 +517,7 @@ public class AmqpConsumer extends AbstractAmqpResource<JmsConsumerInfo, Receiver
     public void postCommit() throws Exception {
         for (Delivery delivery : delivered.values()) {
             delivery.settle();
+            recycle(delivery);
         }
         this.delivered.clear();
     }
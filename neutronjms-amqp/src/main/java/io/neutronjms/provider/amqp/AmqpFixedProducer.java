@@ -23,7 +23,9 @@ import io.neutronjms.jms.message.facade.JmsMessageFacade;
 import io.neutronjms.jms.meta.JmsProducerInfo;
 import io.neutronjms.provider.AsyncResult;
 import io.neutronjms.provider.amqp.message.AmqpJmsMessageFacade;
+import io.neutronjms.util.BufferPool;
 import io.neutronjms.util.IOExceptionSupport;
+import io.neutronjms.util.PooledBuffer;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -67,7 +69,7 @@ public class AmqpFixedProducer extends AmqpProducer {
     private final AmqpTransferTagGenerator tagGenerator = new AmqpTransferTagGenerator(true);
     private final Set<Delivery> pending = new LinkedHashSet<Delivery>();
     private final LinkedList<PendingSend> pendingSends = new LinkedList<PendingSend>();
-    private byte[] encodeBuffer = new byte[1024 * 8];
+    private int encodeBufferSize = 1024 * 8;
 
     private final OutboundTransformer outboundTransformer = new AutoOutboundTransformer(AmqpJMSVendor.INSTANCE);
     private final String MESSAGE_FORMAT_KEY = outboundTransformer.getPrefixVendor() + "MESSAGE_FORMAT";
@@ -163,27 +165,41 @@ public class AmqpFixedProducer extends AmqpProducer {
 
     private void encodeAndSend(Message message, Delivery delivery) throws IOException {
 
-        int encodedSize;
-        while (true) {
-            try {
-                encodedSize = message.encode(encodeBuffer, 0, encodeBuffer.length);
-                break;
-            } catch (java.nio.BufferOverflowException e) {
-                encodeBuffer = new byte[encodeBuffer.length * 2];
+        // Proton copies the data it is given, so the encode buffer can go back to the
+        // connection's pool as soon as the message has been sent.
+        BufferPool pool = session.getProvider().getBufferPool();
+        PooledBuffer encodeBuffer = pool.allocate(encodeBufferSize);
+        try {
+            int encodedSize;
+            while (true) {
+                try {
+                    encodedSize = message.encode(encodeBuffer.getData(), 0, encodeBuffer.capacity());
+                    break;
+                } catch (java.nio.BufferOverflowException e) {
+                    encodeBufferSize = encodeBuffer.capacity() * 2;
+                    PooledBuffer tooSmall = encodeBuffer;
+                    encodeBuffer = null;
+                    tooSmall.release();
+                    encodeBuffer = pool.allocate(encodeBufferSize);
+                }
             }
-        }
 
-        Buffer sendBuffer = new Buffer(encodeBuffer, 0, encodedSize);
+            Buffer sendBuffer = new Buffer(encodeBuffer.getData(), 0, encodedSize);
 
-        while (true) {
-            int sent = endpoint.send(sendBuffer.data, sendBuffer.offset, sendBuffer.length);
-            if (sent > 0) {
-                sendBuffer.moveHead(sent);
-                if (sendBuffer.length == 0) {
-                    break;
+            while (true) {
+                int sent = endpoint.send(sendBuffer.data, sendBuffer.offset, sendBuffer.length);
+                if (sent > 0) {
+                    sendBuffer.moveHead(sent);
+                    if (sendBuffer.length == 0) {
+                        break;
+                    }
+                } else {
+                    LOG.warn("{} failed to send any data from current Message.", this);
                 }
-            } else {
-                LOG.warn("{} failed to send any data from current Message.", this);
+            }
+        } finally {
+            if (encodeBuffer != null) {
+                encodeBuffer.release();
             }
         }
     }
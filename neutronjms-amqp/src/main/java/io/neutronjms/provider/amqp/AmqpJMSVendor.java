@@ -44,9 +44,20 @@ public class AmqpJMSVendor extends JMSVendor {
 
     public static final AmqpJMSVendor INSTANCE = new AmqpJMSVendor();
 
-    private final JmsMessageFactory factory = new JmsDefaultMessageFactory();
+    private final JmsMessageFactory factory;
 
     private AmqpJMSVendor() {
+        this(new JmsDefaultMessageFactory());
+    }
+
+    /**
+     * Creates a vendor that creates its messages using the given factory.
+     *
+     * @param factory
+     *        the factory used to create the incoming messages.
+     */
+    public AmqpJMSVendor(JmsMessageFactory factory) {
+        this.factory = factory;
     }
 
     @Override
@@ -33,17 +33,21 @@ import io.neutronjms.jms.meta.JmsSessionInfo;
 import io.neutronjms.jms.meta.JmsTransactionInfo;
 import io.neutronjms.provider.AbstractAsyncProvider;
 import io.neutronjms.provider.AsyncResult;
+import io.neutronjms.provider.BatchAsyncResult;
 import io.neutronjms.provider.ProviderConstants.ACK_TYPE;
 import io.neutronjms.provider.ProviderFuture;
 import io.neutronjms.transports.TcpTransport;
 import io.neutronjms.transports.TransportListener;
+import io.neutronjms.util.BufferPool;
 import io.neutronjms.util.IOExceptionSupport;
+import io.neutronjms.util.PooledBuffer;
 import io.neutronjms.util.PropertyUtil;
 
 import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -96,6 +100,7 @@ public class AmqpProvider extends AbstractAsyncProvider implements TransportList
 
     private final Transport protonTransport = Transport.Factory.create();
     private final Collector protonCollector = new CollectorImpl();
+    private final BufferPool bufferPool = new BufferPool();
 
     /**
      * Create a new instance of an AmqpProvider bonded to the given remote URI.
@@ -123,6 +128,7 @@ public class AmqpProvider extends AbstractAsyncProvider implements TransportList
         checkClosed();
 
         transport = createTransport(getRemoteURI());
+        transport.setBufferPool(bufferPool);
 
         Map<String, String> map = Collections.emptyMap();
         try {
@@ -193,6 +199,8 @@ public class AmqpProvider extends AbstractAsyncProvider implements TransportList
                 if (serializer != null) {
                     serializer.shutdown();
                 }
+
+                LOG.debug("Provider closed, transport buffers: {}", bufferPool);
             }
         }
     }
@@ -360,16 +368,7 @@ public class AmqpProvider extends AbstractAsyncProvider implements TransportList
                 try {
                     checkClosed();
 
-                    JmsProducerId producerId = envelope.getProducerId();
-                    AmqpProducer producer = null;
-
-                    if (producerId.getProviderHint() instanceof AmqpFixedProducer) {
-                        producer = (AmqpFixedProducer) producerId.getProviderHint();
-                    } else {
-                        AmqpSession session = connection.getSession(producerId.getParentId());
-                        producer = session.getProducer(producerId);
-                    }
-
+                    AmqpProducer producer = lookupProducer(envelope.getProducerId());
                     boolean couldSend = producer.send(envelope, request);
                     pumpToProtonTransport();
                     if (couldSend && envelope.isSendAsync()) {
@@ -382,6 +381,41 @@ public class AmqpProvider extends AbstractAsyncProvider implements TransportList
         });
     }
 
+    @Override
+    public void send(final List<JmsOutboundMessageDispatch> envelopes, final AsyncResult request) throws IOException {
+        checkClosed();
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                BatchAsyncResult batch = new BatchAsyncResult(envelopes.size(), request);
+                try {
+                    checkClosed();
+
+                    AsyncResult[] results = new AsyncResult[envelopes.size()];
+                    boolean[] sent = new boolean[envelopes.size()];
+                    for (int i = 0; i < results.length; ++i) {
+                        JmsOutboundMessageDispatch envelope = envelopes.get(i);
+                        AmqpProducer producer = lookupProducer(envelope.getProducerId());
+                        results[i] = batch.newMember();
+                        sent[i] = producer.send(envelope, results[i]);
+                    }
+
+                    // Every transfer in the batch is written out by a single pump.
+                    pumpToProtonTransport();
+
+                    for (int i = 0; i < results.length; ++i) {
+                        if (sent[i] && envelopes.get(i).isSendAsync()) {
+                            results[i].onSuccess();
+                        }
+                    }
+                } catch (Exception error) {
+                    batch.onFailure(error);
+                }
+            }
+        });
+    }
+
     @Override
     public void acknowledge(final JmsSessionId sessionId, final AsyncResult request) throws IOException {
         checkClosed();
@@ -412,19 +446,42 @@ public class AmqpProvider extends AbstractAsyncProvider implements TransportList
                 try {
                     checkClosed();
 
-                    JmsConsumerId consumerId = envelope.getConsumerId();
-                    AmqpConsumer consumer = null;
+                    AmqpConsumer consumer = lookupConsumer(envelope.getConsumerId());
+                    consumer.acknowledge(envelope, ackType);
 
-                    if (consumerId.getProviderHint() instanceof AmqpConsumer) {
-                        consumer = (AmqpConsumer) consumerId.getProviderHint();
+                    if (consumer.getSession().isAsyncAck()) {
+                        request.onSuccess();
+                        pumpToProtonTransport();
                     } else {
-                        AmqpSession session = connection.getSession(consumerId.getParentId());
-                        consumer = session.getConsumer(consumerId);
+                        pumpToProtonTransport();
+                        request.onSuccess();
                     }
+                } catch (Exception error) {
+                    request.onFailure(error);
+                }
+            }
+        });
+    }
 
-                    consumer.acknowledge(envelope, ackType);
+    @Override
+    public void acknowledge(final List<JmsInboundMessageDispatch> envelopes, final ACK_TYPE ackType, final AsyncResult request) throws IOException {
+        checkClosed();
+        serializer.execute(new Runnable() {
 
-                    if (consumer.getSession().isAsyncAck()) {
+            @Override
+            public void run() {
+                try {
+                    checkClosed();
+
+                    boolean asyncAck = true;
+                    for (JmsInboundMessageDispatch envelope : envelopes) {
+                        AmqpConsumer consumer = lookupConsumer(envelope.getConsumerId());
+                        consumer.acknowledge(envelope, ackType);
+                        asyncAck &= consumer.getSession().isAsyncAck();
+                    }
+
+                    // All the dispositions in the batch go out in a single write.
+                    if (asyncAck) {
                         request.onSuccess();
                         pumpToProtonTransport();
                     } else {
@@ -542,6 +599,40 @@ public class AmqpProvider extends AbstractAsyncProvider implements TransportList
         });
     }
 
+    @Override
+    public void resumeCredit(final List<JmsConsumerId> consumerIds, final AsyncResult request) throws IOException {
+        checkClosed();
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    checkClosed();
+                    for (JmsConsumerId consumerId : consumerIds) {
+                        AmqpConsumer consumer = null;
+
+                        if (consumerId.getProviderHint() instanceof AmqpConsumer) {
+                            consumer = (AmqpConsumer) consumerId.getProviderHint();
+                        } else {
+                            AmqpSession session = connection.getSession(consumerId.getParentId());
+                            if (session != null) {
+                                consumer = session.getConsumer(consumerId);
+                            }
+                        }
+
+                        if (consumer != null) {
+                            consumer.resumeCredit();
+                        }
+                    }
+                    pumpToProtonTransport();
+                    request.onSuccess();
+                } catch (Exception error) {
+                    request.onFailure(error);
+                }
+            }
+        });
+    }
+
     /**
      * Provides an extension point for subclasses to insert other types of transports such
      * as SSL etc.
@@ -574,33 +665,54 @@ public class AmqpProvider extends AbstractAsyncProvider implements TransportList
     @Override
     public void onData(Buffer input) {
 
-        // Create our own copy since we will process later.
-        final ByteBuffer source = ByteBuffer.wrap(input.getBytes());
+        // The listener owns the buffer handed over by the transport, every transport
+        // gives each read a buffer of its own, so we can process it later without
+        // making our own copy.
+        final ByteBuffer source = input.getByteBuf().nioBuffer();
 
         serializer.execute(new Runnable() {
 
             @Override
             public void run() {
-                LOG.trace("Received from Broker {} bytes:", source.remaining());
-
-                do {
-                    ByteBuffer buffer = protonTransport.getInputBuffer();
-                    int limit = Math.min(buffer.remaining(), source.remaining());
-                    ByteBuffer duplicate = source.duplicate();
-                    duplicate.limit(source.position() + limit);
-                    buffer.put(duplicate);
-                    protonTransport.processInput();
-                    source.position(source.position() + limit);
-                } while (source.hasRemaining());
-
-                // Process the state changes from the latest data and then answer back
-                // any pending updates to the Broker.
-                processUpdates();
-                pumpToProtonTransport();
+                processInput(source);
             }
         });
     }
 
+    @Override
+    public void onData(final PooledBuffer input) {
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    processInput(input.toByteBuffer());
+                } finally {
+                    input.release();
+                }
+            }
+        });
+    }
+
+    private void processInput(ByteBuffer source) {
+        LOG.trace("Received from Broker {} bytes:", source.remaining());
+
+        do {
+            ByteBuffer buffer = protonTransport.getInputBuffer();
+            int limit = Math.min(buffer.remaining(), source.remaining());
+            ByteBuffer duplicate = source.duplicate();
+            duplicate.limit(source.position() + limit);
+            buffer.put(duplicate);
+            protonTransport.processInput();
+            source.position(source.position() + limit);
+        } while (source.hasRemaining());
+
+        // Process the state changes from the latest data and then answer back
+        // any pending updates to the Broker.
+        processUpdates();
+        pumpToProtonTransport();
+    }
+
     /**
      * Callback method for the Transport to report connection errors.  When called
      * the method will queue a new task to fire the failure error back to the listener.
@@ -694,6 +806,35 @@ public class AmqpProvider extends AbstractAsyncProvider implements TransportList
         }
     }
 
+    private AmqpProducer lookupProducer(JmsProducerId producerId) {
+        if (producerId.getProviderHint() instanceof AmqpFixedProducer) {
+            return (AmqpFixedProducer) producerId.getProviderHint();
+        }
+
+        AmqpSession session = connection.getSession(producerId.getParentId());
+        return session.getProducer(producerId);
+    }
+
+    private AmqpConsumer lookupConsumer(JmsConsumerId consumerId) {
+        if (consumerId.getProviderHint() instanceof AmqpConsumer) {
+            return (AmqpConsumer) consumerId.getProviderHint();
+        }
+
+        AmqpSession session = connection.getSession(consumerId.getParentId());
+        return session.getConsumer(consumerId);
+    }
+
+    @Override
+    protected void onSerializerTaskComplete() {
+        try {
+            if (transport != null && transport.isConnected()) {
+                transport.flush();
+            }
+        } catch (IOException e) {
+            fireProviderException(e);
+        }
+    }
+
     private void pumpToProtonTransport() {
         try {
             boolean done = false;
@@ -741,6 +882,14 @@ public class AmqpProvider extends AbstractAsyncProvider implements TransportList
         return this.traceBytes;
     }
 
+    /**
+     * @return the pool that this connection's transport reads into and its encoders
+     *         borrow scratch buffers from.
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
     public long getCloseTimeout() {
         return this.closeTimeout;
     }
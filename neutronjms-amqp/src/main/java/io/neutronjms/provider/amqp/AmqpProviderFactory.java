@@ -36,7 +36,7 @@ public class AmqpProviderFactory extends ProviderFactory {
 
         remoteURI = PropertyUtil.replaceQuery(remoteURI, map);
 
-        AsyncProvider result = new AmqpProvider(remoteURI);
+        AsyncProvider result = createProvider(remoteURI);
 
         if (!PropertyUtil.setProperties(result, providerOptions)) {
             String msg = ""
@@ -50,6 +50,19 @@ public class AmqpProviderFactory extends ProviderFactory {
         return result;
     }
 
+    /**
+     * Creates the provider instance before the provider options are applied, subclasses
+     * override this to create a provider that uses a different transport.
+     *
+     * @param remoteURI
+     *        The URI of the AMQP broker the Provider will connect to.
+     *
+     * @return a new AmqpProvider instance.
+     */
+    protected AmqpProvider createProvider(URI remoteURI) {
+        return new AmqpProvider(remoteURI);
+    }
+
     @Override
     public String getName() {
         return "AMQP";
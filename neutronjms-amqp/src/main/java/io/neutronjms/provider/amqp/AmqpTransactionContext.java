@@ -19,7 +19,9 @@ package io.neutronjms.provider.amqp;
 import io.neutronjms.jms.meta.JmsSessionInfo;
 import io.neutronjms.jms.meta.JmsTransactionId;
 import io.neutronjms.provider.AsyncResult;
+import io.neutronjms.util.BufferPool;
 import io.neutronjms.util.IOExceptionSupport;
+import io.neutronjms.util.PooledBuffer;
 
 import java.io.IOException;
 import java.nio.BufferOverflowException;
@@ -253,18 +255,29 @@ public class AmqpTransactionContext extends AbstractAmqpResource<JmsSessionInfo,
     }
 
     private void sendTxCommand(Message message) throws IOException {
-        int encodedSize = 0;
-        byte[] buffer = new byte[4 * 1024];
-        while (true) {
-            try {
-                encodedSize = message.encode(buffer, 0, buffer.length);
-                break;
-            } catch (BufferOverflowException e) {
-                buffer = new byte[buffer.length * 2];
+        BufferPool pool = session.getProvider().getBufferPool();
+        PooledBuffer buffer = pool.allocate(4 * 1024);
+        try {
+            int encodedSize = 0;
+            while (true) {
+                try {
+                    encodedSize = message.encode(buffer.getData(), 0, buffer.capacity());
+                    break;
+                } catch (BufferOverflowException e) {
+                    int size = buffer.capacity() * 2;
+                    PooledBuffer tooSmall = buffer;
+                    buffer = null;
+                    tooSmall.release();
+                    buffer = pool.allocate(size);
+                }
             }
-        }
 
-        this.endpoint.send(buffer, 0, encodedSize);
-        this.endpoint.advance();
+            this.endpoint.send(buffer.getData(), 0, encodedSize);
+            this.endpoint.advance();
+        } finally {
+            if (buffer != null) {
+                buffer.release();
+            }
+        }
     }
 }
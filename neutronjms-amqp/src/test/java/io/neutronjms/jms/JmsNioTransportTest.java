@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import io.neutronjms.test.support.AmqpTestSupport;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.Connection;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.junit.Test;
+
+/**
+ * Test connections that use the amqp+nio scheme and the NIO based transport.
+ */
+public class JmsNioTransportTest extends AmqpTestSupport {
+
+    private URI getNioConnectionURI() throws Exception {
+        return new URI(getBrokerAmqpConnectionURI().toString().replaceFirst("amqp:", "amqp+nio:"));
+    }
+
+    @Test(timeout = 60000)
+    public void testSendAndReceive() throws Exception {
+        connection = createAmqpConnection(getNioConnectionURI());
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageProducer producer = session.createProducer(queue);
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        for (int i = 0; i < 100; ++i) {
+            producer.send(session.createTextMessage("Message: " + i));
+        }
+
+        for (int i = 0; i < 100; ++i) {
+            TextMessage message = (TextMessage) consumer.receive(5000);
+            assertNotNull(message);
+            assertEquals("Message: " + i, message.getText());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testLargeMessageIsWrittenWhenSocketBufferFills() throws Exception {
+        connection = createAmqpConnection(new URI(getNioConnectionURI() + "?transport.socketBufferSize=4096"));
+        connection.start();
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1024 * 1024; ++i) {
+            body.append((char) ('a' + i % 26));
+        }
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        session.createProducer(queue).send(session.createTextMessage(body.toString()));
+
+        TextMessage message = (TextMessage) session.createConsumer(queue).receive(10000);
+        assertNotNull(message);
+        assertEquals(body.toString(), message.getText());
+    }
+
+    @Test(timeout = 60000)
+    public void testManyConnectionsShareTheSelector() throws Exception {
+        List<Connection> connections = new ArrayList<Connection>();
+        for (int i = 0; i < 20; ++i) {
+            Connection connection = createAmqpConnection(getNioConnectionURI());
+            connection.start();
+            connections.add(connection);
+        }
+
+        for (int i = 0; i < connections.size(); ++i) {
+            Session session = connections.get(i).createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue(name.getMethodName() + i);
+            session.createProducer(queue).send(session.createTextMessage("hello"));
+            assertNotNull(session.createConsumer(queue).receive(5000));
+        }
+
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.transports.TransportEventLoopGroup;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.Connection;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.junit.Test;
+
+/**
+ * Test that connections share the transport event loop group.
+ */
+public class JmsSharedEventLoopTest extends AmqpTestSupport {
+
+    @Test(timeout = 60000)
+    public void testConnectionsShareTheEventLoopGroup() throws Exception {
+        int references = TransportEventLoopGroup.getReferenceCount();
+
+        List<Connection> connections = new ArrayList<Connection>();
+        for (int i = 0; i < 20; ++i) {
+            Connection connection = createAmqpConnection();
+            connection.start();
+            connections.add(connection);
+        }
+        assertEquals(references + 20, TransportEventLoopGroup.getReferenceCount());
+
+        // Every connection still has its own socket on the shared event loops.
+        for (int i = 0; i < connections.size(); ++i) {
+            Session session = connections.get(i).createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue(name.getMethodName() + i);
+            MessageProducer producer = session.createProducer(queue);
+            producer.send(session.createTextMessage("hello"));
+            MessageConsumer consumer = session.createConsumer(queue);
+            assertNotNull(consumer.receive(5000));
+        }
+
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        assertEquals(references, TransportEventLoopGroup.getReferenceCount());
+    }
+
+    @Test(timeout = 60000)
+    public void testConnectionWithPrivateEventLoop() throws Exception {
+        int references = TransportEventLoopGroup.getReferenceCount();
+
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?transport.sharedEventLoop=false"));
+        connection.start();
+        assertEquals(references, TransportEventLoopGroup.getReferenceCount());
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        session.createProducer(queue).send(session.createTextMessage("hello"));
+        assertNotNull(session.createConsumer(queue).receive(5000));
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.bench;
+
+import io.neutronjms.test.support.AmqpTestSupport;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares the time taken to open a large number of connections, and the threads and
+ * resident memory they use, with the shared transport event loop group and with an
+ * event loop group per connection.  The process needs a file descriptor limit of a few
+ * thousand to run it.
+ */
+@Ignore
+public class ConnectionCreationBench extends AmqpTestSupport {
+
+    private final int CONNECTION_COUNT = 1000;
+
+    @Test
+    public void testSharedEventLoop() throws Exception {
+        openConnections(true);
+    }
+
+    @Test
+    public void testEventLoopPerConnection() throws Exception {
+        openConnections(false);
+    }
+
+    protected void openConnections(boolean shared) throws Exception {
+        URI brokerURI = new URI(getBrokerAmqpConnectionURI() + "?transport.sharedEventLoop=" + shared);
+
+        System.gc();
+        long startRss = getResidentBytes();
+        int startThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        List<Connection> connections = new ArrayList<Connection>(CONNECTION_COUNT);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < CONNECTION_COUNT; ++i) {
+                Connection connection = createAmqpConnection(brokerURI);
+                connection.start();
+                connections.add(connection);
+            }
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            System.gc();
+            long rss = getResidentBytes() - startRss;
+            int threads = ManagementFactory.getThreadMXBean().getThreadCount() - startThreads;
+
+            LOG.info("Opened {} connections with shared event loop {} in {} ms, added {} threads and {} KB RSS",
+                new Object[] { CONNECTION_COUNT, shared, elapsed, threads, rss / 1024 });
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * @return the resident set size of the process, or the used heap where /proc is not available.
+     */
+    private long getResidentBytes() throws Exception {
+        File status = new File("/proc/self/status");
+        if (status.exists()) {
+            BufferedReader reader = new BufferedReader(new FileReader(status));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
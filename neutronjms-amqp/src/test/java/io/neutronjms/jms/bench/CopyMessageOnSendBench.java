@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.bench;
+
+import io.neutronjms.test.support.AmqpTestSupport;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares the bytes allocated by the sending thread with and without the
+ * per send message copy enabled.
+ */
+@Ignore
+public class CopyMessageOnSendBench extends AmqpTestSupport {
+
+    private final int MSG_COUNT = 20 * 1000;
+    private final int NUM_RUNS = 5;
+
+    @Override
+    protected boolean isForceAsyncSends() {
+        return true;
+    }
+
+    @Override
+    protected boolean isAlwaysSyncSend() {
+        return false;
+    }
+
+    @Override
+    public String getAmqpConnectionURIOptions() {
+        return "provider.presettle=true";
+    }
+
+    @Test
+    public void testAllocationsFor1KPayload() throws Exception {
+        compareAllocations(1024);
+    }
+
+    @Test
+    public void testAllocationsFor64KPayload() throws Exception {
+        compareAllocations(64 * 1024);
+    }
+
+    protected void compareAllocations(int payloadSize) throws Exception {
+        byte[] payload = new byte[payloadSize];
+
+        long copied = 0;
+        long uncopied = 0;
+
+        // Warm Up both paths.
+        produceMessages(true, payload);
+        produceMessages(false, payload);
+
+        for (int i = 0; i < NUM_RUNS; ++i) {
+            copied += produceMessages(true, payload);
+            uncopied += produceMessages(false, payload);
+        }
+
+        LOG.info("Bytes allocated per send of a {} byte payload with copy: {}, without copy: {}",
+            new Object[] { payloadSize, copied / (NUM_RUNS * MSG_COUNT), uncopied / (NUM_RUNS * MSG_COUNT) });
+    }
+
+    protected long produceMessages(boolean copyMessageOnSend, byte[] payload) throws Exception {
+        URI brokerURI = new URI(getBrokerAmqpConnectionURI() + "&jms.copyMessageOnSend=" + copyMessageOnSend);
+        Connection connection = createAmqpConnection(brokerURI);
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Topic topic = session.createTopic(getDestinationName());
+            MessageProducer producer = session.createProducer(topic);
+            producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+            BytesMessage message = session.createBytesMessage();
+            message.writeBytes(payload);
+
+            long startBytes = getAllocatedBytes();
+            for (int i = 0; i < MSG_COUNT; ++i) {
+                producer.send(message);
+            }
+            return getAllocatedBytes() - startBytes;
+        } finally {
+            connection.close();
+        }
+    }
+
+    private long getAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
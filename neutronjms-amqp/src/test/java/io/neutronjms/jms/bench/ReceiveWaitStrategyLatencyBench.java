@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.bench;
+
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.util.WaitStrategy;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Exchanger;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.TransportConnector;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares the send to receive() latency of each synchronous receive wait strategy.
+ */
+@Ignore
+public class ReceiveWaitStrategyLatencyBench extends AmqpTestSupport {
+
+    private final int WARMUP_COUNT = 5000;
+    private final int MSG_COUNT = 20000;
+
+    @Override
+    protected boolean isForceAsyncSends() {
+        return true;
+    }
+
+    @Override
+    protected boolean isMessagePrioritySupported() {
+        return false;
+    }
+
+    @Override
+    protected void addAdditionalConnectors(BrokerService brokerService, Map<String, Integer> portMap) throws Exception {
+        // Without TCP_NODELAY on the broker side delayed ACKs dominate every round trip.
+        TransportConnector connector = brokerService.addConnector(
+            "amqp://0.0.0.0:0?transport.transformer=" + getAmqpTransformer() + "&transport.tcpNoDelay=true");
+        connector.setName("amqp");
+    }
+
+    @Test
+    public void testBlockingLatency() throws Exception {
+        measure(WaitStrategy.BLOCKING);
+    }
+
+    @Test
+    public void testSpinYieldLatency() throws Exception {
+        measure(WaitStrategy.SPIN_YIELD);
+    }
+
+    @Test
+    public void testSpinParkLatency() throws Exception {
+        measure(WaitStrategy.SPIN_PARK);
+    }
+
+    @Test
+    public void testBusySpinLatency() throws Exception {
+        measure(WaitStrategy.BUSY_SPIN);
+    }
+
+    private void measure(String strategy) throws Exception {
+        Connection connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.ringBufferMessageQueue=true&jms.receiveWaitStrategy=" + strategy));
+        this.connection = connection;
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        final MessageConsumer consumer = session.createConsumer(queue);
+
+        final Exchanger<Long> exchanger = new Exchanger<Long>();
+        Thread receiver = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < WARMUP_COUNT + MSG_COUNT; ++i) {
+                        Message message = consumer.receive(10000);
+                        long received = System.nanoTime();
+                        if (message == null) {
+                            break;
+                        }
+                        exchanger.exchange(received - message.getLongProperty("sent"), 10, TimeUnit.SECONDS);
+                    }
+                } catch (Exception e) {
+                    LOG.warn("Receiver failed: {}", e.getMessage());
+                }
+            }
+        }, "Bench receiver: " + strategy);
+        receiver.start();
+
+        Session sendSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = sendSession.createProducer(queue);
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+        long[] samples = new long[MSG_COUNT];
+        for (int i = 0; i < WARMUP_COUNT + MSG_COUNT; ++i) {
+            Message message = sendSession.createMessage();
+            message.setLongProperty("sent", System.nanoTime());
+            producer.send(message);
+            long latency = exchanger.exchange(null, 10, TimeUnit.SECONDS);
+            if (i >= WARMUP_COUNT) {
+                samples[i - WARMUP_COUNT] = latency;
+            }
+        }
+        receiver.join();
+
+        Arrays.sort(samples);
+        LOG.info("{} receive latency over {} messages: p50 {} us, p99 {} us, p99.9 {} us, max {} us",
+                 new Object[] { strategy, MSG_COUNT,
+                                percentile(samples, 0.50), percentile(samples, 0.99),
+                                percentile(samples, 0.999), TimeUnit.NANOSECONDS.toMicros(samples[MSG_COUNT - 1]) });
+
+        assertTrue(samples[0] > 0);
+    }
+
+    private long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(0, index)]);
+    }
+}
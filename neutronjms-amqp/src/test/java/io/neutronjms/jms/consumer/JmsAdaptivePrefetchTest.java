@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.JmsMessageConsumer;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.test.support.Wait;
+
+import java.net.URI;
+
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.broker.jmx.QueueViewMBean;
+import org.junit.Test;
+
+/**
+ * Test that a consumer using adaptive prefetch sizes its credit window within bounds.
+ */
+public class JmsAdaptivePrefetchTest extends AmqpTestSupport {
+
+    private final int MSG_COUNT = 2000;
+
+    @Test(timeout = 60000)
+    public void testConsumerStartsWithMinimumWindow() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.prefetchPolicy.adaptivePrefetch=true&jms.prefetchPolicy.adaptivePrefetchMinimum=5"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        assertEquals(5, consumer.getCreditWindow());
+        assertEquals(1000, consumer.getPrefetchSize());
+    }
+
+    @Test(timeout = 60000)
+    public void testFastConsumerGrowsWindowWithinBounds() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.prefetchPolicy.adaptivePrefetch=true&jms.prefetchPolicy.adaptivePrefetchMinimum=5" +
+            "&jms.prefetchPolicy.queuePrefetch=200"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            producer.send(session.createTextMessage("Message: " + i));
+        }
+
+        int maxWindow = 0;
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            assertNotNull("Failed to receive message: " + i, consumer.receive(5000));
+            int window = consumer.getCreditWindow();
+            assertTrue("Window below minimum: " + window, window >= 5);
+            assertTrue("Window above prefetch: " + window, window <= 200);
+            maxWindow = Math.max(maxWindow, window);
+        }
+        assertNull(consumer.receiveNoWait());
+
+        assertTrue("Window never grew past the minimum", maxWindow > 5);
+
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertTrue("Queued messages not consumed.", Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getQueueSize() == 0;
+            }
+        }));
+    }
+
+    @Test(timeout = 60000)
+    public void testStaticPrefetchByDefault() throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        assertEquals(consumer.getPrefetchSize(), consumer.getCreditWindow());
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.JmsConnection;
+import io.neutronjms.jms.JmsConnectionFactory;
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+import io.neutronjms.provider.AsyncProvider;
+import io.neutronjms.provider.AsyncProviderWrapper;
+import io.neutronjms.provider.AsyncResult;
+import io.neutronjms.provider.ProviderConstants.ACK_TYPE;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.test.support.Wait;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.broker.jmx.QueueViewMBean;
+import org.junit.Test;
+
+/**
+ * Test that batched consumed acknowledgments all reach the broker.
+ */
+public class JmsBatchedAckTest extends AmqpTestSupport {
+
+    private final int MSG_COUNT = 500;
+
+    @Test(timeout = 60000)
+    public void testDupsOkAcksFlushedBeforeCreditRunsOut() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.ackBatchSize=1000&jms.ackBatchTimeout=0&jms.prefetchPolicy.queuePrefetch=100"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.DUPS_OK_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        sendToAmqQueue(MSG_COUNT);
+
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            assertNotNull("Failed to receive message: " + i, consumer.receive(5000));
+        }
+        assertNull(consumer.receiveNoWait());
+
+        assertQueueDrained();
+    }
+
+    @Test(timeout = 60000)
+    public void testDupsOkAcksFlushedAfterTimeout() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.ackBatchSize=1000&jms.ackBatchTimeout=100"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.DUPS_OK_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        sendToAmqQueue(10);
+
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertEquals(10, proxy.getQueueSize());
+
+        for (int i = 0; i < 10; ++i) {
+            assertNotNull("Failed to receive message: " + i, consumer.receive(5000));
+        }
+
+        assertQueueDrained();
+    }
+
+    @Test(timeout = 60000)
+    public void testDupsOkAcksFlushedOnConsumerClose() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.ackBatchSize=1000&jms.ackBatchTimeout=0"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.DUPS_OK_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        sendToAmqQueue(10);
+
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertEquals(10, proxy.getQueueSize());
+
+        for (int i = 0; i < 5; ++i) {
+            assertNotNull("Failed to receive message: " + i, consumer.receive(5000));
+        }
+        consumer.close();
+
+        assertTrue("Batched acks not sent on close.", Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getQueueSize() == 5;
+            }
+        }));
+    }
+
+    @Test(timeout = 60000)
+    public void testDupsOkAcksBatchedAtModerateRate() throws Exception {
+        final List<Integer> batches = new CopyOnWriteArrayList<Integer>();
+        JmsConnectionFactory factory = new JmsConnectionFactory(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.ackBatchSize=10&jms.ackBatchTimeout=1000")) {
+
+            @Override
+            protected AsyncProvider createProvider(URI brokerURI) throws Exception {
+                return new AsyncProviderWrapper<AsyncProvider>(super.createProvider(brokerURI)) {
+
+                    @Override
+                    public void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType, AsyncResult request) throws IOException, JMSException {
+                        batches.add(envelopes.size());
+                        super.acknowledge(envelopes, ackType, request);
+                    }
+                };
+            }
+        };
+        connection = factory.createConnection();
+        connection.start();
+
+        Session session = connection.createSession(false, Session.DUPS_OK_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        // Messages trickle in so the consumer finds its buffer empty after each one.
+        final Session producerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        final MessageProducer producer = producerSession.createProducer(queue);
+        Thread sender = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 50; ++i) {
+                        producer.send(producerSession.createMessage());
+                        TimeUnit.MILLISECONDS.sleep(5);
+                    }
+                } catch (Exception e) {
+                }
+            }
+        });
+        sender.start();
+
+        for (int i = 0; i < 50; ++i) {
+            assertNotNull("Failed to receive message: " + i, consumer.receive(5000));
+        }
+        sender.join();
+        consumer.close();
+
+        int total = 0;
+        int largest = 0;
+        for (int size : batches) {
+            total += size;
+            largest = Math.max(largest, size);
+        }
+        assertEquals(50, total);
+        assertTrue("Acknowledgements were not batched: " + batches, largest > 1);
+        assertQueueDrained();
+    }
+
+    @Test(timeout = 60000)
+    public void testAsyncAutoAckListenerAcksAllMessages() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.ackBatchSize=50"));
+        ((JmsConnection) connection).setSendAcksAsync(true);
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        final CountDownLatch received = new CountDownLatch(MSG_COUNT);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                received.countDown();
+            }
+        });
+
+        sendToAmqQueue(MSG_COUNT);
+
+        assertTrue(received.await(30, TimeUnit.SECONDS));
+        assertQueueDrained();
+    }
+
+    private void assertQueueDrained() throws Exception {
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertTrue("Queued messages not consumed.", Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getQueueSize() == 0;
+            }
+        }));
+    }
+}
@@ -22,6 +22,8 @@ import static org.junit.Assert.assertTrue;
 import io.neutronjms.test.support.AmqpTestSupport;
 import io.neutronjms.test.support.Wait;
 
+import java.net.URI;
+
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -324,6 +326,31 @@ public class JmsClientAckTest extends AmqpTestSupport {
         rec4.acknowledge();
     }
 
+    @Test(timeout=60000)
+    public void testRecoverAfterModifyingZeroCopyMessage() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.zeroCopyReceive=true"));
+        connection.start();
+        Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+        MessageProducer producer = session.createProducer(queue);
+        producer.send(session.createTextMessage("Hello"));
+
+        TextMessage received = (TextMessage) consumer.receive(5000);
+        assertNotNull(received);
+        assertEquals("Hello", received.getText());
+        received.clearBody();
+        received.setText("Modified");
+
+        session.recover();
+
+        TextMessage redelivered = (TextMessage) consumer.receive(5000);
+        assertNotNull(redelivered);
+        assertEquals("Hello", redelivered.getText());
+        assertTrue(redelivered.getJMSRedelivered());
+        redelivered.acknowledge();
+    }
+
     @Test(timeout=60000)
     public void testRecoverRedelivery() throws Exception {
         final CountDownLatch redelivery = new CountDownLatch(6);
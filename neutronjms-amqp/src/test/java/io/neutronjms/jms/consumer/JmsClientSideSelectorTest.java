@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.JmsMessageConsumer;
+import io.neutronjms.jms.message.JmsDefaultMessageFactory;
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+import io.neutronjms.jms.message.JmsMessage;
+import io.neutronjms.jms.meta.JmsMessageId;
+import io.neutronjms.test.support.AmqpTestSupport;
+
+import java.net.URI;
+
+import javax.jms.InvalidSelectorException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.junit.Test;
+
+/**
+ * Test consumers that evaluate their message selector in the client.
+ */
+public class JmsClientSideSelectorTest extends AmqpTestSupport {
+
+    private final int MSG_COUNT = 20;
+
+    @Test(timeout = 60000)
+    public void testSelectorIsCompiledOnlyWhenEnabled() throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue, "color = 'red'");
+        assertFalse(consumer.isClientSideSelector());
+        consumer.close();
+        connection.close();
+
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.clientSideSelectors=true"));
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        consumer = (JmsMessageConsumer) session.createConsumer(queue, "color = 'red'");
+        assertTrue(consumer.isClientSideSelector());
+    }
+
+    @Test(timeout = 60000)
+    public void testSelectorAcceptedByBrokerIsNotEvaluatedInClient() throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue, "color = 'red'");
+        assertFalse("Broker accepted the selector", consumer.isClientSideSelector());
+
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            Message message = session.createMessage();
+            message.setStringProperty("color", i % 2 == 0 ? "red" : "blue");
+            producer.send(message);
+        }
+
+        for (int i = 0; i < MSG_COUNT / 2; ++i) {
+            Message message = consumer.receive(5000);
+            assertNotNull(message);
+            assertEquals("red", message.getStringProperty("color"));
+        }
+        assertNull(consumer.receive(100));
+    }
+
+    @Test(timeout = 60000)
+    public void testReceiveWithClientSideSelector() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.clientSideSelectors=true"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue, "color = 'red' AND index >= 10");
+
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            Message message = session.createMessage();
+            message.setStringProperty("color", i % 2 == 0 ? "red" : "blue");
+            message.setIntProperty("index", i);
+            producer.send(message);
+        }
+
+        for (int i = 10; i < MSG_COUNT; i += 2) {
+            Message message = consumer.receive(5000);
+            assertNotNull(message);
+            assertEquals(i, message.getIntProperty("index"));
+        }
+        assertNull(consumer.receive(100));
+    }
+
+    @Test(timeout = 60000)
+    public void testNonMatchingMessagesAreDropped() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.clientSideSelectors=true"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue, "color = 'red'");
+
+        // Hand the consumer messages directly, as a peer that ignores selectors would.
+        JmsDefaultMessageFactory factory = new JmsDefaultMessageFactory();
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            JmsMessage message = factory.createMessage();
+            message.getFacade().setMessageId(new JmsMessageId(name.getMethodName() + ":" + i));
+            message.setStringProperty("color", i % 2 == 0 ? "red" : "blue");
+            message.setIntProperty("index", i);
+            JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+            envelope.setConsumerId(consumer.getConsumerId());
+            envelope.setMessage(message);
+            consumer.onMessage(envelope);
+        }
+
+        for (int i = 0; i < MSG_COUNT; i += 2) {
+            Message message = consumer.receiveNoWait();
+            assertNotNull(message);
+            assertEquals(i, message.getIntProperty("index"));
+        }
+        assertNull(consumer.receiveNoWait());
+    }
+
+    @Test(timeout = 60000, expected = InvalidSelectorException.class)
+    public void testInvalidSelectorIsRejected() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.clientSideSelectors=true"));
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        session.createConsumer(session.createQueue(name.getMethodName()), "color = ");
+    }
+}
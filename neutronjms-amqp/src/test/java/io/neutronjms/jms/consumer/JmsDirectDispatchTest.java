@@ -0,0 +1,288 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.JmsMessageConsumer;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.test.support.Wait;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.jms.DeliveryMode;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.broker.jmx.QueueViewMBean;
+import org.junit.Test;
+
+/**
+ * Test MessageListener dispatch on the Provider thread.
+ */
+public class JmsDirectDispatchTest extends AmqpTestSupport {
+
+    private final int MSG_COUNT = 100;
+
+    @Test(timeout = 60000)
+    public void testListenerRunsOnDeliveryThread() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.directDispatch=true"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        final AtomicBoolean onSessionThread = new AtomicBoolean();
+        final CountDownLatch received = new CountDownLatch(MSG_COUNT);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                if (isSessionDispatchThread()) {
+                    onSessionThread.set(true);
+                }
+                received.countDown();
+            }
+        });
+
+        sendToAmqQueue(MSG_COUNT);
+
+        assertTrue(received.await(30, TimeUnit.SECONDS));
+        assertFalse("Listener was called on the Session thread", onSessionThread.get());
+        assertTrue(consumer.isDirectDispatch());
+        assertQueueDrained();
+    }
+
+    @Test(timeout = 60000)
+    public void testTransactedSessionDispatchesOnSessionThread() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.directDispatch=true"));
+        connection.start();
+
+        final Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        final AtomicBoolean onOtherThread = new AtomicBoolean();
+        final CountDownLatch received = new CountDownLatch(1);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                if (!isSessionDispatchThread()) {
+                    onOtherThread.set(true);
+                }
+                try {
+                    session.commit();
+                } catch (JMSException e) {
+                    onOtherThread.set(true);
+                }
+                received.countDown();
+            }
+        });
+
+        sendToAmqQueue(1);
+
+        assertTrue(received.await(30, TimeUnit.SECONDS));
+        assertFalse("Transacted listener was not called on the Session thread", onOtherThread.get());
+        assertQueueDrained();
+    }
+
+    @Test(timeout = 60000)
+    public void testBlockingSendFromListenerFailsInsteadOfStalling() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.directDispatch=true"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        final Session replySession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        final MessageProducer producer = replySession.createProducer(replySession.createQueue(name.getMethodName() + ".reply"));
+        producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        final CountDownLatch received = new CountDownLatch(1);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                try {
+                    producer.send(replySession.createMessage());
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+                received.countDown();
+            }
+        });
+
+        sendToAmqQueue(1);
+
+        assertTrue(received.await(30, TimeUnit.SECONDS));
+        assertNotNull("Blocking send from a direct listener should fail", failure.get());
+    }
+
+    @Test(timeout = 60000)
+    public void testSendFromListenerWithFullSendWindowFailsInsteadOfStalling() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.directDispatch=true&jms.maxInFlightAsyncSends=1"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        final Session replySession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue replyQueue = replySession.createQueue(name.getMethodName() + ".reply");
+        final MessageProducer producer = replySession.createProducer(replyQueue);
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+        // The first send fills the window, it can only drain once the listener returns.
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        final CountDownLatch received = new CountDownLatch(1);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                try {
+                    producer.send(replySession.createMessage());
+                    producer.send(replySession.createMessage());
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+                received.countDown();
+            }
+        });
+
+        sendToAmqQueue(1);
+
+        assertTrue("Listener stalled on the full send window", received.await(30, TimeUnit.SECONDS));
+        assertTrue("Send into the full window should fail", failure.get() instanceof IllegalStateException);
+
+        MessageConsumer replies = replySession.createConsumer(replyQueue);
+        assertNotNull("The send that fit in the window was lost", replies.receive(5000));
+        assertNull(replies.receive(500));
+        assertQueueDrained();
+    }
+
+    @Test(timeout = 60000)
+    public void testWatchdogReportsListenerStillRunning() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.directDispatch=true&jms.directDispatchMaxBlockTime=10"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        final JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                entered.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                }
+            }
+        });
+
+        sendToAmqQueue(1);
+
+        try {
+            assertTrue(entered.await(30, TimeUnit.SECONDS));
+            assertTrue("Listener that is still running was not reported", Wait.waitFor(new Wait.Condition() {
+
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return !consumer.isDirectDispatch();
+                }
+            }));
+        } finally {
+            release.countDown();
+        }
+
+        assertQueueDrained();
+    }
+
+    @Test(timeout = 60000)
+    public void testSlowListenerRevertsToSessionThread() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.directDispatch=true&jms.directDispatchMaxBlockTime=10"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        final JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        final AtomicBoolean lastOnSessionThread = new AtomicBoolean();
+        final CountDownLatch received = new CountDownLatch(MSG_COUNT);
+        consumer.setMessageListener(new MessageListener() {
+
+            private boolean first = true;
+
+            @Override
+            public void onMessage(Message message) {
+                if (first) {
+                    first = false;
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(50);
+                    } catch (InterruptedException e) {
+                    }
+                }
+                lastOnSessionThread.set(isSessionDispatchThread());
+                received.countDown();
+            }
+        });
+
+        sendToAmqQueue(MSG_COUNT);
+
+        assertTrue(received.await(30, TimeUnit.SECONDS));
+        assertFalse(consumer.isDirectDispatch());
+        assertTrue("Slow listener was not moved to the Session thread", lastOnSessionThread.get());
+        assertQueueDrained();
+    }
+
+    private static boolean isSessionDispatchThread() {
+        return Thread.currentThread().getName().endsWith("dispatcher");
+    }
+
+    private void assertQueueDrained() throws Exception {
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertTrue("Queued messages not consumed.", Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getQueueSize() == 0;
+            }
+        }));
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.test.support.Wait;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.broker.jmx.QueueViewMBean;
+import org.junit.Test;
+
+/**
+ * Test parallel MessageListener delivery on lanes ordered by JMSXGroupID.
+ */
+public class JmsGroupDispatchTest extends AmqpTestSupport {
+
+    private final int GROUP_COUNT = 8;
+    private final int MSG_COUNT = 50;
+
+    @Test(timeout = 60000)
+    public void testGroupsAreDeliveredInOrder() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.groupDispatchLanes=4"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        final Map<String, Integer> expected = Collections.synchronizedMap(new HashMap<String, Integer>());
+        final AtomicBoolean outOfOrder = new AtomicBoolean();
+        final CountDownLatch received = new CountDownLatch(GROUP_COUNT * MSG_COUNT);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                try {
+                    String group = message.getStringProperty("JMSXGroupID");
+                    Integer next = expected.get(group);
+                    int index = message.getIntProperty("index");
+                    if (index != (next == null ? 0 : next.intValue())) {
+                        outOfOrder.set(true);
+                    }
+                    expected.put(group, index + 1);
+                } catch (Exception e) {
+                    outOfOrder.set(true);
+                }
+                received.countDown();
+            }
+        });
+
+        sendGroupedMessages(session, queue);
+
+        assertTrue("Not all messages were dispatched", received.await(30, TimeUnit.SECONDS));
+        assertFalse("Messages of a group were dispatched out of order", outOfOrder.get());
+        assertQueueDrained();
+    }
+
+    @Test(timeout = 60000)
+    public void testGroupsAreDeliveredInParallel() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.groupDispatchLanes=4"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final CountDownLatch received = new CountDownLatch(GROUP_COUNT * MSG_COUNT);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                threads.add(Thread.currentThread());
+                int current = concurrent.incrementAndGet();
+                if (current > maxConcurrent.get()) {
+                    maxConcurrent.set(current);
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                } catch (InterruptedException e) {
+                }
+                concurrent.decrementAndGet();
+                received.countDown();
+            }
+        });
+
+        sendGroupedMessages(session, queue);
+
+        assertTrue("Not all messages were dispatched", received.await(30, TimeUnit.SECONDS));
+        assertTrue("Listener was only called on one thread", threads.size() > 1);
+        assertTrue("Listener was never called concurrently", maxConcurrent.get() > 1);
+        assertQueueDrained();
+    }
+
+    @Test(timeout = 60000)
+    public void testClientAcknowledgeFromLanes() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.groupDispatchLanes=4"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        final AtomicBoolean failed = new AtomicBoolean();
+        final CountDownLatch received = new CountDownLatch(GROUP_COUNT * MSG_COUNT);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                try {
+                    message.acknowledge();
+                } catch (Exception e) {
+                    failed.set(true);
+                }
+                received.countDown();
+            }
+        });
+
+        sendGroupedMessages(session, queue);
+
+        assertTrue("Not all messages were dispatched", received.await(30, TimeUnit.SECONDS));
+        assertFalse("Acknowledge from a lane failed", failed.get());
+        assertQueueDrained();
+    }
+
+    @Test(timeout = 60000)
+    public void testTransactedSessionDeliversSerially() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.groupDispatchLanes=4"));
+        connection.start();
+
+        final Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        final CountDownLatch received = new CountDownLatch(GROUP_COUNT * MSG_COUNT);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                threads.add(Thread.currentThread());
+                received.countDown();
+            }
+        });
+
+        Session sendSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        sendGroupedMessages(sendSession, queue);
+
+        assertTrue("Not all messages were dispatched", received.await(30, TimeUnit.SECONDS));
+        assertEquals(1, threads.size());
+        session.commit();
+        assertQueueDrained();
+    }
+
+    private void sendGroupedMessages(Session session, Queue queue) throws Exception {
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            for (int group = 0; group < GROUP_COUNT; ++group) {
+                Message message = session.createMessage();
+                message.setStringProperty("JMSXGroupID", "group-" + group);
+                message.setIntProperty("index", i);
+                producer.send(message);
+            }
+        }
+        producer.close();
+    }
+
+    private void assertQueueDrained() throws Exception {
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertTrue("Queued messages not consumed.", Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getQueueSize() == 0;
+            }
+        }));
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import io.neutronjms.jms.JmsMessageConsumer;
+import io.neutronjms.jms.message.JmsDefaultMessageFactory;
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+import io.neutronjms.jms.message.JmsMessage;
+import io.neutronjms.jms.meta.JmsMessageId;
+import io.neutronjms.test.support.AmqpTestSupport;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.junit.Test;
+
+/**
+ * Test that handing messages to a consumer with a MessageListener does not allocate
+ * anything per message in the dispatch layer.
+ */
+public class JmsListenerDispatchAllocationTest extends AmqpTestSupport {
+
+    private final int WARMUP_COUNT = 200;
+    private final int MSG_COUNT = 500;
+
+    @Override
+    protected boolean isMessagePrioritySupported() {
+        return false;
+    }
+
+    @Test(timeout = 60000)
+    public void testAutoAckDispatchDoesNotAllocatePerMessage() throws Exception {
+        doTestDispatchDoesNotAllocatePerMessage(Session.AUTO_ACKNOWLEDGE);
+    }
+
+    @Test(timeout = 60000)
+    public void testClientAckDispatchDoesNotAllocatePerMessage() throws Exception {
+        doTestDispatchDoesNotAllocatePerMessage(Session.CLIENT_ACKNOWLEDGE);
+    }
+
+    private void doTestDispatchDoesNotAllocatePerMessage(int ackMode) throws Exception {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.ringBufferMessageQueue=true"));
+        connection.start();
+
+        Session session = connection.createSession(false, ackMode);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch delivered = new CountDownLatch(1 + WARMUP_COUNT + MSG_COUNT);
+
+        // The listener holds the dispatch thread on the first message so every message
+        // handed over afterwards is queued behind the one pending delivery task.
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+                delivered.countDown();
+            }
+        });
+
+        JmsInboundMessageDispatch[] envelopes = createEnvelopes(consumer, 1 + WARMUP_COUNT + MSG_COUNT);
+
+        consumer.onMessage(envelopes[0]);
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        for (int i = 1; i <= WARMUP_COUNT; ++i) {
+            consumer.onMessage(envelopes[i]);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = WARMUP_COUNT + 1; i < envelopes.length; ++i) {
+            consumer.onMessage(envelopes[i]);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        release.countDown();
+        assertTrue(delivered.await(30, TimeUnit.SECONDS));
+
+        LOG.info("Dispatch of {} messages allocated {} bytes", MSG_COUNT, allocated);
+        assertTrue("Dispatch allocated " + allocated + " bytes for " + MSG_COUNT + " messages",
+                   allocated < MSG_COUNT * 8);
+    }
+
+    private JmsInboundMessageDispatch[] createEnvelopes(JmsMessageConsumer consumer, int count) throws Exception {
+        JmsDefaultMessageFactory factory = new JmsDefaultMessageFactory();
+        JmsInboundMessageDispatch[] envelopes = new JmsInboundMessageDispatch[count];
+        for (int i = 0; i < count; ++i) {
+            JmsMessage message = factory.createMessage();
+            message.getFacade().setMessageId(new JmsMessageId(name.getMethodName() + ":" + i));
+            JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+            envelope.setConsumerId(consumer.getConsumerId());
+            envelope.setMessage(message);
+            envelopes[i] = envelope;
+        }
+        return envelopes;
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.test.support.Wait;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.jms.Connection;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.apache.activemq.broker.jmx.QueueViewMBean;
+import org.junit.Test;
+
+/**
+ * Test consumers whose incoming envelopes and messages are recycled.
+ */
+public class JmsMessageRecyclingTest extends AmqpTestSupport {
+
+    private static final int MSG_COUNT = 200;
+    private static final int PREFETCH = 10;
+
+    @Test(timeout = 60000)
+    public void testRecycledMessagesKeepTheirContent() throws Exception {
+        connection = createRecyclingConnection(false);
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+        sendMessages(session, queue);
+
+        List<Message> received = new ArrayList<Message>(MSG_COUNT);
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            Message message = consumer.receive(5000);
+            assertNotNull("Missing message " + i, message);
+            received.add(message);
+        }
+        assertNull(consumer.receive(100));
+
+        // Messages held by the application are never the recycled instances.
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            assertMessage(i, received.get(i));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testClientAckListenerWithUseAfterReleaseDetection() throws Exception {
+        connection = createRecyclingConnection(true);
+        final AtomicReference<Exception> failure = trackFailures(connection);
+        connection.start();
+
+        Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        final CountDownLatch done = new CountDownLatch(MSG_COUNT);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                try {
+                    assertMessage((int) (MSG_COUNT - done.getCount()), message);
+                    if (done.getCount() % 10 == 1) {
+                        message.acknowledge();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, new Exception(e));
+                }
+                done.countDown();
+            }
+        });
+        sendMessages(session, queue);
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertNull(failure.get());
+
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertTrue("All messages should be acknowledged", Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getQueueSize() == 0;
+            }
+        }));
+    }
+
+    @Test(timeout = 60000)
+    public void testTransactedRollbackWithUseAfterReleaseDetection() throws Exception {
+        connection = createRecyclingConnection(true);
+        final AtomicReference<Exception> failure = trackFailures(connection);
+        connection.start();
+
+        Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+        sendMessages(session, queue);
+        session.commit();
+
+        for (int i = 0; i < 10; ++i) {
+            assertNotNull(consumer.receive(5000));
+        }
+        session.rollback();
+
+        // Rolled back messages are not necessarily redelivered ahead of the prefetched ones.
+        Set<Integer> indexes = new HashSet<Integer>();
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            Message message = consumer.receive(5000);
+            assertNotNull("Missing message " + i, message);
+            int index = message.getIntProperty("index");
+            assertMessage(index, message);
+            assertTrue("Duplicate message " + index, indexes.add(index));
+        }
+        session.commit();
+
+        assertNull(consumer.receive(100));
+        assertNull(failure.get());
+    }
+
+    private Connection createRecyclingConnection(boolean debug) throws Exception {
+        // A small prefetch makes the consumer reuse its pooled instances many times over.
+        return createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.prefetchPolicy.all=" + PREFETCH +
+            "&jms.messageRecycling=true&jms.messageRecyclingDebug=" + debug));
+    }
+
+    private AtomicReference<Exception> trackFailures(Connection connection) throws JMSException {
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        connection.setExceptionListener(new ExceptionListener() {
+
+            @Override
+            public void onException(JMSException exception) {
+                failure.compareAndSet(null, exception);
+            }
+        });
+        return failure;
+    }
+
+    private void sendMessages(Session session, Queue queue) throws Exception {
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            TextMessage message = session.createTextMessage("message-" + i);
+            message.setIntProperty("index", i);
+            if (i % 2 == 0) {
+                message.setBooleanProperty("even", true);
+            }
+            producer.send(message);
+        }
+        producer.close();
+    }
+
+    private static void assertMessage(int index, Message message) throws JMSException {
+        assertTrue(message instanceof TextMessage);
+        assertEquals("message-" + index, ((TextMessage) message).getText());
+        assertEquals(index, message.getIntProperty("index"));
+        if (index % 2 == 0) {
+            assertTrue(message.getBooleanProperty("even"));
+        } else {
+            assertFalse(message.propertyExists("even"));
+        }
+    }
+}
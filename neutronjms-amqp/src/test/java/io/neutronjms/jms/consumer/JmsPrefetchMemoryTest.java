@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.JmsConnection;
+import io.neutronjms.jms.JmsMessageConsumer;
+import io.neutronjms.test.support.AmqpTestSupport;
+
+import java.net.URI;
+
+import javax.jms.BytesMessage;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.junit.Test;
+
+/**
+ * Test consumers whose prefetch is limited by the size of the buffered messages.
+ */
+public class JmsPrefetchMemoryTest extends AmqpTestSupport {
+
+    private static final int MSG_COUNT = 50;
+    private static final int MSG_SIZE = 16 * 1024;
+    private static final long LIMIT = 64 * 1024;
+
+    @Override
+    protected boolean isMessagePrioritySupported() {
+        return false;
+    }
+
+    @Test(timeout = 60000)
+    public void testConsumerPrefetchIsLimitedByBytes() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.prefetchPolicy.maxPrefetchBytes=" + LIMIT));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        sendMessages(session, queue);
+
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+        receiveAll(consumer, LIMIT);
+        assertTrue("Window was not sized to the limit", consumer.getCreditWindow() <= LIMIT / MSG_SIZE);
+        assertEquals(0, consumer.getPrefetchedBytes());
+    }
+
+    @Test(timeout = 60000)
+    public void testConnectionPrefetchIsLimitedByBytes() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.maxPrefetchMemory=" + LIMIT));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue first = session.createQueue(name.getMethodName() + "-1");
+        Queue second = session.createQueue(name.getMethodName() + "-2");
+        sendMessages(session, first);
+        sendMessages(session, second);
+
+        JmsMessageConsumer consumer1 = (JmsMessageConsumer) session.createConsumer(first);
+        JmsMessageConsumer consumer2 = (JmsMessageConsumer) session.createConsumer(second);
+
+        // Let both consumers fill the connection's buffer before draining either one.
+        Thread.sleep(500);
+        assertWithinLimit((JmsConnection) connection, 2 * LIMIT);
+
+        receiveAll(consumer1, 2 * LIMIT);
+        receiveAll(consumer2, 2 * LIMIT);
+        assertEquals(0, ((JmsConnection) connection).getPrefetchedBytes());
+    }
+
+    private void sendMessages(Session session, Queue queue) throws Exception {
+        MessageProducer producer = session.createProducer(queue);
+        byte[] payload = new byte[MSG_SIZE];
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            BytesMessage message = session.createBytesMessage();
+            message.writeBytes(payload);
+            producer.send(message);
+        }
+        producer.close();
+    }
+
+    /*
+     * Credit already granted when the limit is reached is not revoked, so the buffer can
+     * briefly exceed the limit by the messages that were in flight.
+     */
+    private void receiveAll(JmsMessageConsumer consumer, long allowed) throws Exception {
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            Message message = consumer.receive(5000);
+            assertNotNull("Consumer stalled after " + i + " messages", message);
+            assertTrue("Buffered " + consumer.getPrefetchedBytes() + " bytes",
+                consumer.getPrefetchedBytes() <= allowed);
+        }
+    }
+
+    private void assertWithinLimit(JmsConnection connection, long allowed) {
+        assertTrue("Buffered " + connection.getPrefetchedBytes() + " bytes",
+            connection.getPrefetchedBytes() <= allowed);
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.JmsMessageConsumer;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.test.support.Wait;
+
+import java.util.List;
+
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.broker.jmx.QueueViewMBean;
+import org.junit.Test;
+
+/**
+ * Test the batch receive methods of the JmsMessageConsumer.
+ */
+public class JmsReceiveBatchTest extends AmqpTestSupport {
+
+    private final int MSG_COUNT = 500;
+
+    @Test(timeout = 60000)
+    public void testReceiveBatchReturnsAllMessagesInOrder() throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        sendIndexedMessages(session, queue, MSG_COUNT);
+
+        int received = 0;
+        while (received < MSG_COUNT) {
+            List<Message> batch = consumer.receiveBatch(100, 5000);
+            assertFalse("Failed to receive a batch after " + received + " messages", batch.isEmpty());
+            assertTrue(batch.size() <= 100);
+            for (Message message : batch) {
+                assertEquals(received++, message.getIntProperty("index"));
+            }
+        }
+
+        assertTrue(consumer.receiveBatch(100, 0).isEmpty());
+        assertQueueSize(0);
+    }
+
+    @Test(timeout = 60000)
+    public void testReceiveBatchTimesOutWhenEmpty() throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        assertTrue(consumer.receiveBatch(10, 100).isEmpty());
+    }
+
+    @Test(timeout = 60000)
+    public void testReceiveBatchInTransactionIsRedeliveredOnRollback() throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        sendToAmqQueue(10);
+        assertQueueSize(10);
+
+        int received = 0;
+        while (received < 10) {
+            List<Message> batch = consumer.receiveBatch(10, 5000);
+            assertFalse(batch.isEmpty());
+            received += batch.size();
+        }
+        session.rollback();
+        assertQueueSize(10);
+
+        received = 0;
+        while (received < 10) {
+            List<Message> batch = consumer.receiveBatch(10, 5000);
+            assertFalse(batch.isEmpty());
+            received += batch.size();
+        }
+        session.commit();
+        assertQueueSize(0);
+    }
+
+    @Test(timeout = 60000)
+    public void testReceiveBatchWithClientAck() throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+
+        sendToAmqQueue(10);
+
+        Message last = null;
+        int received = 0;
+        while (received < 10) {
+            List<Message> batch = consumer.receiveBatch(10, 5000);
+            assertFalse(batch.isEmpty());
+            received += batch.size();
+            last = batch.get(batch.size() - 1);
+        }
+        assertQueueSize(10);
+
+        last.acknowledge();
+        assertQueueSize(0);
+    }
+
+    private void sendIndexedMessages(Session session, Queue queue, int count) throws Exception {
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < count; ++i) {
+            Message message = session.createMessage();
+            message.setIntProperty("index", i);
+            producer.send(message);
+        }
+        producer.close();
+    }
+
+    private void assertQueueSize(final int expected) throws Exception {
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertTrue("Queue size never reached " + expected, Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getQueueSize() == expected;
+            }
+        }));
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import io.neutronjms.jms.JmsMessageConsumer;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.util.WaitStrategy;
+
+import java.net.URI;
+
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.junit.Test;
+
+/**
+ * Test synchronous receive with the configurable wait strategies.
+ */
+public class JmsReceiveWaitStrategyTest extends AmqpTestSupport {
+
+    private final int MSG_COUNT = 10;
+
+    @Test(timeout = 60000)
+    public void testStrategyConfiguredOnConnection() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.receiveWaitStrategy=spin-park&jms.receiveSpinCount=500"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+        assertEquals(WaitStrategy.SPIN_PARK, consumer.getWaitStrategy().getName());
+
+        sendToAmqQueue(MSG_COUNT);
+
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            assertNotNull(consumer.receive(5000));
+        }
+        assertNull(consumer.receive(50));
+    }
+
+    @Test(timeout = 60000)
+    public void testStrategySetOnConsumer() throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+        assertEquals(WaitStrategy.BLOCKING, consumer.getWaitStrategy().getName());
+        consumer.setWaitStrategy(WaitStrategy.create(WaitStrategy.BUSY_SPIN, 0));
+
+        sendToAmqQueue(MSG_COUNT);
+
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            assertNotNull(consumer.receive());
+        }
+        assertNull(consumer.receive(50));
+    }
+}
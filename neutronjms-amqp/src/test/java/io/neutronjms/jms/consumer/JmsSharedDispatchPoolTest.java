@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.test.support.AmqpTestSupport;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.junit.Test;
+
+/**
+ * Test MessageListener dispatch from many Sessions on a shared dispatch pool.
+ */
+public class JmsSharedDispatchPoolTest extends AmqpTestSupport {
+
+    private final int SESSION_COUNT = 50;
+    private final int MSG_COUNT = 20;
+
+    @Test(timeout = 60000)
+    public void testListenersOnManySessionsShareThePool() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.dispatchPoolSize=2"));
+        connection.start();
+
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        final AtomicBoolean outOfOrder = new AtomicBoolean();
+        final CountDownLatch received = new CountDownLatch(SESSION_COUNT * MSG_COUNT);
+
+        for (int i = 0; i < SESSION_COUNT; ++i) {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue(name.getMethodName() + "." + i);
+            MessageConsumer consumer = session.createConsumer(queue);
+            consumer.setMessageListener(new MessageListener() {
+
+                private int expected;
+
+                @Override
+                public void onMessage(Message message) {
+                    threads.add(Thread.currentThread());
+                    try {
+                        if (message.getIntProperty("index") != expected++) {
+                            outOfOrder.set(true);
+                        }
+                    } catch (Exception e) {
+                        outOfOrder.set(true);
+                    }
+                    received.countDown();
+                }
+            });
+        }
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        for (int i = 0; i < SESSION_COUNT; ++i) {
+            MessageProducer producer = session.createProducer(session.createQueue(name.getMethodName() + "." + i));
+            for (int j = 0; j < MSG_COUNT; ++j) {
+                Message message = session.createMessage();
+                message.setIntProperty("index", j);
+                producer.send(message);
+            }
+            producer.close();
+        }
+
+        assertTrue("Not all messages were dispatched", received.await(30, TimeUnit.SECONDS));
+        assertFalse("Messages were dispatched out of order", outOfOrder.get());
+        assertTrue("Used more threads than the pool size: " + threads.size(), threads.size() <= 2);
+    }
+
+    @Test(timeout = 60000)
+    public void testPoolOfOneRunsAllSessionsOnOneThread() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.dispatchPoolSize=1"));
+        connection.start();
+
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        final CountDownLatch received = new CountDownLatch(2);
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageConsumer consumer = session.createConsumer(queue);
+        consumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                threads.add(Thread.currentThread());
+                received.countDown();
+            }
+        });
+
+        Session other = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer otherConsumer = other.createConsumer(queue);
+        otherConsumer.setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                threads.add(Thread.currentThread());
+                received.countDown();
+            }
+        });
+
+        sendToAmqQueue(2);
+
+        assertTrue(received.await(30, TimeUnit.SECONDS));
+        assertEquals(1, threads.size());
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.JmsMessageConsumer;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.test.support.Wait;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.broker.jmx.QueueViewMBean;
+import org.junit.Test;
+
+/**
+ * Test that a stopped connection holds back credit instead of buffering messages.
+ */
+public class JmsStoppedConsumerTest extends AmqpTestSupport {
+
+    private static final int PREFETCH = 10;
+    private static final int MSG_COUNT = 50;
+
+    @Test(timeout = 60000)
+    public void testStoppedConsumerOnlyBuffersGrantedCredit() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.prefetchPolicy.all=" + PREFETCH));
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+        sendMessages(session, queue);
+
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertTrue(Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getInFlightCount() == PREFETCH;
+            }
+        }));
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(PREFETCH, proxy.getInFlightCount());
+
+        connection.start();
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            assertNotNull("Missing message " + i, consumer.receive(5000));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testStopWithholdsCreditUntilStarted() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.prefetchPolicy.all=" + PREFETCH));
+        connection.start();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageConsumer consumer = (JmsMessageConsumer) session.createConsumer(queue);
+        assertFalse(consumer.isCreditWithheld());
+
+        connection.stop();
+        assertTrue(consumer.isCreditWithheld());
+        sendMessages(session, queue);
+
+        connection.start();
+        assertFalse(consumer.isCreditWithheld());
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            assertNotNull("Missing message " + i, consumer.receive(5000));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testListenerReceivesMessagesHeldWhileStopped() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.prefetchPolicy.all=" + PREFETCH));
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        sendMessages(session, queue);
+
+        final CountDownLatch received = new CountDownLatch(MSG_COUNT);
+        session.createConsumer(queue).setMessageListener(new MessageListener() {
+
+            @Override
+            public void onMessage(Message message) {
+                received.countDown();
+            }
+        });
+
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(MSG_COUNT, received.getCount());
+
+        connection.start();
+        assertTrue(received.await(30, TimeUnit.SECONDS));
+    }
+
+    private void sendMessages(Session session, Queue queue) throws Exception {
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            producer.send(session.createTextMessage("Message: " + i));
+        }
+        producer.close();
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.producer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.JmsConnection;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.test.support.Wait;
+
+import java.net.URI;
+
+import javax.jms.DeliveryMode;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.apache.activemq.broker.jmx.QueueViewMBean;
+import org.junit.Test;
+
+/**
+ * Test sends that complete asynchronously within a bounded in-flight window.
+ */
+public class JmsAsyncSendWindowTest extends AmqpTestSupport {
+
+    private final int MSG_COUNT = 500;
+
+    @Test(timeout = 60000)
+    public void testNonPersistentSendsCompleteWithinWindow() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.maxInFlightAsyncSends=10"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageProducer producer = session.createProducer(queue);
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            producer.send(session.createTextMessage("Message: " + i));
+            assertTrue(((JmsConnection) connection).getInFlightAsyncSendCount() <= 10);
+        }
+
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertTrue("Not all messages arrived", Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getQueueSize() == MSG_COUNT;
+            }
+        }));
+
+        assertEquals(0, ((JmsConnection) connection).getInFlightAsyncSendCount());
+        assertEquals(0, ((JmsConnection) connection).getInFlightAsyncSendBytes());
+    }
+
+    @Test(timeout = 60000)
+    public void testReusedMessageWithoutCopyKeepsEachSendIntact() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() +
+            "?jms.maxInFlightAsyncSendBytes=65536&jms.copyMessageOnSend=false"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageProducer producer = session.createProducer(queue);
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        TextMessage message = session.createTextMessage();
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            message.setText("Message: " + i);
+            message.setIntProperty("index", i);
+            producer.send(message);
+        }
+
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            TextMessage received = (TextMessage) consumer.receive(5000);
+            assertNotNull(received);
+            assertEquals("Message: " + i, received.getText());
+            assertEquals(i, received.getIntProperty("index"));
+        }
+    }
+}
@@ -21,6 +21,8 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import io.neutronjms.test.support.AmqpTestSupport;
 
+import java.net.URI;
+
 import javax.jms.DeliveryMode;
 import javax.jms.JMSSecurityException;
 import javax.jms.Message;
@@ -72,6 +74,35 @@ public class JmsMessageProducerTest extends AmqpTestSupport {
         assertEquals(1, proxy.getQueueSize());
     }
 
+    @Test(timeout = 60000)
+    public void testSendWithoutCopyLeavesMessageWritable() throws Exception {
+        connection = createAmqpConnection(new URI(getBrokerAmqpConnectionURI() + "?jms.copyMessageOnSend=false"));
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        MessageProducer producer = session.createProducer(queue);
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        TextMessage message = session.createTextMessage("first");
+        message.setIntProperty("index", 1);
+        producer.send(message);
+
+        message.setText("second");
+        message.setIntProperty("index", 2);
+        producer.send(message);
+
+        TextMessage received = (TextMessage) consumer.receive(5000);
+        assertNotNull(received);
+        assertEquals("first", received.getText());
+        assertEquals(1, received.getIntProperty("index"));
+
+        received = (TextMessage) consumer.receive(5000);
+        assertNotNull(received);
+        assertEquals("second", received.getText());
+        assertEquals(2, received.getIntProperty("index"));
+    }
+
     @Test
     public void testSendWorksAfterConnectionStopped() throws Exception {
         connection = createAmqpConnection();
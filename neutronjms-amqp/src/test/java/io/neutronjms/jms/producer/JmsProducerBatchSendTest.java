@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.producer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.JmsMessageProducer;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.test.support.Wait;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.apache.activemq.broker.jmx.QueueViewMBean;
+import org.junit.Test;
+
+/**
+ * Test sending a batch of messages from a JmsMessageProducer as a single operation.
+ */
+public class JmsProducerBatchSendTest extends AmqpTestSupport {
+
+    private final int BATCH_SIZE = 100;
+
+    @Test(timeout = 60000)
+    public void testPersistentBatchSend() throws Exception {
+        doTestBatchSend(DeliveryMode.PERSISTENT);
+    }
+
+    @Test(timeout = 60000)
+    public void testNonPersistentBatchSend() throws Exception {
+        doTestBatchSend(DeliveryMode.NON_PERSISTENT);
+    }
+
+    private void doTestBatchSend(int deliveryMode) throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageProducer producer = (JmsMessageProducer) session.createProducer(queue);
+        producer.setDeliveryMode(deliveryMode);
+
+        List<TextMessage> batch = createBatch(session);
+        producer.send(batch);
+
+        Set<String> messageIds = new HashSet<String>();
+        for (TextMessage message : batch) {
+            assertNotNull(message.getJMSMessageID());
+            assertEquals(deliveryMode, message.getJMSDeliveryMode());
+            messageIds.add(message.getJMSMessageID());
+        }
+        assertEquals(BATCH_SIZE, messageIds.size());
+
+        assertQueueSize(BATCH_SIZE);
+
+        MessageConsumer consumer = session.createConsumer(queue);
+        for (int i = 0; i < BATCH_SIZE; ++i) {
+            Message received = consumer.receive(5000);
+            assertNotNull(received);
+            assertEquals(i, received.getIntProperty("index"));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchSendInTransaction() throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageProducer producer = (JmsMessageProducer) session.createProducer(queue);
+
+        producer.send(createBatch(session));
+        session.rollback();
+
+        producer.send(createBatch(session));
+        session.commit();
+
+        assertQueueSize(BATCH_SIZE);
+    }
+
+    private List<TextMessage> createBatch(Session session) throws Exception {
+        List<TextMessage> batch = new ArrayList<TextMessage>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; ++i) {
+            TextMessage message = session.createTextMessage("Message: " + i);
+            message.setIntProperty("index", i);
+            batch.add(message);
+        }
+        return batch;
+    }
+
+    private void assertQueueSize(final int expected) throws Exception {
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertTrue("Queue size never reached " + expected, Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getQueueSize() == expected;
+            }
+        }));
+    }
+}
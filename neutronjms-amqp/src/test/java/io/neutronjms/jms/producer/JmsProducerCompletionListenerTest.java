@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.producer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.JmsCompletionListener;
+import io.neutronjms.jms.JmsMessageProducer;
+import io.neutronjms.test.support.AmqpTestSupport;
+import io.neutronjms.test.support.Wait;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.broker.jmx.QueueViewMBean;
+import org.junit.Test;
+
+/**
+ * Test sends that report their completion to a JmsCompletionListener.
+ */
+public class JmsProducerCompletionListenerTest extends AmqpTestSupport {
+
+    private final int MSG_COUNT = 500;
+
+    @Test(timeout = 60000)
+    public void testPersistentSendsCompleteInOrder() throws Exception {
+        doTestSendsCompleteInOrder(DeliveryMode.PERSISTENT);
+    }
+
+    @Test(timeout = 60000)
+    public void testNonPersistentSendsCompleteInOrder() throws Exception {
+        doTestSendsCompleteInOrder(DeliveryMode.NON_PERSISTENT);
+    }
+
+    private void doTestSendsCompleteInOrder(int deliveryMode) throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageProducer producer = (JmsMessageProducer) session.createProducer(queue);
+        producer.setDeliveryMode(deliveryMode);
+
+        final List<Integer> completed = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(MSG_COUNT);
+        final AtomicBoolean failed = new AtomicBoolean();
+        final Thread sender = Thread.currentThread();
+
+        JmsCompletionListener listener = new JmsCompletionListener() {
+
+            @Override
+            public void onCompletion(Message message) {
+                try {
+                    if (Thread.currentThread() == sender) {
+                        failed.set(true);
+                    }
+                    completed.add(message.getIntProperty("index"));
+                } catch (JMSException e) {
+                    failed.set(true);
+                }
+                done.countDown();
+            }
+
+            @Override
+            public void onException(Message message, Exception exception) {
+                failed.set(true);
+                done.countDown();
+            }
+        };
+
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            Message message = session.createTextMessage("Message: " + i);
+            message.setIntProperty("index", i);
+            producer.send(message, listener);
+        }
+
+        assertTrue("Not all sends completed", done.await(30, TimeUnit.SECONDS));
+        assertFalse(failed.get());
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            assertEquals(i, completed.get(i).intValue());
+        }
+
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertTrue("Not all messages arrived", Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getQueueSize() == MSG_COUNT;
+            }
+        }));
+    }
+
+    @Test(timeout = 60000)
+    public void testCommitWaitsForTransactedSends() throws Exception {
+        connection = createAmqpConnection();
+        connection.start();
+
+        Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageProducer producer = (JmsMessageProducer) session.createProducer(queue);
+
+        final AtomicInteger completed = new AtomicInteger();
+        JmsCompletionListener listener = new JmsCompletionListener() {
+
+            @Override
+            public void onCompletion(Message message) {
+                completed.incrementAndGet();
+            }
+
+            @Override
+            public void onException(Message message, Exception exception) {
+            }
+        };
+
+        for (int i = 0; i < MSG_COUNT; ++i) {
+            producer.send(session.createTextMessage("Message: " + i), listener);
+        }
+        session.commit();
+
+        final QueueViewMBean proxy = getProxyToQueue(name.getMethodName());
+        assertTrue("Not all messages arrived", Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return proxy.getQueueSize() == MSG_COUNT;
+            }
+        }));
+        assertTrue("Not all sends completed", Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return completed.get() == MSG_COUNT;
+            }
+        }));
+    }
+
+    @Test(timeout = 60000, expected = IllegalArgumentException.class)
+    public void testSendWithNullListenerFails() throws Exception {
+        connection = createAmqpConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(name.getMethodName());
+        JmsMessageProducer producer = (JmsMessageProducer) session.createProducer(queue);
+        producer.send(session.createTextMessage(), null);
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms;
+
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+import io.neutronjms.provider.ProviderConstants.ACK_TYPE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+
+/**
+ * Collects the consumed acknowledgments of a Session and sends them to the Provider
+ * in batches, a batch is sent once it reaches the configured size, once its oldest
+ * acknowledgment reaches the configured age, or when explicitly flushed.
+ *
+ * The remote peer may only grant a consumer more credit once it sees acknowledgments,
+ * so a batch is also sent once it holds half of the smallest credit window among the
+ * consumers it covers.  A consumer therefore never waits on acknowledgments that are
+ * being held back for it.
+ */
+final class JmsAckAccumulator {
+
+    private final JmsConnection connection;
+    private final int batchSize;
+    private final long batchTimeout;
+
+    private final Runnable timeoutTask = new Runnable() {
+
+        @Override
+        public void run() {
+            try {
+                flush();
+            } catch (JMSException e) {
+                connection.onAsyncException(e);
+            }
+        }
+    };
+
+    private List<JmsInboundMessageDispatch> pending;
+    private int flushAt;
+    private ScheduledFuture<?> timeout;
+
+    public JmsAckAccumulator(JmsConnection connection, int batchSize, long batchTimeout) {
+        this.connection = connection;
+        this.batchSize = batchSize;
+        this.batchTimeout = batchTimeout;
+    }
+
+    /**
+     * Adds the consumed acknowledgment of the given message to the current batch.
+     *
+     * @param envelope
+     *        the dispatch envelope of the message that was consumed.
+     * @param creditWindow
+     *        the credit window of the consumer of the message, zero or less if its credit
+     *        does not depend on acknowledgments.
+     *
+     * @throws JMSException if the batch filled and could not be sent.
+     */
+    public synchronized void add(JmsInboundMessageDispatch envelope, int creditWindow) throws JMSException {
+        if (pending == null) {
+            pending = new ArrayList<JmsInboundMessageDispatch>(batchSize);
+            flushAt = batchSize;
+        }
+
+        pending.add(envelope);
+        if (creditWindow > 0) {
+            flushAt = Math.min(flushAt, Math.max(1, creditWindow / 2));
+        }
+
+        if (pending.size() >= flushAt) {
+            flush();
+        } else if (timeout == null && batchTimeout > 0) {
+            timeout = connection.getScheduler().schedule(timeoutTask, batchTimeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends any acknowledgments held in the current batch.
+     *
+     * @throws JMSException if the batch could not be sent.
+     */
+    public synchronized void flush() throws JMSException {
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+
+        if (pending != null && !pending.isEmpty()) {
+            List<JmsInboundMessageDispatch> batch = pending;
+            pending = null;
+            connection.acknowledgeAsync(batch, ACK_TYPE.CONSUMED);
+        }
+    }
+}
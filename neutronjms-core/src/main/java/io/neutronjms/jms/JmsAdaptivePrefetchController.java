@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms;
+
+import io.neutronjms.jms.meta.JmsConsumerInfo;
+
+/**
+ * Sizes the credit window of a consumer to the rate at which it processes messages.
+ *
+ * The consumer reports each message it consumes along with the current depth of its
+ * local buffer.  At a fixed interval the measured processing rate is turned into the
+ * number of messages needed to cover the configured buffer time.  A consumer that has
+ * drained its buffer is starved and its window grows, a consumer whose buffer holds more
+ * than it needs is slow and its window shrinks, always staying within the minimum and
+ * the configured prefetch.  The provider picks up the new window the next time it
+ * replenishes credit.
+ */
+final class JmsAdaptivePrefetchController {
+
+    private static final long SAMPLE_INTERVAL = 100;
+
+    private final JmsConsumerInfo consumerInfo;
+    private final int minimum;
+    private final int maximum;
+    private final long bufferTime;
+
+    private long sampleStart = System.currentTimeMillis();
+    private int consumed;
+
+    public JmsAdaptivePrefetchController(JmsConsumerInfo consumerInfo, int minimum, int maximum, long bufferTime) {
+        this.consumerInfo = consumerInfo;
+        this.maximum = Math.max(1, maximum);
+        this.minimum = Math.max(1, Math.min(minimum, this.maximum));
+        this.bufferTime = bufferTime;
+    }
+
+    /**
+     * @return the credit window a consumer starts with.
+     */
+    public int getInitialWindow() {
+        return minimum;
+    }
+
+    /**
+     * Records consumed messages and adjusts the window once the sample interval has passed.
+     *
+     * @param count
+     *        the number of messages that were just consumed.
+     * @param queueDepth
+     *        the number of messages still waiting in the consumer's local buffer.
+     */
+    public synchronized void onConsumed(int count, int queueDepth) {
+        consumed += count;
+
+        long now = System.currentTimeMillis();
+        long elapsed = now - sampleStart;
+        if (elapsed < SAMPLE_INTERVAL) {
+            return;
+        }
+
+        double rate = (double) consumed / elapsed;
+        int desired = clamp((long) Math.ceil(rate * bufferTime));
+        int window = consumerInfo.getCreditWindow();
+
+        if (queueDepth == 0) {
+            window = clamp(Math.max(desired, (long) window * 2));
+        } else if (queueDepth > desired) {
+            window = clamp(Math.max(desired, window / 2));
+        }
+
+        consumerInfo.setCreditWindow(window);
+
+        sampleStart = now;
+        consumed = 0;
+    }
+
+    private int clamp(long value) {
+        return (int) Math.max(minimum, Math.min(maximum, value));
+    }
+}
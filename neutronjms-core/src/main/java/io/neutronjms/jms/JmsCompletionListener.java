@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms;
+
+import javax.jms.Message;
+
+/**
+ * Listener that is notified when a send started with one of the asynchronous send
+ * methods of a JmsMessageProducer completes, modeled on the JMS 2.0 CompletionListener.
+ *
+ * Listeners are called in the order that the messages were sent from a Session, on a
+ * thread owned by the Connection.  A listener must not call back into the Session that
+ * sent the message.
+ *
+ * In a transacted Session a commit waits for the outstanding sends to complete.  If any
+ * of them failed, or they did not all complete within the Connection's close timeout,
+ * the transaction is rolled back and the commit throws a TransactionRolledBackException.
+ */
+public interface JmsCompletionListener {
+
+    /**
+     * Called once the remote peer has accepted the sent message, or for a send that does
+     * not require a response once the message has been written.
+     *
+     * @param message
+     *        the message that was given to the send call.
+     */
+    void onCompletion(Message message);
+
+    /**
+     * Called if the send of the message could not be completed.
+     *
+     * @param message
+     *        the message that was given to the send call.
+     * @param exception
+     *        the error that caused the send to fail.
+     */
+    void onException(Message message, Exception exception);
+
+}
@@ -29,21 +29,29 @@ import io.neutronjms.jms.meta.JmsResource;
 import io.neutronjms.jms.meta.JmsSessionId;
 import io.neutronjms.jms.meta.JmsTransactionId;
 import io.neutronjms.provider.AsyncProvider;
+import io.neutronjms.provider.AsyncResult;
 import io.neutronjms.provider.ProviderConstants.ACK_TYPE;
 import io.neutronjms.provider.ProviderFuture;
 import io.neutronjms.provider.ProviderListener;
 import io.neutronjms.util.IdGenerator;
+import io.neutronjms.util.InFlightWindow;
+import io.neutronjms.util.MemoryUsage;
 import io.neutronjms.util.ThreadPoolUtils;
+import io.neutronjms.util.WaitStrategy;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -97,8 +105,37 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
     private IOException firstFailureError;
     private JmsPrefetchPolicy prefetchPolicy = new JmsPrefetchPolicy();
     private boolean messagePrioritySupported;
+    private boolean ringBufferMessageQueue;
+    private boolean zeroCopyReceive;
+    private boolean directDispatch;
+    private long directDispatchMaxBlockTime = 100;
+    private int groupDispatchLanes;
+    private String receiveWaitStrategy = WaitStrategy.BLOCKING;
+    private int receiveSpinCount = WaitStrategy.DEFAULT_SPIN_COUNT;
+    private boolean clientSideSelectors;
+    private long maxPrefetchMemory;
+    private volatile MemoryUsage prefetchMemory;
+    private final Map<JmsConsumerId, JmsMessageConsumer> creditWithheldConsumers =
+        new ConcurrentHashMap<JmsConsumerId, JmsMessageConsumer>();
+    private final Runnable resumeCreditTask = new Runnable() {
+
+        @Override
+        public void run() {
+            resumeWithheldCredit();
+        }
+    };
+    private boolean messageRecycling;
+    private boolean messageRecyclingDebug;
+    private boolean copyMessageOnSend = true;
+    private int maxInFlightAsyncSends;
+    private long maxInFlightAsyncSendBytes;
+    private volatile InFlightWindow asyncSendWindow;
+    private int ackBatchSize = 100;
+    private long ackBatchTimeout = 100;
 
     private final ThreadPoolExecutor executor;
+    private ScheduledExecutorService scheduler;
+    private JmsDispatchScheduler dispatchScheduler;
 
     private URI brokerURI;
     private URI localURI;
@@ -168,6 +205,7 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
 
                 this.sessions.clear();
                 this.tempDestinations.clear();
+                closeAsyncSendWindow();
 
                 if (isConnected() && !failed.get()) {
                     ProviderFuture request = new ProviderFuture();
@@ -199,6 +237,18 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
                 LOG.warn("Error shutting down thread pool: " + executor + ". This exception will be ignored.", e);
             }
 
+            synchronized (this) {
+                if (scheduler != null) {
+                    ThreadPoolUtils.shutdown(scheduler);
+                    scheduler = null;
+                }
+
+                if (dispatchScheduler != null) {
+                    dispatchScheduler.release();
+                    dispatchScheduler = null;
+                }
+            }
+
             if (provider != null) {
                 provider.close();
                 provider = null;
@@ -233,6 +283,8 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         tempDestinations.clear();
         started.set(false);
         connected.set(false);
+
+        closeAsyncSendWindow();
     }
 
     /**
@@ -504,6 +556,61 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         dispatchers.remove(consumerId);
     }
 
+    /**
+     * @return the Connection owned executor used to deliver asynchronous events.
+     */
+    Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * @return the Connection owned scheduler used for deferred tasks, created on first use.
+     */
+    synchronized ScheduledExecutorService getScheduler() throws JMSException {
+        if (closed.get()) {
+            throw new IllegalStateException("The Connection is closed");
+        }
+
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "NeutronJMS Connection Scheduler: ");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return scheduler;
+    }
+
+    /**
+     * @return the shared scheduler that Sessions run asynchronous dispatch on, or null
+     *         if each Session should use its own dispatch thread.
+     */
+    synchronized JmsDispatchScheduler getDispatchScheduler() {
+        return dispatchScheduler;
+    }
+
+    /**
+     * Assigns the shared scheduler that Sessions of this Connection dispatch on, the
+     * Connection releases the scheduler when it is closed.
+     *
+     * @param dispatchScheduler
+     *        the scheduler to use, already acquired on behalf of this Connection.
+     */
+    synchronized void setDispatchScheduler(JmsDispatchScheduler dispatchScheduler) {
+        this.dispatchScheduler = dispatchScheduler;
+    }
+
+    private void closeAsyncSendWindow() {
+        InFlightWindow window = this.asyncSendWindow;
+        if (window != null) {
+            window.close();
+        }
+    }
+
     private void connect() throws JMSException {
         synchronized(this.connectLock) {
             if (isConnected() || closed.get()) {
@@ -518,6 +625,15 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
             this.connected.set(true);
             this.messageFactory = provider.getMessageFactory();
 
+            if (maxInFlightAsyncSends > 0 || maxInFlightAsyncSendBytes > 0) {
+                this.asyncSendWindow = new InFlightWindow(maxInFlightAsyncSends, maxInFlightAsyncSendBytes);
+            }
+
+            this.prefetchMemory = new MemoryUsage(maxPrefetchMemory);
+            if (maxPrefetchMemory > 0) {
+                this.prefetchMemory.addListener(resumeCreditTask);
+            }
+
             // TODO - Advisory Support.
             //
             // Providers should have an interface for adding a listener for temporary
@@ -636,22 +752,116 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         checkClosedOrFailed();
         connect();
 
-        // TODO - We don't currently have a way to say that an operation
-        //        should be done asynchronously.  A send can be done async
-        //        in many cases, such as non-persistent delivery.  We probably
-        //        don't need to do anything here though just have a way to
-        //        configure the provider for async sends which we do in the
-        //        JmsConnectionInfo.  Here we just need to register a listener
-        //        on the request to know when it completes if we want to do
-        //        JMS 2.0 style async sends where we signal a callback, then
-        //        we can manage order of callback events to async senders at
-        //        this level.
         try {
             ProviderFuture request = new ProviderFuture();
             provider.send(envelope, request);
             request.sync();
         } catch (Exception ioe) {
             throw JmsExceptionSupport.create(ioe);
+        } finally {
+            envelope.getMessage().onSendComplete();
+        }
+    }
+
+    /**
+     * Sends a batch of messages to the Provider as a single request, waiting until the
+     * Provider has completed every send in the batch.
+     *
+     * @param envelopes
+     *        the dispatch envelopes of the messages to send.
+     *
+     * @throws JMSException if the Connection is closed or any send in the batch failed.
+     */
+    void send(List<JmsOutboundMessageDispatch> envelopes) throws JMSException {
+        try {
+            checkClosedOrFailed();
+            connect();
+
+            ProviderFuture request = new ProviderFuture();
+            provider.send(envelopes, request);
+            request.sync();
+        } catch (Exception ioe) {
+            throw JmsExceptionSupport.create(ioe);
+        } finally {
+            for (JmsOutboundMessageDispatch envelope : envelopes) {
+                envelope.getMessage().onSendComplete();
+            }
+        }
+    }
+
+    /**
+     * Sends the given message without waiting for the Provider to complete the send.  The
+     * number and combined size of the outstanding asynchronous sends is limited by the
+     * configured in-flight window and this method blocks only when that window is full.
+     * A send that fails after this method returns is reported to the ExceptionListener.
+     *
+     * If no in-flight limits are configured the send waits for the Provider as normal.
+     *
+     * @param envelope
+     *        the outbound message dispatch to send.
+     *
+     * @throws JMSException if the send could not be started.
+     */
+    void sendAsync(JmsOutboundMessageDispatch envelope) throws JMSException {
+        checkClosedOrFailed();
+        connect();
+
+        InFlightWindow window = this.asyncSendWindow;
+        if (window == null) {
+            send(envelope);
+        } else {
+            doSendAsync(envelope, window, null);
+        }
+    }
+
+    /**
+     * Sends the given message without waiting for the Provider to complete the send, the
+     * outcome of the send is instead passed to the given AsyncResult.  If an in-flight
+     * window is configured this method blocks while that window is full.
+     *
+     * @param envelope
+     *        the outbound message dispatch to send.
+     * @param result
+     *        the AsyncResult to signal once the Provider completes the send.
+     *
+     * @throws JMSException if the send could not be started, in which case the given
+     *                      AsyncResult is not signaled.
+     */
+    void send(JmsOutboundMessageDispatch envelope, AsyncResult result) throws JMSException {
+        checkClosedOrFailed();
+        connect();
+
+        doSendAsync(envelope, this.asyncSendWindow, result);
+    }
+
+    private void doSendAsync(JmsOutboundMessageDispatch envelope, InFlightWindow window, AsyncResult result) throws JMSException {
+        int size = 0;
+        if (window != null) {
+            size = envelope.getMessage().getEstimatedSize();
+            try {
+                // The window is only drained by the Provider, a thread it needs in order
+                // to do that can not wait for room.
+                if (ProviderFuture.isBlockingProhibited()) {
+                    if (!window.tryAcquire(size)) {
+                        throw new IllegalStateException(
+                            "Cannot wait for the full in-flight send window on a thread the Provider needs to drain it");
+                    }
+                } else {
+                    window.acquire(size);
+                }
+            } catch (Exception ex) {
+                envelope.getMessage().onSendComplete();
+                throw JmsExceptionSupport.create(ex);
+            }
+        }
+
+        AsyncSendRequest request = new AsyncSendRequest(envelope, window, size, result);
+        try {
+            provider.send(envelope, request);
+        } catch (Exception ioe) {
+            if (request.complete()) {
+                throw JmsExceptionSupport.create(ioe);
+            }
         }
     }
 
@@ -668,6 +878,63 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         }
     }
 
+    void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException {
+        checkClosedOrFailed();
+        connect();
+
+        try {
+            ProviderFuture request = new ProviderFuture();
+            provider.acknowledge(envelopes, ackType, request);
+            request.sync();
+        } catch (Exception ioe) {
+            throw JmsExceptionSupport.create(ioe);
+        }
+    }
+
+    /**
+     * Acknowledges a batch of messages in a single Provider request without waiting for
+     * the Provider to complete it, any failure is reported as an asynchronous error.
+     *
+     * @param envelopes
+     *        the dispatch envelopes of the messages to acknowledge.
+     * @param ackType
+     *        the type of acknowledgment to apply to every message in the batch.
+     *
+     * @throws JMSException if the Connection is closed or the request could not be started.
+     */
+    void acknowledgeAsync(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException {
+        checkClosedOrFailed();
+        connect();
+
+        try {
+            provider.acknowledge(envelopes, ackType, new AsyncAckResult());
+        } catch (Exception ioe) {
+            throw JmsExceptionSupport.create(ioe);
+        }
+    }
+
+    /**
+     * Acknowledges a message without waiting for the Provider to complete the request,
+     * any failure is reported as an asynchronous error.
+     *
+     * @param envelope
+     *        the dispatch envelope of the message to acknowledge.
+     * @param ackType
+     *        the type of acknowledgment to apply.
+     *
+     * @throws JMSException if the Connection is closed or the request could not be started.
+     */
+    void acknowledgeAsync(JmsInboundMessageDispatch envelope, ACK_TYPE ackType) throws JMSException {
+        checkClosedOrFailed();
+        connect();
+
+        try {
+            provider.acknowledge(envelope, ackType, new AsyncAckResult());
+        } catch (Exception ioe) {
+            throw JmsExceptionSupport.create(ioe);
+        }
+    }
+
     void acknowledge(JmsSessionId sessionId) throws JMSException {
         checkClosedOrFailed();
         connect();
@@ -733,6 +1000,77 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         }
     }
 
+    /**
+     * Asks the Provider to grant consumers the credit they withheld while their buffers
+     * were full, without waiting for the Provider to complete the request.
+     *
+     * @param consumerIds
+     *        the consumers whose buffers have room again.
+     *
+     * @throws JMSException if the Connection is closed or the request could not be started.
+     */
+    void resumeCredit(List<JmsConsumerId> consumerIds) throws JMSException {
+        checkClosedOrFailed();
+        connect();
+
+        try {
+            provider.resumeCredit(consumerIds, new AsyncAckResult());
+        } catch (Exception ioe) {
+            throw JmsExceptionSupport.create(ioe);
+        }
+    }
+
+    /**
+     * Records a consumer that withheld credit while the prefetch memory of this Connection
+     * may be full, it is resumed when the Connection's usage drops below its limit.
+     *
+     * @param consumer
+     *        the consumer that withheld its credit.
+     */
+    void onCreditWithheld(JmsMessageConsumer consumer) {
+        creditWithheldConsumers.put(consumer.getConsumerId(), consumer);
+    }
+
+    /**
+     * @param consumer
+     *        the consumer that no longer needs to be resumed by this Connection.
+     */
+    void onCreditResumed(JmsMessageConsumer consumer) {
+        creditWithheldConsumers.remove(consumer.getConsumerId());
+    }
+
+    /**
+     * Runs each time the prefetch memory of this Connection drops below its limit.  Only
+     * the consumers that withheld credit are visited and all of those that can take more
+     * messages are resumed with a single Provider request.
+     */
+    private void resumeWithheldCredit() {
+        if (creditWithheldConsumers.isEmpty()) {
+            return;
+        }
+
+        List<JmsConsumerId> resumed = null;
+        for (JmsMessageConsumer consumer : creditWithheldConsumers.values()) {
+            if (consumer.prepareResumeCredit()) {
+                if (resumed == null) {
+                    resumed = new ArrayList<JmsConsumerId>();
+                }
+                resumed.add(consumer.getConsumerId());
+                creditWithheldConsumers.remove(consumer.getConsumerId());
+            } else if (!consumer.isCreditWithheld()) {
+                creditWithheldConsumers.remove(consumer.getConsumerId());
+            }
+        }
+
+        if (resumed != null) {
+            try {
+                resumeCredit(resumed);
+            } catch (JMSException ex) {
+                LOG.debug("Could not resume credit for consumers {}: {}", resumed, ex.getMessage());
+            }
+        }
+    }
+
     void pull(JmsConsumerId consumerId, long timeout) throws JMSException {
         checkClosedOrFailed();
         connect();
@@ -863,6 +1201,162 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
         this.messagePrioritySupported = messagePrioritySupported;
     }
 
+    public boolean isRingBufferMessageQueue() {
+        return ringBufferMessageQueue;
+    }
+
+    public void setRingBufferMessageQueue(boolean ringBufferMessageQueue) {
+        this.ringBufferMessageQueue = ringBufferMessageQueue;
+    }
+
+    public boolean isZeroCopyReceive() {
+        return zeroCopyReceive;
+    }
+
+    public void setZeroCopyReceive(boolean zeroCopyReceive) {
+        this.zeroCopyReceive = zeroCopyReceive;
+    }
+
+    public boolean isDirectDispatch() {
+        return directDispatch;
+    }
+
+    public void setDirectDispatch(boolean directDispatch) {
+        this.directDispatch = directDispatch;
+    }
+
+    public long getDirectDispatchMaxBlockTime() {
+        return directDispatchMaxBlockTime;
+    }
+
+    public void setDirectDispatchMaxBlockTime(long directDispatchMaxBlockTime) {
+        this.directDispatchMaxBlockTime = directDispatchMaxBlockTime;
+    }
+
+    public int getGroupDispatchLanes() {
+        return groupDispatchLanes;
+    }
+
+    public void setGroupDispatchLanes(int groupDispatchLanes) {
+        this.groupDispatchLanes = groupDispatchLanes;
+    }
+
+    public String getReceiveWaitStrategy() {
+        return receiveWaitStrategy;
+    }
+
+    public void setReceiveWaitStrategy(String receiveWaitStrategy) {
+        this.receiveWaitStrategy = receiveWaitStrategy;
+    }
+
+    public int getReceiveSpinCount() {
+        return receiveSpinCount;
+    }
+
+    public void setReceiveSpinCount(int receiveSpinCount) {
+        this.receiveSpinCount = receiveSpinCount;
+    }
+
+    public boolean isClientSideSelectors() {
+        return clientSideSelectors;
+    }
+
+    public void setClientSideSelectors(boolean clientSideSelectors) {
+        this.clientSideSelectors = clientSideSelectors;
+    }
+
+    public long getMaxPrefetchMemory() {
+        return maxPrefetchMemory;
+    }
+
+    public void setMaxPrefetchMemory(long maxPrefetchMemory) {
+        this.maxPrefetchMemory = maxPrefetchMemory;
+    }
+
+    /**
+     * @return the combined size in bytes of the messages buffered by this Connection's consumers.
+     */
+    public long getPrefetchedBytes() {
+        MemoryUsage usage = this.prefetchMemory;
+        return usage != null ? usage.getUsage() : 0;
+    }
+
+    MemoryUsage getPrefetchMemory() {
+        return prefetchMemory;
+    }
+
+    public boolean isMessageRecycling() {
+        return messageRecycling;
+    }
+
+    public void setMessageRecycling(boolean messageRecycling) {
+        this.messageRecycling = messageRecycling;
+    }
+
+    public boolean isMessageRecyclingDebug() {
+        return messageRecyclingDebug;
+    }
+
+    public void setMessageRecyclingDebug(boolean messageRecyclingDebug) {
+        this.messageRecyclingDebug = messageRecyclingDebug;
+    }
+
+    public boolean isCopyMessageOnSend() {
+        return copyMessageOnSend;
+    }
+
+    public void setCopyMessageOnSend(boolean copyMessageOnSend) {
+        this.copyMessageOnSend = copyMessageOnSend;
+    }
+
+    public int getMaxInFlightAsyncSends() {
+        return maxInFlightAsyncSends;
+    }
+
+    public void setMaxInFlightAsyncSends(int maxInFlightAsyncSends) {
+        this.maxInFlightAsyncSends = maxInFlightAsyncSends;
+    }
+
+    public long getMaxInFlightAsyncSendBytes() {
+        return maxInFlightAsyncSendBytes;
+    }
+
+    public void setMaxInFlightAsyncSendBytes(long maxInFlightAsyncSendBytes) {
+        this.maxInFlightAsyncSendBytes = maxInFlightAsyncSendBytes;
+    }
+
+    public int getAckBatchSize() {
+        return ackBatchSize;
+    }
+
+    public void setAckBatchSize(int ackBatchSize) {
+        this.ackBatchSize = ackBatchSize;
+    }
+
+    public long getAckBatchTimeout() {
+        return ackBatchTimeout;
+    }
+
+    public void setAckBatchTimeout(long ackBatchTimeout) {
+        this.ackBatchTimeout = ackBatchTimeout;
+    }
+
+    /**
+     * @return the number of asynchronous sends that have not yet been completed by the Provider.
+     */
+    public int getInFlightAsyncSendCount() {
+        InFlightWindow window = this.asyncSendWindow;
+        return window != null ? window.getCount() : 0;
+    }
+
+    /**
+     * @return the estimated size of the asynchronous sends that have not yet been completed.
+     */
+    public long getInFlightAsyncSendBytes() {
+        InFlightWindow window = this.asyncSendWindow;
+        return window != null ? window.getBytes() : 0;
+    }
+
     public long getCloseTimeout() {
         return connectionInfo.getCloseTimeout();
     }
@@ -1116,4 +1610,83 @@ public class JmsConnection implements Connection, TopicConnection, QueueConnecti
             firstFailureError = error;
         }
     }
+
+    /**
+     * Completion for a send that the caller does not wait on, releases the space held in
+     * the in-flight window and passes the outcome on to the given AsyncResult, or reports
+     * a failure to the ExceptionListener when there is no AsyncResult to signal.
+     */
+    private final class AsyncSendRequest implements AsyncResult {
+
+        private final JmsOutboundMessageDispatch envelope;
+        private final InFlightWindow window;
+        private final int size;
+        private final AsyncResult result;
+        private final AtomicBoolean complete = new AtomicBoolean();
+
+        public AsyncSendRequest(JmsOutboundMessageDispatch envelope, InFlightWindow window, int size, AsyncResult result) {
+            this.envelope = envelope;
+            this.window = window;
+            this.size = size;
+            this.result = result;
+        }
+
+        @Override
+        public void onSuccess() {
+            if (complete() && result != null) {
+                result.onSuccess();
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable error) {
+            if (complete()) {
+                if (result != null) {
+                    result.onFailure(error);
+                } else {
+                    onAsyncException(error);
+                }
+            }
+        }
+
+        @Override
+        public boolean isComplete() {
+            return complete.get();
+        }
+
+        /**
+         * @return true if this call completed the request, false if already completed.
+         */
+        public boolean complete() {
+            if (complete.compareAndSet(false, true)) {
+                envelope.getMessage().onSendComplete();
+                if (window != null) {
+                    window.release(size);
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final class AsyncAckResult implements AsyncResult {
+
+        private volatile boolean complete;
+
+        @Override
+        public void onSuccess() {
+            complete = true;
+        }
+
+        @Override
+        public void onFailure(Throwable result) {
+            complete = true;
+            onAsyncException(result);
+        }
+
+        @Override
+        public boolean isComplete() {
+            return complete;
+        }
+    }
 }
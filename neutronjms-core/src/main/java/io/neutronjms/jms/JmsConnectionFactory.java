@@ -25,6 +25,7 @@ import io.neutronjms.util.IdGenerator;
 import io.neutronjms.util.PropertyUtil;
 import io.neutronjms.util.URISupport;
 import io.neutronjms.util.URISupport.CompositeData;
+import io.neutronjms.util.WaitStrategy;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -60,6 +61,24 @@ public class JmsConnectionFactory extends JNDIStorable implements ConnectionFact
     private boolean sendAcksAsync;
     private boolean omitHost;
     private boolean messagePrioritySupported = true;
+    private boolean ringBufferMessageQueue;
+    private boolean zeroCopyReceive;
+    private boolean directDispatch;
+    private long directDispatchMaxBlockTime = 100;
+    private int groupDispatchLanes;
+    private String receiveWaitStrategy = WaitStrategy.BLOCKING;
+    private int receiveSpinCount = WaitStrategy.DEFAULT_SPIN_COUNT;
+    private boolean clientSideSelectors;
+    private long maxPrefetchMemory;
+    private boolean messageRecycling;
+    private boolean messageRecyclingDebug;
+    private boolean copyMessageOnSend = true;
+    private int maxInFlightAsyncSends;
+    private long maxInFlightAsyncSendBytes;
+    private int ackBatchSize = 100;
+    private long ackBatchTimeout = 100;
+    private int dispatchPoolSize;
+    private JmsDispatchScheduler dispatchScheduler;
     private String queuePrefix = "queue://";
     private String topicPrefix = "topic://";
     private String tempQueuePrefix = "temp-queue://";
@@ -240,12 +259,30 @@ public class JmsConnectionFactory extends JNDIStorable implements ConnectionFact
             connection.setUsername(username);
             connection.setPassword(password);
             connection.setBrokerURI(brokerURI);
+            connection.setDispatchScheduler(acquireDispatchScheduler());
             return connection;
         } catch (Exception e) {
             throw JmsExceptionSupport.create(e);
         }
     }
 
+    /**
+     * @return the shared dispatch scheduler acquired for a new Connection, or null when
+     *         each Session should use its own dispatch thread.
+     */
+    synchronized JmsDispatchScheduler acquireDispatchScheduler() {
+        if (dispatchPoolSize <= 0) {
+            return null;
+        }
+
+        if (dispatchScheduler == null || !dispatchScheduler.acquire()) {
+            dispatchScheduler = new JmsDispatchScheduler(dispatchPoolSize);
+            dispatchScheduler.acquire();
+        }
+
+        return dispatchScheduler;
+    }
+
     protected AsyncProvider createProvider(URI brokerURI) throws Exception {
         AsyncProvider result = null;
 
@@ -419,6 +456,348 @@ public class JmsConnectionFactory extends JNDIStorable implements ConnectionFact
         this.messagePrioritySupported = messagePrioritySupported;
     }
 
+    /**
+     * @return the ringBufferMessageQueue configuration option.
+     */
+    public boolean isRingBufferMessageQueue() {
+        return this.ringBufferMessageQueue;
+    }
+
+    /**
+     * Enables the use of a bounded, array backed ring buffer to hold the prefetched
+     * messages of each MessageConsumer.  The ring is sized from the consumer prefetch
+     * and avoids taking a lock when the Provider dispatches new messages.  The ring
+     * buffer is first in first out and so is only used when message priority support
+     * is disabled.
+     *
+     * @param ringBufferMessageQueue the ringBufferMessageQueue to set
+     */
+    public void setRingBufferMessageQueue(boolean ringBufferMessageQueue) {
+        this.ringBufferMessageQueue = ringBufferMessageQueue;
+    }
+
+    /**
+     * @return the zeroCopyReceive configuration option.
+     */
+    public boolean isZeroCopyReceive() {
+        return this.zeroCopyReceive;
+    }
+
+    /**
+     * Controls whether a MessageConsumer hands the application the message instance that
+     * was dispatched from the Provider instead of a copy of it.  When enabled a copy is
+     * only made if the application modifies the received message or the message must be
+     * redelivered, which avoids copying the message body on every receive.
+     *
+     * @param zeroCopyReceive the zeroCopyReceive to set
+     */
+    public void setZeroCopyReceive(boolean zeroCopyReceive) {
+        this.zeroCopyReceive = zeroCopyReceive;
+    }
+
+    /**
+     * @return the directDispatch configuration option.
+     */
+    public boolean isDirectDispatch() {
+        return this.directDispatch;
+    }
+
+    /**
+     * Controls whether a MessageListener may be called directly on the Provider thread
+     * that received the message instead of being handed to the Session's dispatch thread.
+     * Direct dispatch is used only while the Session is the sole owner of a single
+     * consumer, uses AUTO_ACKNOWLEDGE or DUPS_OK_ACKNOWLEDGE and has no other messages
+     * waiting.  A listener called this way must not block, any request that would wait
+     * on the Provider fails instead of stalling the Provider thread, including a send
+     * that finds the in-flight send window full, and a listener that runs for longer than
+     * {@link #setDirectDispatchMaxBlockTime(long)} is moved back to the Session dispatch
+     * thread.
+     *
+     * @param directDispatch the directDispatch to set
+     */
+    public void setDirectDispatch(boolean directDispatch) {
+        this.directDispatch = directDispatch;
+    }
+
+    /**
+     * @return the directDispatchMaxBlockTime configuration option.
+     */
+    public long getDirectDispatchMaxBlockTime() {
+        return this.directDispatchMaxBlockTime;
+    }
+
+    /**
+     * Sets the longest time in milliseconds a directly dispatched MessageListener may take
+     * to handle a message before its consumer reverts to dispatching on the Session thread.
+     * A listener still running after this time is reported as well.
+     *
+     * @param directDispatchMaxBlockTime the directDispatchMaxBlockTime to set
+     */
+    public void setDirectDispatchMaxBlockTime(long directDispatchMaxBlockTime) {
+        this.directDispatchMaxBlockTime = directDispatchMaxBlockTime;
+    }
+
+    /**
+     * @return the groupDispatchLanes configuration option.
+     */
+    public int getGroupDispatchLanes() {
+        return this.groupDispatchLanes;
+    }
+
+    /**
+     * Sets the number of lanes on which a consumer with a MessageListener delivers its
+     * messages in parallel.  Messages are assigned to a lane by their JMSXGroupID so the
+     * messages of a group are still delivered one at a time and in order, and each message
+     * is acknowledged once its lane has delivered it.  Transacted Sessions always deliver
+     * serially, a value of zero or one disables parallel delivery which is the default.
+     *
+     * @param groupDispatchLanes the groupDispatchLanes to set
+     */
+    public void setGroupDispatchLanes(int groupDispatchLanes) {
+        this.groupDispatchLanes = groupDispatchLanes;
+    }
+
+    /**
+     * @return the receiveWaitStrategy configuration option.
+     */
+    public String getReceiveWaitStrategy() {
+        return this.receiveWaitStrategy;
+    }
+
+    /**
+     * Sets how a thread blocked in a synchronous receive waits for the next message.  The
+     * default "blocking" strategy parks the thread until a message arrives.  "spin-park"
+     * polls for the configured spin count before it parks, "spin-yield" polls for the spin
+     * count and then yields between polls, and "busy-spin" polls without pause.  Spinning
+     * avoids the wake-up latency of a parked thread at the cost of a busy CPU while the
+     * consumer waits.  The strategy can also be changed on an individual consumer.
+     *
+     * @param receiveWaitStrategy the receiveWaitStrategy to set
+     */
+    public void setReceiveWaitStrategy(String receiveWaitStrategy) {
+        WaitStrategy.create(receiveWaitStrategy, receiveSpinCount);
+        this.receiveWaitStrategy = receiveWaitStrategy;
+    }
+
+    /**
+     * @return the receiveSpinCount configuration option.
+     */
+    public int getReceiveSpinCount() {
+        return this.receiveSpinCount;
+    }
+
+    /**
+     * Sets the number of times a spinning receive polls for a message before it yields or
+     * parks, see {@link #setReceiveWaitStrategy(String)}.
+     *
+     * @param receiveSpinCount the receiveSpinCount to set
+     */
+    public void setReceiveSpinCount(int receiveSpinCount) {
+        this.receiveSpinCount = receiveSpinCount;
+    }
+
+    /**
+     * @return the clientSideSelectors configuration option.
+     */
+    public boolean isClientSideSelectors() {
+        return this.clientSideSelectors;
+    }
+
+    /**
+     * Controls whether message selectors are also evaluated in the client.  Consumers then
+     * compile their selector and drop any message that does not match it, which allows
+     * selectors to be used with a remote peer that does not implement them.  Dropped
+     * messages are acknowledged as consumed so that they do not hold back the consumer's
+     * credit.  Independent of this option a topic consumer filters in the client whenever
+     * the Provider reports that the remote peer did not accept its selector, while a queue
+     * consumer is refused unless this option is enabled since the messages it drops are
+     * removed from the queue.
+     *
+     * @param clientSideSelectors the clientSideSelectors to set
+     */
+    public void setClientSideSelectors(boolean clientSideSelectors) {
+        this.clientSideSelectors = clientSideSelectors;
+    }
+
+    /**
+     * @return the maxPrefetchMemory configuration option.
+     */
+    public long getMaxPrefetchMemory() {
+        return this.maxPrefetchMemory;
+    }
+
+    /**
+     * Limits the combined size of the prefetched messages buffered by all the consumers
+     * of a Connection.  While the limit is reached every consumer withholds credit from
+     * the remote peer, and each resumes once the application has consumed enough to bring
+     * the Connection back below the limit.  The per consumer limit is set with the
+     * maxPrefetchBytes option of the prefetch policy.
+     *
+     * By default this value is zero and the Connection does not limit prefetched memory.
+     *
+     * @param maxPrefetchMemory the maxPrefetchMemory to set
+     */
+    public void setMaxPrefetchMemory(long maxPrefetchMemory) {
+        this.maxPrefetchMemory = maxPrefetchMemory;
+    }
+
+    /**
+     * @return the messageRecycling configuration option.
+     */
+    public boolean isMessageRecycling() {
+        return this.messageRecycling;
+    }
+
+    /**
+     * Controls whether the Provider reuses the dispatch envelopes and message instances it
+     * creates for incoming messages.  Each consumer keeps a pool of them which is refilled
+     * once a message is settled with the remote peer, that is once the consumer has moved
+     * past it or the application has acknowledged it.  The messages handed to the
+     * application are copies and are never reused, so this option is ignored when the
+     * zeroCopyReceive option is enabled.
+     *
+     * @param messageRecycling the messageRecycling to set
+     */
+    public void setMessageRecycling(boolean messageRecycling) {
+        this.messageRecycling = messageRecycling;
+    }
+
+    /**
+     * @return the messageRecyclingDebug configuration option.
+     */
+    public boolean isMessageRecyclingDebug() {
+        return this.messageRecyclingDebug;
+    }
+
+    /**
+     * Enables detection of recycled envelopes and messages that are used after they were
+     * released to their pool.  Released instances are marked and are not reused, and any
+     * later access to them throws an IllegalStateException.  Only meant for debugging as
+     * it removes the benefit of recycling.
+     *
+     * @param messageRecyclingDebug the messageRecyclingDebug to set
+     */
+    public void setMessageRecyclingDebug(boolean messageRecyclingDebug) {
+        this.messageRecyclingDebug = messageRecyclingDebug;
+    }
+
+    /**
+     * @return the copyMessageOnSend configuration option.
+     */
+    public boolean isCopyMessageOnSend() {
+        return this.copyMessageOnSend;
+    }
+
+    /**
+     * Controls whether a copy of each Message is made before it is handed to the Provider
+     * for sending.  When disabled the Message instance given to the send call is sent as is
+     * and is held read-only until the Provider has finished with it, afterwards it can be
+     * modified and sent again as normal.  This avoids copying the message body on every
+     * send for applications that create their messages with this client.
+     *
+     * @param copyMessageOnSend the copyMessageOnSend to set
+     */
+    public void setCopyMessageOnSend(boolean copyMessageOnSend) {
+        this.copyMessageOnSend = copyMessageOnSend;
+    }
+
+    /**
+     * @return the maxInFlightAsyncSends configuration option.
+     */
+    public int getMaxInFlightAsyncSends() {
+        return this.maxInFlightAsyncSends;
+    }
+
+    /**
+     * Sets the maximum number of asynchronous sends that a Connection allows to be
+     * outstanding at any time.  When this value or maxInFlightAsyncSendBytes is set
+     * to a value greater than zero a non-transacted send that does not need to wait
+     * for the remote peer returns as soon as it has been handed to the Provider, and
+     * only blocks once the in-flight limit has been reached.  Sends that fail after
+     * returning are reported to the Connection's ExceptionListener.
+     *
+     * By default both limits are zero and every send waits on the Provider.
+     *
+     * @param maxInFlightAsyncSends the maxInFlightAsyncSends to set
+     */
+    public void setMaxInFlightAsyncSends(int maxInFlightAsyncSends) {
+        this.maxInFlightAsyncSends = maxInFlightAsyncSends;
+    }
+
+    /**
+     * @return the maxInFlightAsyncSendBytes configuration option.
+     */
+    public long getMaxInFlightAsyncSendBytes() {
+        return this.maxInFlightAsyncSendBytes;
+    }
+
+    /**
+     * Sets the maximum estimated size in bytes of the asynchronous sends that a Connection
+     * allows to be outstanding at any time, see {@link #setMaxInFlightAsyncSends(int)}.
+     *
+     * @param maxInFlightAsyncSendBytes the maxInFlightAsyncSendBytes to set
+     */
+    public void setMaxInFlightAsyncSendBytes(long maxInFlightAsyncSendBytes) {
+        this.maxInFlightAsyncSendBytes = maxInFlightAsyncSendBytes;
+    }
+
+    /**
+     * @return the ackBatchSize configuration option.
+     */
+    public int getAckBatchSize() {
+        return this.ackBatchSize;
+    }
+
+    /**
+     * Sets the number of consumed message acknowledgments that a Session accumulates
+     * before sending them to the remote peer in a single batch.  Batching is always used
+     * by DUPS_OK_ACKNOWLEDGE sessions and by AUTO_ACKNOWLEDGE sessions when sendAcksAsync
+     * is enabled.  A value of one or less disables batching.
+     *
+     * @param ackBatchSize the ackBatchSize to set
+     */
+    public void setAckBatchSize(int ackBatchSize) {
+        this.ackBatchSize = ackBatchSize;
+    }
+
+    /**
+     * @return the ackBatchTimeout configuration option.
+     */
+    public long getAckBatchTimeout() {
+        return this.ackBatchTimeout;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds that a consumed message acknowledgment may be
+     * held in an incomplete batch before the batch is sent, see {@link #setAckBatchSize(int)}.
+     *
+     * @param ackBatchTimeout the ackBatchTimeout to set
+     */
+    public void setAckBatchTimeout(long ackBatchTimeout) {
+        this.ackBatchTimeout = ackBatchTimeout;
+    }
+
+    /**
+     * @return the dispatchPoolSize configuration option.
+     */
+    public int getDispatchPoolSize() {
+        return this.dispatchPoolSize;
+    }
+
+    /**
+     * Sets the number of threads in a dispatch pool that is shared by every Connection
+     * created from this factory.  When set, the Sessions of those Connections deliver
+     * messages to their MessageListeners on the shared pool, one message at a time per
+     * Session, rather than each Session creating its own dispatch thread.  The default
+     * of zero gives each Session a dedicated dispatch thread.
+     *
+     * @param dispatchPoolSize the dispatchPoolSize to set
+     */
+    public synchronized void setDispatchPoolSize(int dispatchPoolSize) {
+        this.dispatchPoolSize = dispatchPoolSize;
+        this.dispatchScheduler = null;
+    }
+
     /**
      * Returns the prefix applied to Queues that are created by the client.
      *
@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the asynchronous message dispatch of many Sessions on a fixed size pool of
+ * worker threads.
+ *
+ * Each Session is given its own serial executor which queues the Session's work and
+ * schedules itself onto the shared work stealing pool whenever it has work pending.
+ * At most one worker runs a given serial executor at any time so the JMS requirement
+ * that a Session delivers messages serially is preserved, while idle Sessions hold no
+ * thread at all.  A serial executor gives up its worker after a bounded number of tasks
+ * so that one busy Session cannot starve the others.
+ *
+ * The scheduler is reference counted by the Connections that use it and its pool is
+ * shut down once the last of them releases it.
+ */
+final class JmsDispatchScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmsDispatchScheduler.class);
+
+    private static final int MAX_TASKS_PER_TURN = 64;
+
+    private static final AtomicInteger SCHEDULER_COUNT = new AtomicInteger();
+
+    private final ForkJoinPool pool;
+    private int references;
+    private boolean shutdown;
+
+    public JmsDispatchScheduler(int poolSize) {
+        final String prefix = "NeutronJMS Dispatch Scheduler[" + SCHEDULER_COUNT.incrementAndGet() + "] worker: ";
+        this.pool = new ForkJoinPool(poolSize, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName(prefix + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, null, true);
+    }
+
+    /**
+     * Registers a new user of this scheduler.
+     *
+     * @return true if the scheduler can be used, false if it has already been shut down.
+     */
+    public synchronized boolean acquire() {
+        if (shutdown) {
+            return false;
+        }
+
+        references++;
+        return true;
+    }
+
+    /**
+     * Removes a user of this scheduler, shutting down the pool when none remain.
+     */
+    public void release() {
+        synchronized (this) {
+            if (shutdown || --references > 0) {
+                return;
+            }
+            shutdown = true;
+        }
+
+        pool.shutdown();
+    }
+
+    /**
+     * @return the number of worker threads this scheduler runs dispatch work on.
+     */
+    public int getPoolSize() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @return a new Executor that runs its tasks one at a time, in order, on this scheduler.
+     */
+    public Executor createSerialExecutor() {
+        return new SerialExecutor();
+    }
+
+    private final class SerialExecutor implements Executor, Runnable {
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+            schedule();
+        }
+
+        @Override
+        public void run() {
+            try {
+                Runnable task;
+                int count = 0;
+                while (count++ < MAX_TASKS_PER_TURN && (task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        LOG.warn("Dispatch task failed: {}", e.getMessage());
+                        LOG.trace("Dispatch task failure: ", e);
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                if (!tasks.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    pool.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms;
+
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.jms.JMSException;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers the messages of one consumer to its MessageListener on several lanes in
+ * parallel while keeping the messages of each message group in order.
+ *
+ * A message is routed to a lane by the hash of its JMSXGroupID, messages without a group
+ * all use the first lane.  Each lane delivers its messages serially and acknowledges each
+ * one once the listener has returned, so acknowledgments follow the order in which the
+ * lane completes its messages.  With CLIENT_ACKNOWLEDGE a message is only marked delivered
+ * once its lane reaches it, a call to acknowledge therefore covers, for every lane, the
+ * messages up to and including the one that lane is delivering and never messages that
+ * are still waiting in a lane.
+ *
+ * Lanes run on the Connection's shared dispatch scheduler when one is configured and on
+ * a scheduler private to the consumer otherwise.
+ */
+final class JmsGroupDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmsGroupDispatcher.class);
+
+    private static final int MAX_MESSAGES_PER_TURN = 64;
+
+    private final JmsMessageConsumer consumer;
+    private final JmsSession session;
+    private final JmsDispatchScheduler privateScheduler;
+    private final Lane[] lanes;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public JmsGroupDispatcher(JmsMessageConsumer consumer, JmsSession session, int laneCount) {
+        this.consumer = consumer;
+        this.session = session;
+
+        JmsDispatchScheduler scheduler = session.getConnection().getDispatchScheduler();
+        if (scheduler == null) {
+            scheduler = new JmsDispatchScheduler(laneCount);
+            scheduler.acquire();
+            this.privateScheduler = scheduler;
+        } else {
+            this.privateScheduler = null;
+        }
+
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; ++i) {
+            lanes[i] = new Lane(scheduler.createSerialExecutor());
+        }
+    }
+
+    /**
+     * @return the number of lanes messages are spread over.
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Hands a message to the lane of its message group.
+     *
+     * @param envelope
+     *        the dispatch envelope of the message to deliver.
+     */
+    public void dispatch(JmsInboundMessageDispatch envelope) {
+        String groupId = null;
+        try {
+            groupId = envelope.getMessage().getFacade().getGroupId();
+        } catch (JMSException e) {
+            LOG.debug("Could not read the group of message, using the default lane: {}", e.getMessage());
+        }
+
+        Lane lane = lanes[0];
+        if (groupId != null) {
+            lane = lanes[(groupId.hashCode() & Integer.MAX_VALUE) % lanes.length];
+        }
+
+        if (consumer.acknowledgementMode == Session.CLIENT_ACKNOWLEDGE) {
+            envelope.getMessage().setAcknowledgeCallback(lane);
+        }
+
+        lane.add(envelope);
+    }
+
+    /**
+     * Resumes delivery on every lane that holds messages, called when the Session starts.
+     */
+    public void start() {
+        for (Lane lane : lanes) {
+            if (!lane.pending.isEmpty()) {
+                lane.schedule();
+            }
+        }
+    }
+
+    /**
+     * Stops delivery on all lanes, a lane that is calling the listener finishes the
+     * message it is delivering.
+     *
+     * @return the messages that were waiting in a lane and were never delivered.
+     */
+    public List<JmsInboundMessageDispatch> close() {
+        List<JmsInboundMessageDispatch> undelivered = new ArrayList<JmsInboundMessageDispatch>();
+        if (closed.compareAndSet(false, true)) {
+            for (Lane lane : lanes) {
+                JmsInboundMessageDispatch envelope;
+                while ((envelope = lane.pending.poll()) != null) {
+                    undelivered.add(envelope);
+                }
+            }
+
+            if (privateScheduler != null) {
+                privateScheduler.release();
+            }
+        }
+        return undelivered;
+    }
+
+    private final class Lane implements Runnable, Callable<Void> {
+
+        private final Queue<JmsInboundMessageDispatch> pending = new ConcurrentLinkedQueue<JmsInboundMessageDispatch>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Executor executor;
+
+        private volatile Thread thread;
+        private JmsInboundMessageDispatch current;
+        private boolean currentAcked;
+
+        public Lane(Executor executor) {
+            this.executor = executor;
+        }
+
+        public void add(JmsInboundMessageDispatch envelope) {
+            pending.add(envelope);
+            schedule();
+        }
+
+        public void schedule() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            try {
+                JmsInboundMessageDispatch envelope;
+                int count = 0;
+                while (count++ < MAX_MESSAGES_PER_TURN && !closed.get() && session.isStarted() &&
+                       (envelope = pending.poll()) != null) {
+                    deliver(envelope);
+                }
+            } finally {
+                thread = null;
+                scheduled.set(false);
+            }
+
+            if (!pending.isEmpty() && session.isStarted()) {
+                schedule();
+            }
+        }
+
+        private void deliver(JmsInboundMessageDispatch envelope) {
+            current = envelope;
+            currentAcked = false;
+            try {
+                MessageListener listener = consumer.messageListener;
+                if (listener != null) {
+                    listener.onMessage(consumer.copy(envelope));
+                }
+            } catch (Exception e) {
+                session.getConnection().onException(e);
+            } finally {
+                current = null;
+            }
+
+            if (!currentAcked) {
+                try {
+                    consumer.ack(envelope);
+                } catch (JMSException e) {
+                    session.getConnection().onException(e);
+                }
+            }
+        }
+
+        /**
+         * The acknowledge callback of messages in this lane, marks the message the lane is
+         * delivering as delivered before acknowledging the Session when called from the
+         * listener itself.
+         */
+        @Override
+        public Void call() throws Exception {
+            if (session.isClosed()) {
+                throw new javax.jms.IllegalStateException("Session closed.");
+            }
+
+            if (Thread.currentThread() == thread && current != null && !currentAcked) {
+                consumer.ack(current);
+                currentAcked = true;
+            }
+
+            session.acknowledge();
+            return null;
+        }
+    }
+}
@@ -21,43 +21,90 @@ import io.neutronjms.jms.message.JmsInboundMessageDispatch;
 import io.neutronjms.jms.message.JmsMessage;
 import io.neutronjms.jms.meta.JmsConsumerId;
 import io.neutronjms.jms.meta.JmsConsumerInfo;
+import io.neutronjms.jms.selector.JmsSelector;
 import io.neutronjms.provider.AsyncProvider;
 import io.neutronjms.provider.ProviderConstants.ACK_TYPE;
 import io.neutronjms.provider.ProviderFuture;
 import io.neutronjms.util.FifoMessageQueue;
+import io.neutronjms.util.MemoryLimitedMessageQueue;
+import io.neutronjms.util.MemoryUsage;
 import io.neutronjms.util.MessageQueue;
 import io.neutronjms.util.PriorityMessageQueue;
+import io.neutronjms.util.RingBufferMessageQueue;
+import io.neutronjms.util.WaitStrategy;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.jms.IllegalStateException;
+import javax.jms.InvalidSelectorException;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageListener;
 import javax.jms.Session;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * implementation of a JMS Message Consumer
  */
 public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableConsumer, JmsMessageDispatcher {
 
+    private static final Logger LOG = LoggerFactory.getLogger(JmsMessageConsumer.class);
+
+    private static final long DEFAULT_BATCH_LINGER = 1;
+
     protected final JmsSession session;
     protected final JmsConnection connection;
     protected JmsConsumerInfo consumerInfo;
     protected final int acknowledgementMode;
     protected final AtomicBoolean closed = new AtomicBoolean();
-    protected boolean started;
+    protected volatile boolean started;
     protected MessageListener messageListener;
     protected JmsMessageAvailableListener availableListener;
     protected final MessageQueue messageQueue;
+    protected final MemoryUsage prefetchMemory;
+    protected final boolean memoryLimited;
+    private long averageMessageSize;
     protected final Lock lock = new ReentrantLock();
     protected final AtomicBoolean suspendedConnection = new AtomicBoolean();
     protected final AtomicBoolean delivered = new AtomicBoolean();
+    protected JmsAdaptivePrefetchController prefetchController;
+    protected volatile boolean directDispatch;
+    protected volatile JmsGroupDispatcher groupDispatcher;
+    protected volatile WaitStrategy waitStrategy;
+    protected JmsSelector clientSelector;
+
+    private final MessageDeliverTask deliveryTask = new MessageDeliverTask();
+    private final DirectDispatchWatchdog watchdog = new DirectDispatchWatchdog();
+    private final Object creditLock = new Object();
+    private final Runnable resumeCreditTask = new Runnable() {
+
+        @Override
+        public void run() {
+            resumeCredit();
+        }
+    };
+    private final Callable<Void> acknowledgeCallback = new Callable<Void>() {
+
+        @Override
+        public Void call() throws Exception {
+            if (session.isClosed()) {
+                throw new javax.jms.IllegalStateException("Session closed.");
+            }
+            session.acknowledge();
+            return null;
+        }
+    };
 
     /**
      * Create a non-durable MessageConsumer
@@ -90,14 +137,37 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         this.session = session;
         this.connection = session.getConnection();
         this.acknowledgementMode = session.acknowledgementMode();
+        this.directDispatch = connection.isDirectDispatch();
+        try {
+            this.waitStrategy = WaitStrategy.create(connection.getReceiveWaitStrategy(), connection.getReceiveSpinCount());
+        } catch (IllegalArgumentException ex) {
+            throw JmsExceptionSupport.create(ex);
+        }
+
+        JmsPrefetchPolicy policy = this.connection.getPrefetchPolicy();
+        int prefetch = getConfiguredPrefetch(destination, policy);
 
+        MessageQueue queue;
         if (connection.isMessagePrioritySupported()) {
-            this.messageQueue = new PriorityMessageQueue();
+            queue = new PriorityMessageQueue();
+        } else if (connection.isRingBufferMessageQueue()) {
+            queue = new RingBufferMessageQueue(prefetch);
         } else {
-            this.messageQueue = new FifoMessageQueue();
+            queue = new FifoMessageQueue();
         }
 
-        JmsPrefetchPolicy policy = this.connection.getPrefetchPolicy();
+        // When a byte limit is set every buffered message is charged to this consumer and
+        // to its connection, otherwise the queue is used as is.
+        MemoryUsage connectionMemory = connection.getPrefetchMemory();
+        this.prefetchMemory = new MemoryUsage(policy.getMaxPrefetchBytes(), connectionMemory);
+        boolean accounted = prefetchMemory.getLimit() > 0 ||
+            (connectionMemory != null && connectionMemory.getLimit() > 0);
+        if (accounted) {
+            this.messageQueue = new MemoryLimitedMessageQueue(queue, prefetchMemory);
+        } else {
+            this.messageQueue = queue;
+        }
+        this.memoryLimited = accounted && prefetch > 0 && !isBrowser();
 
         this.consumerInfo = new JmsConsumerInfo(consumerId);
         this.consumerInfo.setClientId(connection.getClientID());
@@ -107,16 +177,60 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         this.consumerInfo.setAcknowledgementMode(acknowledgementMode);
         this.consumerInfo.setNoLocal(noLocal);
         this.consumerInfo.setBrowser(isBrowser());
-        this.consumerInfo.setPrefetchSize(getConfiguredPrefetch(destination, policy));
+        this.consumerInfo.setPrefetchSize(prefetch);
+        this.consumerInfo.setMessageRecycling(connection.isMessageRecycling() && !connection.isZeroCopyReceive());
+        this.consumerInfo.setMessageRecyclingDebug(connection.isMessageRecyclingDebug());
+
+        if (selector != null && selector.trim().length() > 0 && connection.isClientSideSelectors()) {
+            this.clientSelector = JmsSelector.compile(selector);
+        }
+
+        if (policy.isAdaptivePrefetch() && prefetch > 0 && !isBrowser()) {
+            this.prefetchController = new JmsAdaptivePrefetchController(consumerInfo,
+                policy.getAdaptivePrefetchMinimum(), prefetch, policy.getAdaptivePrefetchBufferTime());
+            this.consumerInfo.setCreditWindow(prefetchController.getInitialWindow());
+        }
+
+        // Nothing is known about message sizes yet, so a memory limited consumer starts
+        // with a single credit and sizes its window from the messages that arrive.
+        if (memoryLimited) {
+            this.consumerInfo.setCreditWindow(1);
+        }
 
         try {
             this.consumerInfo = session.getConnection().createResource(consumerInfo);
         } catch (JMSException ex) {
             throw ex;
         }
+
+        // The Provider asks for client side filtering when the peer ignored the selector.
+        // Filtering acknowledges the messages it drops, which is only safe when every
+        // subscriber gets its own copy.  On a queue the dropped messages would be lost
+        // to the consumers they were meant for, so unless the application opted in to
+        // client side selectors the consumer is refused.
+        if (clientSelector == null && consumerInfo.isClientSideSelector()) {
+            if (!destination.isTopic()) {
+                connection.destroyResource(consumerInfo);
+                throw new InvalidSelectorException(
+                    "The remote peer does not support the selector on " + destination +
+                    ", enable clientSideSelectors to filter queue messages in the client");
+            }
+
+            try {
+                this.clientSelector = JmsSelector.compile(selector);
+            } catch (JMSException ex) {
+                connection.destroyResource(consumerInfo);
+                throw ex;
+            }
+        }
     }
 
     public void init() throws JMSException {
+        // The Connection resumes the consumers it holds back from its own usage.
+        if (memoryLimited && prefetchMemory.getLimit() > 0) {
+            prefetchMemory.addListener(resumeCreditTask);
+        }
+
         session.add(this);
         try {
             session.getConnection().startResource(consumerInfo);
@@ -158,6 +272,12 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
      * @throws JMSException
      */
     protected void doClose() throws JMSException {
+        try {
+            // Batched acks must reach the remote before the consumer is removed.
+            session.flushAcknowledgements();
+        } catch (JMSException e) {
+            // The messages will be redelivered, which batched acknowledgement allows for.
+        }
         shutdown();
         this.connection.destroyResource(consumerInfo);
     }
@@ -172,6 +292,16 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     protected void shutdown() throws JMSException {
         if (closed.compareAndSet(false, true)) {
             this.session.remove(this);
+            if (groupDispatcher != null) {
+                groupDispatcher.close();
+            }
+            watchdog.cancel();
+            if (memoryLimited) {
+                prefetchMemory.removeListener(resumeCreditTask);
+                connection.onCreditResumed(this);
+            }
+            // Messages left in the buffer no longer count against the Connection.
+            this.messageQueue.clear();
         }
     }
 
@@ -187,7 +317,7 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         sendPullCommand(0);
 
         try {
-            return copy(ack(this.messageQueue.dequeue(-1)));
+            return consume(waitStrategy.dequeue(messageQueue, -1));
         } catch (Exception e) {
             throw JmsExceptionSupport.create(e);
         }
@@ -207,7 +337,7 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
 
         if (timeout > 0) {
             try {
-                return copy(ack(this.messageQueue.dequeue(timeout)));
+                return consume(waitStrategy.dequeue(messageQueue, timeout));
             } catch (InterruptedException e) {
                 throw JmsExceptionSupport.create(e);
             }
@@ -227,7 +357,128 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         checkMessageListener();
         sendPullCommand(-1);
 
-        return copy(ack(this.messageQueue.dequeueNoWait()));
+        return consume(this.messageQueue.dequeueNoWait());
+    }
+
+    /**
+     * Receives up to the given number of messages, waiting up to the given timeout for
+     * the first one to arrive and then lingering briefly for more.
+     *
+     * @param maxMessages
+     *        the maximum number of messages to return.
+     * @param timeout
+     *        the time in milliseconds to wait for the first message, -1 waits forever and
+     *        0 returns immediately if no message is available.
+     *
+     * @return the received messages, empty if the timeout expired or the consumer was closed.
+     *
+     * @throws JMSException if an error occurs while receiving or acknowledging the messages.
+     */
+    public List<Message> receiveBatch(int maxMessages, long timeout) throws JMSException {
+        return receiveBatch(maxMessages, timeout, DEFAULT_BATCH_LINGER);
+    }
+
+    /**
+     * Receives up to the given number of messages, waiting up to the given timeout for
+     * the first one to arrive and then up to the linger time for the batch to fill.
+     *
+     * The messages are taken from the prefetch buffer as a group and acknowledged with
+     * a single request to the Provider.
+     *
+     * @param maxMessages
+     *        the maximum number of messages to return.
+     * @param timeout
+     *        the time in milliseconds to wait for the first message, -1 waits forever and
+     *        0 returns immediately if no message is available.
+     * @param linger
+     *        the time in milliseconds to wait for more messages once the first arrived.
+     *
+     * @return the received messages, empty if the timeout expired or the consumer was closed.
+     *
+     * @throws JMSException if an error occurs while receiving or acknowledging the messages.
+     */
+    public List<Message> receiveBatch(int maxMessages, long timeout, long linger) throws JMSException {
+        checkClosed();
+        checkMessageListener();
+        if (maxMessages <= 0) {
+            throw new IllegalArgumentException("maxMessages must be greater than zero");
+        }
+
+        // A pull uses zero to wait forever and a negative value to not wait at all.
+        sendPullCommand(timeout == -1 ? 0 : timeout == 0 ? -1 : timeout);
+
+        List<JmsInboundMessageDispatch> envelopes = new ArrayList<JmsInboundMessageDispatch>();
+        try {
+            JmsInboundMessageDispatch first = waitStrategy.dequeue(messageQueue, timeout);
+            if (first == null) {
+                return new ArrayList<Message>(0);
+            }
+
+            envelopes.add(first);
+            this.messageQueue.drainTo(envelopes, maxMessages - 1);
+
+            if (linger > 0 && envelopes.size() < maxMessages) {
+                long deadline = System.currentTimeMillis() + linger;
+                long remaining = linger;
+                while (remaining > 0 && envelopes.size() < maxMessages) {
+                    JmsInboundMessageDispatch next = waitStrategy.dequeue(messageQueue, remaining);
+                    if (next == null) {
+                        break;
+                    }
+                    envelopes.add(next);
+                    this.messageQueue.drainTo(envelopes, maxMessages - envelopes.size());
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (envelopes.isEmpty()) {
+                throw JmsExceptionSupport.create(e);
+            }
+        }
+
+        List<Message> messages = new ArrayList<Message>(envelopes.size());
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            messages.add(copy(envelope));
+        }
+
+        ackBatch(envelopes);
+        return messages;
+    }
+
+    private void ackBatch(final List<JmsInboundMessageDispatch> envelopes) throws JMSException {
+        onConsumed(envelopes.size());
+
+        List<JmsInboundMessageDispatch> deliveredAcks = new ArrayList<JmsInboundMessageDispatch>(envelopes.size());
+        List<JmsInboundMessageDispatch> consumedAcks = new ArrayList<JmsInboundMessageDispatch>(envelopes.size());
+
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            if (envelope.getMessage() == null) {
+                continue;
+            }
+
+            if (envelope.getMessage().getAcknowledgeCallback() != null || session.isTransacted()) {
+                deliveredAcks.add(envelope);
+            } else {
+                consumedAcks.add(envelope);
+            }
+        }
+
+        if (!deliveredAcks.isEmpty()) {
+            session.acknowledge(deliveredAcks, ACK_TYPE.DELIVERED);
+            delivered.set(true);
+        }
+
+        if (!consumedAcks.isEmpty()) {
+            checkClosed();
+            try {
+                session.acknowledge(consumedAcks, ACK_TYPE.CONSUMED);
+            } catch (JMSException ex) {
+                session.onException(ex);
+                throw ex;
+            }
+            delivered.set(true);
+        }
     }
 
     protected void checkClosed() throws IllegalStateException {
@@ -240,11 +491,33 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         if (envelope == null || envelope.getMessage() == null) {
             return null;
         }
+
+        if (connection.isZeroCopyReceive()) {
+            // Hand over the dispatched instance, the envelope takes a private copy
+            // only if the application modifies it or it is later redelivered.
+            JmsMessage message = envelope.getMessage();
+            message.setSharedEnvelope(envelope);
+            return message;
+        }
+
         return envelope.getMessage().copy();
     }
 
+    /**
+     * Copies the dispatched message for the application and then acknowledges it.  The
+     * copy must be taken first as the Provider may recycle the envelope and its message
+     * as soon as the acknowledgment settles the delivery.
+     */
+    JmsMessage consume(final JmsInboundMessageDispatch envelope) throws JMSException {
+        JmsMessage message = copy(envelope);
+        ack(envelope);
+        return message;
+    }
+
     JmsInboundMessageDispatch ack(final JmsInboundMessageDispatch envelope) throws JMSException {
         if (envelope != null && envelope.getMessage() != null) {
+            onConsumed(1);
+
             JmsMessage message = envelope.getMessage();
             if (message.getAcknowledgeCallback() != null || session.isTransacted()) {
                 // Message has been received by the app.. expand the credit
@@ -259,6 +532,12 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         return envelope;
     }
 
+    private void onConsumed(int count) {
+        if (prefetchController != null) {
+            prefetchController.onConsumed(count, messageQueue.size());
+        }
+    }
+
     private void doAck(final JmsInboundMessageDispatch envelope) throws JMSException {
         checkClosed();
         try {
@@ -278,39 +557,34 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
      */
     @Override
     public void onMessage(final JmsInboundMessageDispatch envelope) {
+        if (memoryLimited) {
+            updateCreditWindow(envelope.getSize());
+        }
+
+        if (clientSelector != null && !isSelected(envelope)) {
+            return;
+        }
+
+        if (directDispatch && deliverDirect(envelope)) {
+            return;
+        }
+
         lock.lock();
         try {
             if (acknowledgementMode == Session.CLIENT_ACKNOWLEDGE) {
-                envelope.getMessage().setAcknowledgeCallback(new Callable<Void>() {
-                    @Override
-                    public Void call() throws Exception {
-                        if (session.isClosed()) {
-                            throw new javax.jms.IllegalStateException("Session closed.");
-                        }
-                        session.acknowledge();
-                        return null;
-                    }
-                });
+                envelope.getMessage().setAcknowledgeCallback(acknowledgeCallback);
             }
             this.messageQueue.enqueue(envelope);
         } finally {
             lock.unlock();
         }
 
+        if (memoryLimited && prefetchMemory.isFull()) {
+            withholdCredit();
+        }
+
         if (this.messageListener != null && this.started) {
-            session.getExecutor().execute(new Runnable() {
-                @Override
-                public void run() {
-                    JmsInboundMessageDispatch envelope;
-                    while (session.isStarted() && (envelope = messageQueue.dequeueNoWait()) != null) {
-                        try {
-                            messageListener.onMessage(copy(ack(envelope)));
-                        } catch (Exception e) {
-                            session.getConnection().onException(e);
-                        }
-                    }
-                }
-            });
+            deliveryTask.schedule();
         } else {
             if (availableListener != null) {
                 availableListener.onMessageAvailable(this);
@@ -318,22 +592,163 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         }
     }
 
+    /**
+     * Evaluates the client side selector against a newly arrived message.  A message that
+     * does not match is acknowledged as consumed so that the remote peer keeps granting
+     * credit to this consumer.
+     *
+     * @return true if the message should be delivered to this consumer.
+     */
+    private boolean isSelected(JmsInboundMessageDispatch envelope) {
+        JmsMessage message = envelope.getMessage();
+        if (message == null) {
+            return true;
+        }
+
+        boolean matched;
+        try {
+            matched = clientSelector.matches(message.getFacade());
+        } catch (JMSException ex) {
+            LOG.debug("Selector of consumer {} could not be evaluated: {}", getConsumerId(), ex.getMessage());
+            matched = false;
+        }
+
+        if (!matched) {
+            try {
+                session.acknowledgeAsync(envelope);
+            } catch (JMSException ex) {
+                session.onException(ex);
+            }
+        }
+
+        return matched;
+    }
+
+    /**
+     * @return true if this consumer evaluates its message selector in the client.
+     */
+    public boolean isClientSideSelector() {
+        return clientSelector != null;
+    }
+
+    /**
+     * Calls the MessageListener on the delivering thread when nothing is queued ahead of
+     * the message and the Session allows it.  The listener must not wait on the Provider
+     * while it runs on the Provider's thread, so acknowledgments are sent asynchronously
+     * and anything the listener does that would wait on the Provider fails instead, be it
+     * a blocking request, a full in-flight send window or an outstanding send.  A listener
+     * that takes too long is moved back to the Session executor for all later messages,
+     * and one that is still running is reported by a watchdog.
+     *
+     * @return true if the message was dispatched, false if it must be queued.
+     */
+    private boolean deliverDirect(JmsInboundMessageDispatch envelope) {
+        MessageListener listener = this.messageListener;
+        if (listener == null || groupDispatcher != null || !started || !session.isDirectDispatchAllowed() ||
+            !messageQueue.isEmpty() || deliveryTask.isScheduled()) {
+            return false;
+        }
+
+        JmsMessage message = null;
+        try {
+            checkClosed();
+            onConsumed(1);
+            message = copy(envelope);
+            session.acknowledgeAsync(envelope);
+            delivered.set(true);
+        } catch (JMSException ex) {
+            session.onException(ex);
+            return true;
+        }
+
+        long start = System.nanoTime();
+        watchdog.enter(start);
+        ProviderFuture.setBlockingProhibited(true);
+        try {
+            listener.onMessage(message);
+        } catch (Exception e) {
+            session.getConnection().onException(e);
+        } finally {
+            ProviderFuture.setBlockingProhibited(false);
+            watchdog.exit();
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (elapsed > connection.getDirectDispatchMaxBlockTime() && !watchdog.isReported(start)) {
+            LOG.warn("MessageListener of consumer {} blocked the delivery thread for {} ms, " +
+                     "reverting to dispatch on the Session thread.", getConsumerId(), elapsed);
+            directDispatch = false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the strategy a synchronous receive uses to wait for a message.
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Sets the strategy a synchronous receive uses to wait for a message, overriding the
+     * one configured on the Connection for this consumer only.
+     *
+     * @param waitStrategy
+     *        the wait strategy to use, see {@link WaitStrategy#create(String, int)}.
+     */
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("Wait strategy cannot be null");
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * @return true if MessageListener calls may currently happen on the delivering thread.
+     */
+    public boolean isDirectDispatch() {
+        return directDispatch;
+    }
+
+    /**
+     * Starts delivery.  Messages buffered while stopped are handed to a MessageListener by
+     * the session's dispatch task as any other arrival would be, delivering them from here
+     * would hold the consumer lock while acknowledging and stall the Provider's dispatch.
+     */
     public void start() {
         lock.lock();
         try {
             this.started = true;
             this.messageQueue.start();
-            drainMessageQueueToListener();
+            if (groupDispatcher != null) {
+                groupDispatcher.start();
+            }
         } finally {
             lock.unlock();
         }
+
+        if (messageListener != null && !messageQueue.isEmpty()) {
+            deliveryTask.schedule();
+        }
+
+        resumeCredit();
     }
 
+    /**
+     * Stops delivery, messages that arrive while stopped are held in the consumer's buffer
+     * and no more credit is granted to the remote peer until the consumer is started.
+     */
     public void stop() {
         lock.lock();
         try {
             this.started = false;
             this.messageQueue.stop();
+            if (getPrefetchSize() > 0 && !isBrowser()) {
+                synchronized (creditLock) {
+                    consumerInfo.setCreditWithheld(true);
+                }
+            }
         } finally {
             lock.unlock();
         }
@@ -341,18 +756,28 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
 
     void drainMessageQueueToListener() {
         MessageListener listener = this.messageListener;
-        if (listener != null) {
+        if (listener != null && started) {
             if (!this.messageQueue.isEmpty()) {
                 List<JmsInboundMessageDispatch> drain = this.messageQueue.removeAll();
+                JmsGroupDispatcher dispatcher = this.groupDispatcher;
                 for (JmsInboundMessageDispatch envelope : drain) {
+                    if (dispatcher != null) {
+                        dispatcher.dispatch(envelope);
+                        continue;
+                    }
+
                     try {
-                        listener.onMessage(copy(ack(envelope)));
+                        listener.onMessage(consume(envelope));
                     } catch (Exception e) {
                         session.getConnection().onException(e);
                     }
                 }
                 drain.clear();
             }
+
+            if (groupDispatcher != null) {
+                groupDispatcher.start();
+            }
         }
     }
 
@@ -389,9 +814,29 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
                                    "for asynchronous consumers please set a value of at least 1");
         }
         this.messageListener = listener;
+        updateGroupDispatcher(listener);
         drainMessageQueueToListener();
     }
 
+    /**
+     * Creates the lanes that deliver messages of different message groups in parallel
+     * when they are configured and a listener is set, a consumer whose listener is removed
+     * takes back any messages its lanes had not yet delivered.
+     */
+    private void updateGroupDispatcher(MessageListener listener) {
+        if (listener != null) {
+            if (groupDispatcher == null && connection.getGroupDispatchLanes() > 1 && !session.isTransacted()) {
+                groupDispatcher = new JmsGroupDispatcher(this, session, connection.getGroupDispatchLanes());
+            }
+        } else if (groupDispatcher != null) {
+            List<JmsInboundMessageDispatch> undelivered = groupDispatcher.close();
+            groupDispatcher = null;
+            for (int i = undelivered.size() - 1; i >= 0; --i) {
+                messageQueue.enqueueFirst(undelivered.get(i));
+            }
+        }
+    }
+
     /**
      * @return the Message Selector
      * @throws JMSException
@@ -411,6 +856,31 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
         return this.consumerInfo.getPrefetchSize();
     }
 
+    /**
+     * Gets the number of messages this consumer currently allows the remote peer to
+     * have outstanding.  This is the prefetch size unless adaptive prefetch is enabled
+     * in which case it varies with the rate at which the consumer processes messages.
+     *
+     * @return the current credit window of this consumer.
+     */
+    public int getCreditWindow() {
+        return this.consumerInfo.getCreditWindow();
+    }
+
+    /**
+     * @return the combined size in bytes of the messages buffered by this consumer.
+     */
+    public long getPrefetchedBytes() {
+        return this.prefetchMemory.getUsage();
+    }
+
+    /**
+     * @return true if credit is being withheld because a prefetch memory limit was reached.
+     */
+    public boolean isCreditWithheld() {
+        return this.consumerInfo.isCreditWithheld();
+    }
+
     protected void checkMessageListener() throws JMSException {
         session.checkMessageListener();
     }
@@ -451,6 +921,9 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
 
     protected void onConnectionInterrupted() {
         messageQueue.clear();
+        synchronized (creditLock) {
+            consumerInfo.setCreditWithheld(!started && getPrefetchSize() > 0 && !isBrowser());
+        }
     }
 
     protected void onConnectionRecovery(AsyncProvider provider) throws Exception {
@@ -468,6 +941,87 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
     protected void onConnectionRestored() {
     }
 
+    /**
+     * Caps the credit window at the number of messages of the average size seen so far
+     * that fit into the memory limit, so that the credit granted to the remote peer can
+     * not by itself overrun the limit.  Called only from the Provider's dispatch thread.
+     *
+     * @param size
+     *        the size of the message that just arrived.
+     */
+    private void updateCreditWindow(int size) {
+        if (averageMessageSize == 0) {
+            averageMessageSize = Math.max(1, size);
+        } else {
+            averageMessageSize = Math.max(1, (averageMessageSize * 7 + size) / 8);
+        }
+
+        long limit = prefetchMemory.getLimit();
+        if (limit <= 0) {
+            limit = prefetchMemory.getParent().getLimit();
+        }
+
+        int cap = (int) Math.max(1, Math.min(consumerInfo.getPrefetchSize(), limit / averageMessageSize));
+        if (prefetchController != null) {
+            cap = Math.min(cap, consumerInfo.getCreditWindow());
+        }
+        consumerInfo.setCreditWindow(cap);
+    }
+
+    /**
+     * Tells the Provider to stop granting credit to the remote peer now that the buffer
+     * of this consumer or its connection is full.  The buffer may have drained while the
+     * flag was being set, in which case nothing else would resume the credit so it is
+     * checked again.
+     */
+    private void withholdCredit() {
+        synchronized (creditLock) {
+            consumerInfo.setCreditWithheld(true);
+        }
+
+        MemoryUsage connectionMemory = prefetchMemory.getParent();
+        if (connectionMemory != null && connectionMemory.getLimit() > 0) {
+            connection.onCreditWithheld(this);
+        }
+
+        if (!prefetchMemory.isFull()) {
+            resumeCredit();
+        }
+    }
+
+    /**
+     * Grants the credit that was withheld once the consumer is started and neither its
+     * buffer nor that of its connection is full, runs on the thread that released the
+     * buffered messages or started the consumer.
+     */
+    private void resumeCredit() {
+        if (prepareResumeCredit()) {
+            try {
+                connection.resumeCredit(Collections.singletonList(getConsumerId()));
+            } catch (JMSException ex) {
+                LOG.debug("Could not resume credit for consumer {}: {}", getConsumerId(), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Clears the credit withheld flag if the consumer can take more messages.  Only the
+     * caller that cleared the flag sends the request to resume the credit, so each time
+     * credit is withheld it is resumed once no matter how many threads release memory.
+     *
+     * @return true if the caller must ask the Provider to resume the credit.
+     */
+    boolean prepareResumeCredit() {
+        synchronized (creditLock) {
+            if (consumerInfo.isCreditWithheld() && started && !prefetchMemory.isFull() && !closed.get()) {
+                consumerInfo.setCreditWithheld(false);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Triggers a pull request from the connected Provider.  An attempt is made to set
      * a timeout on the pull request however some providers will not honor this value
@@ -506,4 +1060,129 @@ public class JmsMessageConsumer implements MessageConsumer, JmsMessageAvailableC
 
         return prefetch;
     }
+
+    /**
+     * Reports a MessageListener that is still running on the delivery thread once it has
+     * run for longer than the direct dispatch block time, which the check made after the
+     * listener returns can not do for a listener that never returns.  Runs periodically
+     * on the Connection scheduler from the first direct dispatch until the consumer is
+     * closed and only reads the state the delivery thread publishes.
+     */
+    private final class DirectDispatchWatchdog implements Runnable {
+
+        private volatile boolean running;
+        private volatile long dispatchStart;
+        private volatile Thread dispatchThread;
+        private volatile long reportedStart;
+        private volatile boolean reported;
+        private volatile ScheduledFuture<?> future;
+
+        public void enter(long start) {
+            if (future == null && !closed.get()) {
+                long period = Math.max(1, connection.getDirectDispatchMaxBlockTime());
+                try {
+                    future = connection.getScheduler().scheduleWithFixedDelay(
+                        this, period, period, TimeUnit.MILLISECONDS);
+                } catch (Exception ex) {
+                    LOG.debug("Could not start the direct dispatch watchdog of consumer {}: {}",
+                              getConsumerId(), ex.getMessage());
+                }
+            }
+
+            dispatchThread = Thread.currentThread();
+            dispatchStart = start;
+            running = true;
+        }
+
+        public void exit() {
+            running = false;
+        }
+
+        public boolean isReported(long start) {
+            return reported && reportedStart == start;
+        }
+
+        public void cancel() {
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (closed.get()) {
+                cancel();
+                return;
+            }
+
+            if (!running) {
+                return;
+            }
+
+            long start = dispatchStart;
+            Thread thread = dispatchThread;
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (elapsed > connection.getDirectDispatchMaxBlockTime() && running && !isReported(start)) {
+                reportedStart = start;
+                reported = true;
+                directDispatch = false;
+                LOG.warn("MessageListener of consumer {} is still running on delivery thread {} after {} ms, " +
+                         "reverting to dispatch on the Session thread.", getConsumerId(), thread.getName(), elapsed);
+            }
+        }
+    }
+
+    /**
+     * Delivers queued messages to the MessageListener on the Session executor.  A single
+     * instance exists per consumer and it is only submitted when it is not already
+     * pending or running, so dispatching a message to a listener allocates nothing.
+     */
+    private final class MessageDeliverTask implements Runnable {
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        public boolean isScheduled() {
+            return scheduled.get();
+        }
+
+        public void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    session.getExecutor().execute(this);
+                } catch (RuntimeException e) {
+                    scheduled.set(false);
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                JmsInboundMessageDispatch envelope;
+                while (session.isStarted() && (envelope = messageQueue.dequeueNoWait()) != null) {
+                    JmsGroupDispatcher dispatcher = groupDispatcher;
+                    if (dispatcher != null) {
+                        dispatcher.dispatch(envelope);
+                        continue;
+                    }
+
+                    try {
+                        messageListener.onMessage(consume(envelope));
+                    } catch (Exception e) {
+                        session.getConnection().onException(e);
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+            }
+
+            // A message enqueued after the queue was found empty but before the task was
+            // marked idle would otherwise wait for the next arrival to be delivered.
+            if (messageListener != null && started && session.isStarted() && !messageQueue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
 }
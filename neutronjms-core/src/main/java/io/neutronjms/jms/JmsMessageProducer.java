@@ -22,6 +22,7 @@ import io.neutronjms.jms.meta.JmsProducerInfo;
 import io.neutronjms.provider.AsyncProvider;
 import io.neutronjms.provider.ProviderFuture;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -222,6 +223,108 @@ public class JmsMessageProducer implements MessageProducer {
         this.session.send(this, destination, message, deliveryMode, priority, timeToLive, disableMessageId);
     }
 
+    /**
+     * Sends a batch of messages to the producer's destination as a single operation using
+     * the producer's default delivery mode, priority and time to live.  The method returns
+     * once every message in the batch has been sent.
+     *
+     * @param messages
+     * @throws JMSException
+     */
+    public void send(List<? extends Message> messages) throws JMSException {
+        send(producerInfo.getDestination(), messages);
+    }
+
+    /**
+     * Sends a batch of messages to the given destination as a single operation using the
+     * producer's default delivery mode, priority and time to live.  The method returns
+     * once every message in the batch has been sent.
+     *
+     * @param destination
+     * @param messages
+     * @throws JMSException
+     */
+    public void send(Destination destination, List<? extends Message> messages) throws JMSException {
+        checkClosed();
+
+        if (destination == null) {
+            throw new InvalidDestinationException("Don't understand null destinations");
+        }
+        if (!this.flexibleDestination && !destination.equals(producerInfo.getDestination())) {
+            throw new UnsupportedOperationException("This producer can only send messages to: " + producerInfo.getDestination().getName());
+        }
+
+        this.session.send(this, destination, messages, this.deliveryMode, this.priority, this.timeToLive, disableMessageId);
+    }
+
+    /**
+     * Sends the message without waiting for the send to complete, the given listener is
+     * notified once the send completes or fails.
+     *
+     * @param message
+     * @param listener
+     * @throws JMSException
+     */
+    public void send(Message message, JmsCompletionListener listener) throws JMSException {
+        send(producerInfo.getDestination(), message, this.deliveryMode, this.priority, this.timeToLive, listener);
+    }
+
+    /**
+     * Sends the message without waiting for the send to complete, the given listener is
+     * notified once the send completes or fails.
+     *
+     * @param destination
+     * @param message
+     * @param listener
+     * @throws JMSException
+     */
+    public void send(Destination destination, Message message, JmsCompletionListener listener) throws JMSException {
+        send(destination, message, this.deliveryMode, this.priority, this.timeToLive, listener);
+    }
+
+    /**
+     * Sends the message without waiting for the send to complete, the given listener is
+     * notified once the send completes or fails.
+     *
+     * @param message
+     * @param deliveryMode
+     * @param priority
+     * @param timeToLive
+     * @param listener
+     * @throws JMSException
+     */
+    public void send(Message message, int deliveryMode, int priority, long timeToLive, JmsCompletionListener listener) throws JMSException {
+        send(producerInfo.getDestination(), message, deliveryMode, priority, timeToLive, listener);
+    }
+
+    /**
+     * Sends the message without waiting for the send to complete, the given listener is
+     * notified once the send completes or fails.
+     *
+     * @param destination
+     * @param message
+     * @param deliveryMode
+     * @param priority
+     * @param timeToLive
+     * @param listener
+     * @throws JMSException
+     */
+    public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive, JmsCompletionListener listener) throws JMSException {
+        checkClosed();
+
+        if (destination == null) {
+            throw new InvalidDestinationException("Don't understand null destinations");
+        }
+        if (!this.flexibleDestination && !destination.equals(producerInfo.getDestination())) {
+            throw new UnsupportedOperationException("This producer can only send messages to: " + producerInfo.getDestination().getName());
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("JmsCompletionListener cannot be null");
+        }
+
+        this.session.send(this, destination, message, deliveryMode, priority, timeToLive, disableMessageId, listener);
+    }
+
     /**
      * @param deliveryMode
      * @throws JMSException
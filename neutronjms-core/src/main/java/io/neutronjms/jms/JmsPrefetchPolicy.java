@@ -33,6 +33,8 @@ public class JmsPrefetchPolicy extends Object implements Serializable {
     public static final int DEFAULT_QUEUE_BROWSER_PREFETCH = 500;
     public static final int DEFAULT_DURABLE_TOPIC_PREFETCH = 100;
     public static final int DEFAULT_TOPIC_PREFETCH = MAX_PREFETCH_SIZE;
+    public static final int DEFAULT_ADAPTIVE_PREFETCH_MINIMUM = 10;
+    public static final long DEFAULT_ADAPTIVE_PREFETCH_BUFFER_TIME = 500;
 
     private static final Logger LOG = LoggerFactory.getLogger(JmsPrefetchPolicy.class);
 
@@ -41,6 +43,10 @@ public class JmsPrefetchPolicy extends Object implements Serializable {
     private int topicPrefetch;
     private int durableTopicPrefetch;
     private int maxPrefetchSize = MAX_PREFETCH_SIZE;
+    private boolean adaptivePrefetch;
+    private int adaptivePrefetchMinimum = DEFAULT_ADAPTIVE_PREFETCH_MINIMUM;
+    private long adaptivePrefetchBufferTime = DEFAULT_ADAPTIVE_PREFETCH_BUFFER_TIME;
+    private long maxPrefetchBytes;
 
     /**
      * Initialize default prefetch policies
@@ -63,6 +69,10 @@ public class JmsPrefetchPolicy extends Object implements Serializable {
         this.queueBrowserPrefetch = source.getQueueBrowserPrefetch();
         this.topicPrefetch = source.getTopicPrefetch();
         this.durableTopicPrefetch = source.getDurableTopicPrefetch();
+        this.adaptivePrefetch = source.isAdaptivePrefetch();
+        this.adaptivePrefetchMinimum = source.getAdaptivePrefetchMinimum();
+        this.adaptivePrefetchBufferTime = source.getAdaptivePrefetchBufferTime();
+        this.maxPrefetchBytes = source.getMaxPrefetchBytes();
     }
 
     /**
@@ -146,6 +156,80 @@ public class JmsPrefetchPolicy extends Object implements Serializable {
         this.maxPrefetchSize = maxPrefetchSize;
     }
 
+    /**
+     * @return true if consumers adapt their prefetch window to their processing rate.
+     */
+    public boolean isAdaptivePrefetch() {
+        return adaptivePrefetch;
+    }
+
+    /**
+     * Enables adaptive prefetch.  Consumers then start with the minimum prefetch window and
+     * grow or shrink it based on how quickly they drain their local buffer, never going
+     * above the prefetch value configured for their destination type.
+     *
+     * @param adaptivePrefetch
+     *        true to let consumers adapt their prefetch window.
+     */
+    public void setAdaptivePrefetch(boolean adaptivePrefetch) {
+        this.adaptivePrefetch = adaptivePrefetch;
+    }
+
+    /**
+     * @return the smallest prefetch window an adaptive consumer will shrink to.
+     */
+    public int getAdaptivePrefetchMinimum() {
+        return adaptivePrefetchMinimum;
+    }
+
+    /**
+     * @param adaptivePrefetchMinimum
+     *        the smallest prefetch window an adaptive consumer will shrink to.
+     */
+    public void setAdaptivePrefetchMinimum(int adaptivePrefetchMinimum) {
+        this.adaptivePrefetchMinimum = adaptivePrefetchMinimum;
+    }
+
+    /**
+     * @return the time in milliseconds of processing an adaptive consumer aims to keep buffered.
+     */
+    public long getAdaptivePrefetchBufferTime() {
+        return adaptivePrefetchBufferTime;
+    }
+
+    /**
+     * Sets how many milliseconds worth of messages, at the consumer's measured processing
+     * rate, an adaptive consumer aims to keep in its local buffer.
+     *
+     * @param adaptivePrefetchBufferTime
+     *        the time in milliseconds of processing to keep buffered.
+     */
+    public void setAdaptivePrefetchBufferTime(long adaptivePrefetchBufferTime) {
+        this.adaptivePrefetchBufferTime = adaptivePrefetchBufferTime;
+    }
+
+    /**
+     * @return the maximum number of bytes of prefetched messages a consumer buffers.
+     */
+    public long getMaxPrefetchBytes() {
+        return maxPrefetchBytes;
+    }
+
+    /**
+     * Limits the combined size of the messages a consumer holds in its local buffer.  Once
+     * the limit is reached the consumer stops granting the remote peer credit for more
+     * messages until the application has consumed enough of the buffer to drop below it.
+     * Credit that was already granted is not revoked, so the buffer can briefly exceed the
+     * limit by the messages that were in flight.  A value of zero or less, the default,
+     * leaves the buffer limited only by the message count prefetch values.
+     *
+     * @param maxPrefetchBytes
+     *        the maximum size in bytes of the messages held by each consumer.
+     */
+    public void setMaxPrefetchBytes(long maxPrefetchBytes) {
+        this.maxPrefetchBytes = maxPrefetchBytes;
+    }
+
     /**
      * Sets the prefetch values for all options in this policy to the set limit.  If the value
      * given is larger than the max prefetch value of this policy the new limit will be capped
@@ -166,7 +250,10 @@ public class JmsPrefetchPolicy extends Object implements Serializable {
         if (object instanceof JmsPrefetchPolicy) {
             JmsPrefetchPolicy other = (JmsPrefetchPolicy) object;
             return this.queuePrefetch == other.queuePrefetch && this.queueBrowserPrefetch == other.queueBrowserPrefetch
-                && this.topicPrefetch == other.topicPrefetch && this.durableTopicPrefetch == other.durableTopicPrefetch;
+                && this.topicPrefetch == other.topicPrefetch && this.durableTopicPrefetch == other.durableTopicPrefetch
+                && this.adaptivePrefetch == other.adaptivePrefetch && this.adaptivePrefetchMinimum == other.adaptivePrefetchMinimum
+                && this.adaptivePrefetchBufferTime == other.adaptivePrefetchBufferTime
+                && this.maxPrefetchBytes == other.maxPrefetchBytes;
         }
         return false;
     }
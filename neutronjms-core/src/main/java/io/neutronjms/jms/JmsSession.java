@@ -16,6 +16,7 @@
  */
 package io.neutronjms.jms;
 
+import io.neutronjms.jms.exceptions.JmsExceptionSupport;
 import io.neutronjms.jms.message.JmsInboundMessageDispatch;
 import io.neutronjms.jms.message.JmsMessage;
 import io.neutronjms.jms.message.JmsMessageFactory;
@@ -27,11 +28,13 @@ import io.neutronjms.jms.meta.JmsProducerId;
 import io.neutronjms.jms.meta.JmsSessionId;
 import io.neutronjms.jms.meta.JmsSessionInfo;
 import io.neutronjms.provider.AsyncProvider;
+import io.neutronjms.provider.AsyncResult;
 import io.neutronjms.provider.ProviderConstants.ACK_TYPE;
 import io.neutronjms.provider.ProviderFuture;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -39,7 +42,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -72,9 +75,12 @@ import javax.jms.Topic;
 import javax.jms.TopicPublisher;
 import javax.jms.TopicSession;
 import javax.jms.TopicSubscriber;
+import javax.jms.TransactionRolledBackException;
 
 import org.apache.activemq.apollo.filter.FilterException;
 import org.apache.activemq.apollo.selector.SelectorParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * JMS Session implementation
@@ -82,6 +88,8 @@ import org.apache.activemq.apollo.selector.SelectorParser;
 @SuppressWarnings("static-access")
 public class JmsSession implements Session, QueueSession, TopicSession, JmsMessageDispatcher {
 
+    private static final Logger LOG = LoggerFactory.getLogger(JmsSession.class);
+
     private final JmsConnection connection;
     private final int acknowledgementMode;
     private final List<JmsMessageProducer> producers = new CopyOnWriteArrayList<JmsMessageProducer>();
@@ -89,12 +97,14 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
     private MessageListener messageListener;
     private final AtomicBoolean closed = new AtomicBoolean();
     private final AtomicBoolean started = new AtomicBoolean();
-    private final LinkedBlockingQueue<JmsInboundMessageDispatch> stoppedMessages =
-        new LinkedBlockingQueue<JmsInboundMessageDispatch>(10000);
+    private final LinkedList<JmsInboundMessageDispatch> stoppedMessages = new LinkedList<JmsInboundMessageDispatch>();
     private JmsPrefetchPolicy prefetchPolicy;
     private JmsSessionInfo sessionInfo;
-    private ExecutorService executor;
+    private Executor executor;
     private final ReentrantLock sendLock = new ReentrantLock();
+    private final LinkedList<SendCompletion> pendingCompletions = new LinkedList<SendCompletion>();
+    private volatile Throwable failedTransactedSend;
+    private final JmsAckAccumulator ackAccumulator;
 
     private final AtomicLong consumerIdGenerator = new AtomicLong();
     private final AtomicLong producerIdGenerator = new AtomicLong();
@@ -112,6 +122,13 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
         this.sessionInfo.setAcknowledgementMode(acknowledgementMode);
         this.sessionInfo.setSendAcksAsync(connection.isSendAcksAsync());
 
+        if (connection.getAckBatchSize() > 1 && (acknowledgementMode == Session.DUPS_OK_ACKNOWLEDGE ||
+            (acknowledgementMode == Session.AUTO_ACKNOWLEDGE && connection.isSendAcksAsync()))) {
+            this.ackAccumulator = new JmsAckAccumulator(connection, connection.getAckBatchSize(), connection.getAckBatchTimeout());
+        } else {
+            this.ackAccumulator = null;
+        }
+
         this.sessionInfo = connection.createResource(sessionInfo);
         this.messageFactory = connection.getMessageFactory();
     }
@@ -166,6 +183,26 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
            throw new javax.jms.IllegalStateException("Not a transacted session");
         }
 
+        // Sends made with a completion listener do not block, the transaction may only
+        // be committed once the Provider has accepted all of them.  A send that is still
+        // outstanding could fail after the commit, so it rolls the transaction back too.
+        boolean completed = awaitPendingCompletions();
+        Throwable sendFailure = failedTransactedSend;
+        if (!completed || sendFailure != null) {
+            rollback();
+            TransactionRolledBackException ex = null;
+            if (sendFailure != null) {
+                ex = new TransactionRolledBackException(
+                    "Transaction rolled back because a send failed: " + sendFailure.getMessage());
+                ex.initCause(sendFailure);
+            } else {
+                ex = new TransactionRolledBackException(
+                    "Transaction rolled back because sends did not complete before the commit");
+            }
+            throw ex;
+        }
+
+        flushAcknowledgements();
         this.transactionContext.commit();
     }
 
@@ -177,6 +214,7 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
         }
 
         this.transactionContext.rollback();
+        this.failedTransactedSend = null;
 
         getExecutor().execute(new Runnable() {
             @Override
@@ -214,6 +252,7 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
      */
     protected void doClose() throws JMSException {
         boolean interrupted = Thread.interrupted();
+        awaitPendingCompletions();
         shutdown();
         this.connection.removeSession(this);
         this.connection.destroyResource(sessionInfo);
@@ -236,6 +275,7 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
     protected void shutdown() throws JMSException {
         if (closed.compareAndSet(false, true)) {
             stop();
+
             for (JmsMessageConsumer consumer : new ArrayList<JmsMessageConsumer>(this.consumers.values())) {
                 consumer.shutdown();
             }
@@ -244,6 +284,8 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
                 producer.shutdown();
             }
 
+            failPendingCompletions();
+
             try {
                 if (getTransactionContext().isInTransaction()) {
                     rollback();
@@ -667,69 +709,266 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
     }
 
     protected void send(JmsMessageProducer producer, Destination dest, Message msg, int deliveryMode, int priority, long timeToLive, boolean disableMsgId) throws JMSException {
+        send(producer, dest, msg, deliveryMode, priority, timeToLive, disableMsgId, null);
+    }
+
+    protected void send(JmsMessageProducer producer, Destination dest, Message msg, int deliveryMode, int priority, long timeToLive, boolean disableMsgId, JmsCompletionListener listener) throws JMSException {
         JmsDestination destination = JmsMessageTransformation.transformDestination(connection, dest);
-        send(producer, destination, msg, deliveryMode, priority, timeToLive, disableMsgId);
+        send(producer, destination, msg, deliveryMode, priority, timeToLive, disableMsgId, listener);
     }
 
-    private void send(JmsMessageProducer producer, JmsDestination destination, Message original, int deliveryMode, int priority, long timeToLive, boolean disableMsgId) throws JMSException {
+    private void send(JmsMessageProducer producer, JmsDestination destination, Message original, int deliveryMode, int priority, long timeToLive, boolean disableMsgId, JmsCompletionListener listener) throws JMSException {
         sendLock.lock();
         try {
             startNextTransaction();
 
-            original.setJMSDeliveryMode(deliveryMode);
-            original.setJMSPriority(priority);
-            original.setJMSRedelivered(false);
-            if (timeToLive > 0) {
-                long timeStamp = System.currentTimeMillis();
-                original.setJMSTimestamp(timeStamp);
-                original.setJMSExpiration(System.currentTimeMillis() + timeToLive);
+            boolean sync = connection.isAlwaysSyncSend() ||
+                           (!connection.isForceAsyncSend() && deliveryMode == DeliveryMode.PERSISTENT && !getTransacted());
+
+            long timeStamp = timeToLive > 0 ? System.currentTimeMillis() : 0;
+            JmsOutboundMessageDispatch envelope =
+                prepareSend(producer, destination, original, deliveryMode, priority, timeToLive, timeStamp, disableMsgId, sync);
+
+            try {
+                if (listener != null) {
+                    SendCompletion completion = new SendCompletion(original, listener);
+                    synchronized (pendingCompletions) {
+                        pendingCompletions.addLast(completion);
+                    }
+                    try {
+                        this.connection.send(envelope, completion);
+                    } catch (JMSException ex) {
+                        synchronized (pendingCompletions) {
+                            pendingCompletions.remove(completion);
+                            pendingCompletions.notifyAll();
+                        }
+                        throw ex;
+                    }
+                } else if (sync || getTransacted()) {
+                    // Transacted sends still wait on the provider so that a failed send is
+                    // reported to the caller before the transaction can be committed.
+                    this.connection.send(envelope);
+                } else {
+                    this.connection.sendAsync(envelope);
+                }
+            } catch (JMSException ex) {
+                envelope.getMessage().onSendComplete();
+                throw ex;
             }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    protected void send(JmsMessageProducer producer, Destination dest, List<? extends Message> messages, int deliveryMode, int priority, long timeToLive, boolean disableMsgId) throws JMSException {
+        JmsDestination destination = JmsMessageTransformation.transformDestination(connection, dest);
+
+        sendLock.lock();
+        try {
+            startNextTransaction();
+
+            boolean sync = connection.isAlwaysSyncSend() ||
+                           (!connection.isForceAsyncSend() && deliveryMode == DeliveryMode.PERSISTENT && !getTransacted());
 
-            JmsMessageId msgId = null;
+            // The whole batch shares one timestamp and is handed to the provider as one
+            // request, which completes once every message in it has been sent.
+            long timeStamp = timeToLive > 0 ? System.currentTimeMillis() : 0;
+            List<JmsOutboundMessageDispatch> envelopes = new ArrayList<JmsOutboundMessageDispatch>(messages.size());
+            try {
+                for (Message message : messages) {
+                    envelopes.add(prepareSend(producer, destination, message, deliveryMode, priority, timeToLive, timeStamp, disableMsgId, sync));
+                }
+            } catch (JMSException ex) {
+                for (JmsOutboundMessageDispatch envelope : envelopes) {
+                    envelope.getMessage().onSendComplete();
+                }
+                throw ex;
+            }
+
+            if (!envelopes.isEmpty()) {
+                this.connection.send(envelopes);
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    private JmsOutboundMessageDispatch prepareSend(JmsMessageProducer producer, JmsDestination destination, Message original, int deliveryMode, int priority, long timeToLive, long timeStamp, boolean disableMsgId, boolean sync) throws JMSException {
+        original.setJMSDeliveryMode(deliveryMode);
+        original.setJMSPriority(priority);
+        original.setJMSRedelivered(false);
+        if (timeToLive > 0) {
+            original.setJMSTimestamp(timeStamp);
+            original.setJMSExpiration(timeStamp + timeToLive);
+        }
+
+        JmsMessageId msgId = null;
+        if (!disableMsgId) {
+            msgId = getNextMessageId(producer);
+        }
+
+        boolean isJmsMessageType = original instanceof JmsMessage;
+        if (isJmsMessageType) {
+            ((JmsMessage) original).setConnection(connection);
             if (!disableMsgId) {
-                msgId = getNextMessageId(producer);
+                ((JmsMessage) original).setJMSMessageID(msgId);
             }
+            original.setJMSDestination(destination);
+        }
+
+        // When configured to do so the original message is sent as is, it is left
+        // read-only until the provider is done with it and then its prior state is
+        // restored so the application can go on modifying and reusing it.
+        boolean sendOriginal = isJmsMessageType && !connection.isCopyMessageOnSend();
+        JmsMessage copy;
+        if (sendOriginal) {
+            copy = (JmsMessage) original;
+        } else {
+            copy = JmsMessageTransformation.transformMessage(connection, original);
+        }
+
+        // Ensure original message gets the destination and message ID as per spec.
+        if (!isJmsMessageType) {
+            if (!disableMsgId) {
+                original.setJMSMessageID(msgId.toString());
+                copy.setJMSMessageID(msgId);
+            }
+            original.setJMSDestination(destination);
+            copy.setJMSDestination(destination);
+        }
+
+        if (sendOriginal) {
+            copy.onSendStart();
+        }
+
+        try {
+            copy.onSend();
+        } catch (JMSException ex) {
+            copy.onSendComplete();
+            throw ex;
+        }
+
+        JmsOutboundMessageDispatch envelope = new JmsOutboundMessageDispatch();
+        envelope.setMessage(copy);
+        envelope.setProducerId(producer.getProducerId());
+        envelope.setDestination(destination);
+        envelope.setSendAsync(!sync);
+        return envelope;
+    }
 
-            boolean isJmsMessageType = original instanceof JmsMessage;
-            if (isJmsMessageType) {
-                ((JmsMessage) original).setConnection(connection);
-                if (!disableMsgId) {
-                    ((JmsMessage) original).setJMSMessageID(msgId);
+    /**
+     * Hands each completed send at the head of the pending list to the Connection executor
+     * so that listeners are always called in send order, even if the Provider completes the
+     * sends in a different order.
+     */
+    private void dispatchCompletions() {
+        synchronized (pendingCompletions) {
+            while (!pendingCompletions.isEmpty() && pendingCompletions.getFirst().isComplete()) {
+                SendCompletion completion = pendingCompletions.removeFirst();
+                try {
+                    connection.getExecutor().execute(completion);
+                } catch (RejectedExecutionException e) {
+                    completion.run();
                 }
-                original.setJMSDestination(destination);
             }
 
-            JmsMessage copy = JmsMessageTransformation.transformMessage(connection, original);
+            if (pendingCompletions.isEmpty()) {
+                pendingCompletions.notifyAll();
+            }
+        }
+    }
 
-            // Ensure original message gets the destination and message ID as per spec.
-            if (!isJmsMessageType) {
-                if (!disableMsgId) {
-                    original.setJMSMessageID(msgId.toString());
-                    copy.setJMSMessageID(msgId);
+    /**
+     * Waits up to the close timeout for the sends made with a completion listener to
+     * complete.  The Provider signals the completions, so a thread that it needs in
+     * order to do that does not wait at all.
+     *
+     * @return true if no sends remain outstanding.
+     */
+    private boolean awaitPendingCompletions() {
+        if (ProviderFuture.isBlockingProhibited()) {
+            synchronized (pendingCompletions) {
+                return pendingCompletions.isEmpty();
+            }
+        }
+
+        long timeout = connection.getCloseTimeout();
+        long deadline = System.currentTimeMillis() + timeout;
+
+        synchronized (pendingCompletions) {
+            while (!pendingCompletions.isEmpty()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (timeout > 0 && remaining <= 0) {
+                    break;
+                }
+
+                try {
+                    pendingCompletions.wait(timeout > 0 ? remaining : 0);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
                 }
-                original.setJMSDestination(destination);
-                copy.setJMSDestination(destination);
             }
 
-            boolean sync = connection.isAlwaysSyncSend() ||
-                           (!connection.isForceAsyncSend() && deliveryMode == DeliveryMode.PERSISTENT && !getTransacted());
+            return pendingCompletions.isEmpty();
+        }
+    }
 
-            copy.onSend();
-            JmsOutboundMessageDispatch envelope = new JmsOutboundMessageDispatch();
-            envelope.setMessage(copy);
-            envelope.setProducerId(producer.getProducerId());
-            envelope.setDestination(destination);
-            envelope.setSendAsync(!sync);
+    private void failPendingCompletions() {
+        List<SendCompletion> pending;
+        synchronized (pendingCompletions) {
+            pending = new ArrayList<SendCompletion>(pendingCompletions);
+        }
 
-            this.connection.send(envelope);
-        } finally {
-            sendLock.unlock();
+        for (SendCompletion completion : pending) {
+            completion.onFailure(new IllegalStateException("The Session was closed before the send completed"));
         }
     }
 
     void acknowledge(JmsInboundMessageDispatch envelope, ACK_TYPE ackType) throws JMSException {
         startNextTransaction();
-        this.connection.acknowledge(envelope, ackType);
+        if (ackAccumulator != null && ackType == ACK_TYPE.CONSUMED) {
+            ackAccumulator.add(envelope, getCreditWindow(envelope));
+        } else {
+            this.connection.acknowledge(envelope, ackType);
+        }
+    }
+
+    void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType) throws JMSException {
+        startNextTransaction();
+        if (ackAccumulator != null && ackType == ACK_TYPE.CONSUMED) {
+            for (JmsInboundMessageDispatch envelope : envelopes) {
+                ackAccumulator.add(envelope, getCreditWindow(envelope));
+            }
+        } else {
+            this.connection.acknowledge(envelopes, ackType);
+        }
+    }
+
+    /**
+     * Sends any consumed acknowledgments that are being held for batching, called when a
+     * consumer or the Session is closed, stopped or committed.  While the Session runs
+     * the batches are sent by size and age alone.
+     *
+     * @throws JMSException if an error occurs while the acknowledgments are sent.
+     */
+    void flushAcknowledgements() throws JMSException {
+        if (ackAccumulator != null) {
+            ackAccumulator.flush();
+        }
+    }
+
+    /**
+     * @return the credit window of the consumer that received the given message, or zero
+     *         if that consumer does not rely on acknowledgments to be granted credit.
+     */
+    private int getCreditWindow(JmsInboundMessageDispatch envelope) {
+        JmsMessageConsumer consumer = consumers.get(envelope.getConsumerId());
+        if (consumer == null || consumer.getPrefetchSize() == 0) {
+            return 0;
+        }
+
+        return consumer.getCreditWindow();
     }
 
     /**
@@ -833,8 +1072,12 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
 
     protected void start() throws JMSException {
         if (started.compareAndSet(false, true)) {
-            JmsInboundMessageDispatch message = null;
-            while ((message = this.stoppedMessages.poll()) != null) {
+            List<JmsInboundMessageDispatch> pending;
+            synchronized (stoppedMessages) {
+                pending = new ArrayList<JmsInboundMessageDispatch>(stoppedMessages);
+                stoppedMessages.clear();
+            }
+            for (JmsInboundMessageDispatch message : pending) {
                 deliver(message);
             }
             for (JmsMessageConsumer consumer : consumers.values()) {
@@ -845,13 +1088,19 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
 
     protected void stop() throws JMSException {
         started.set(false);
-        if (executor != null) {
-            executor.shutdown();
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
             executor = null;
         }
         for (JmsMessageConsumer consumer : consumers.values()) {
             consumer.stop();
         }
+
+        try {
+            flushAcknowledgements();
+        } catch (JMSException e) {
+            LOG.debug("Failed to send batched acknowledgements on stop: {}", e.getMessage());
+        }
     }
 
     protected boolean isStarted() {
@@ -862,18 +1111,53 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
         return this.connection;
     }
 
+    /**
+     * @return true if a consumer of this Session may call its MessageListener directly
+     *         on the thread that delivered the message.
+     */
+    boolean isDirectDispatchAllowed() {
+        return connection.isDirectDispatch() && started.get() && messageListener == null && consumers.size() == 1 &&
+               (acknowledgementMode == Session.AUTO_ACKNOWLEDGE || acknowledgementMode == Session.DUPS_OK_ACKNOWLEDGE);
+    }
+
+    /**
+     * Acknowledges a consumed message without waiting on the Provider, for use on threads
+     * that must not block.
+     *
+     * @param envelope
+     *        the dispatch envelope of the message that was consumed.
+     *
+     * @throws JMSException if the acknowledgment could not be started.
+     */
+    void acknowledgeAsync(JmsInboundMessageDispatch envelope) throws JMSException {
+        if (ackAccumulator != null) {
+            ackAccumulator.add(envelope, getCreditWindow(envelope));
+        } else {
+            connection.acknowledgeAsync(envelope, ACK_TYPE.CONSUMED);
+        }
+    }
+
+    /**
+     * @return the executor that runs this Session's asynchronous dispatch, either a serial
+     *         lane on the Connection's shared dispatch scheduler or a dedicated thread.
+     */
     Executor getExecutor() {
         if (executor == null) {
-            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
-
-                @Override
-                public Thread newThread(Runnable runner) {
-                    Thread executor = new Thread(runner);
-                    executor.setName("JmsSession ["+ sessionInfo.getSessionId() + "] dispatcher");
-                    executor.setDaemon(true);
-                    return executor;
-                }
-            });
+            JmsDispatchScheduler scheduler = connection.getDispatchScheduler();
+            if (scheduler != null) {
+                executor = scheduler.createSerialExecutor();
+            } else {
+                executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable runner) {
+                        Thread executor = new Thread(runner);
+                        executor.setName("JmsSession ["+ sessionInfo.getSessionId() + "] dispatcher");
+                        executor.setDaemon(true);
+                        return executor;
+                    }
+                });
+            }
         }
         return executor;
     }
@@ -937,13 +1221,26 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
         this.prefetchPolicy = prefetchPolicy;
     }
 
+    /**
+     * Dispatches a message that arrived from the Provider.  While the session is stopped
+     * messages for a consumer go straight into that consumer's stopped buffer, which
+     * withholds further credit from the remote peer until the consumer is started, so
+     * the amount held is bounded by the credit that was already granted.  Only when a
+     * session MessageListener is set, and no consumer buffer is used, are the messages
+     * held by the session itself.
+     */
     @Override
     public void onMessage(JmsInboundMessageDispatch envelope) {
-        if (started.get()) {
-            deliver(envelope);
-        } else {
-            this.stoppedMessages.add(envelope);
+        if (!started.get() && messageListener != null) {
+            synchronized (stoppedMessages) {
+                if (!started.get()) {
+                    stoppedMessages.add(envelope);
+                    return;
+                }
+            }
         }
+
+        deliver(envelope);
     }
 
     protected void onConnectionInterrupted() {
@@ -1035,4 +1332,65 @@ public class JmsSession implements Session, QueueSession, TopicSession, JmsMessa
     public JmsLocalTransactionContext getTransactionContext() {
         return transactionContext;
     }
+
+    /**
+     * Tracks the outcome of a send made with a JmsCompletionListener until it can be
+     * delivered to that listener in send order.
+     */
+    private final class SendCompletion implements AsyncResult, Runnable {
+
+        private final Message message;
+        private final JmsCompletionListener listener;
+        private volatile boolean complete;
+        private Throwable error;
+
+        public SendCompletion(Message message, JmsCompletionListener listener) {
+            this.message = message;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onSuccess() {
+            synchronized (this) {
+                if (complete) {
+                    return;
+                }
+                complete = true;
+            }
+            dispatchCompletions();
+        }
+
+        @Override
+        public void onFailure(Throwable result) {
+            synchronized (this) {
+                if (complete) {
+                    return;
+                }
+                error = result;
+                complete = true;
+            }
+            if (isTransacted()) {
+                failedTransactedSend = result;
+            }
+            dispatchCompletions();
+        }
+
+        @Override
+        public boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (error == null) {
+                    listener.onCompletion(message);
+                } else {
+                    listener.onException(message, JmsExceptionSupport.create(error));
+                }
+            } catch (Throwable e) {
+                LOG.debug("Send completion listener threw an error: {}", e.getMessage());
+            }
+        }
+    }
 }
@@ -111,12 +111,33 @@ public class JmsBytesMessage extends JmsMessage implements BytesMessage {
         this.dataIn = null;
     }
 
+    @Override
+    protected void recycle() {
+        super.recycle();
+        this.bytesOut = null;
+        this.dataIn = null;
+        this.length = 0;
+    }
+
     @Override
     public void onSend() throws JMSException {
         this.storeContent();
         super.onSend();
     }
 
+    @Override
+    public int getEstimatedSize() {
+        Buffer content = facade.getContent();
+        int size = super.getEstimatedSize();
+        if (content != null) {
+            size += content.length;
+        }
+        if (bytesOut != null) {
+            size += bytesOut.size();
+        }
+        return size;
+    }
+
     /**
      * Clears out the message body. Clearing a message's body does not clear its
      * header values or property entries.
@@ -18,16 +18,24 @@ package io.neutronjms.jms.message;
 
 import io.neutronjms.jms.meta.JmsConsumerId;
 
+import javax.jms.JMSException;
+
 /**
  * Envelope used to deliver incoming messages to their targeted consumer.
  */
 public class JmsInboundMessageDispatch {
 
+    private static final int PRIORITY_UNKNOWN = -1;
+
     private JmsConsumerId consumerId;
     private JmsMessage message;
     private Object providerHint;
+    private int priority = PRIORITY_UNKNOWN;
+    private int size = -1;
+    private volatile boolean released;
 
     public JmsMessage getMessage() {
+        checkReleased();
         return message;
     }
 
@@ -36,6 +44,7 @@ public class JmsInboundMessageDispatch {
     }
 
     public JmsConsumerId getConsumerId() {
+        checkReleased();
         return consumerId;
     }
 
@@ -44,6 +53,7 @@ public class JmsInboundMessageDispatch {
     }
 
     public Object getProviderHint() {
+        checkReleased();
         return this.providerHint;
     }
 
@@ -51,7 +61,119 @@ public class JmsInboundMessageDispatch {
         this.providerHint = hint;
     }
 
+    /**
+     * Returns the JMS priority of the dispatched message scoped to the range 0-9.  The
+     * Provider should set the priority when it creates the envelope so that the value
+     * can be read without going through the Message, otherwise it is read from the
+     * Message the first time it is requested and cached.
+     *
+     * @return the priority of the message carried in this envelope.
+     */
+    public int getPriority() {
+        checkReleased();
+        if (priority == PRIORITY_UNKNOWN) {
+            int value = javax.jms.Message.DEFAULT_PRIORITY;
+            if (message != null) {
+                try {
+                    value = message.getJMSPriority();
+                } catch (JMSException e) {
+                }
+            }
+            setPriority(value);
+        }
+
+        return priority;
+    }
+
+    /**
+     * Sets the JMS priority of the dispatched message, values outside the range 0-9
+     * are clamped into that range.
+     *
+     * @param priority
+     *        the priority of the message carried in this envelope.
+     */
+    public void setPriority(int priority) {
+        this.priority = Math.min(Math.max(priority, 0), 9);
+    }
+
+    /**
+     * Returns the size in bytes that this dispatch is accounted for while it is buffered
+     * in a consumer.  The Provider should set the encoded size of the message when it
+     * creates the envelope, otherwise the estimated size of the Message is used.
+     *
+     * @return the size of the message carried in this envelope.
+     */
+    public int getSize() {
+        checkReleased();
+        if (size < 0) {
+            size = message != null ? message.getEstimatedSize() : 0;
+        }
+
+        return size;
+    }
+
+    /**
+     * Sets the encoded size in bytes of the dispatched message.
+     *
+     * @param size
+     *        the size of the message carried in this envelope.
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Replaces the message carried in this envelope with a private copy if the given
+     * message is the shared instance that was handed to the application.
+     *
+     * @param shared
+     *        the message instance that is about to be modified by the application.
+     *
+     * @throws JMSException if an error occurs while copying the message.
+     */
+    public void unshareMessage(JmsMessage shared) throws JMSException {
+        if (this.message == shared) {
+            shared.setSharedEnvelope(null);
+            this.message = shared.copy();
+        }
+    }
+
     public void onMessageRedelivered() {
+        checkReleased();
+        if (this.message.isShared()) {
+            try {
+                unshareMessage(this.message);
+            } catch (JMSException e) {
+            }
+        }
         this.message.incrementRedeliveryCount();
     }
+
+    /**
+     * @return true if this envelope was released to a JmsInboundMessagePool and is not in use.
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Marks the envelope as released to its pool and clears its state, or marks it as in
+     * use again when it is handed out by the pool.
+     */
+    void setReleased(boolean released) {
+        if (released) {
+            this.consumerId = null;
+            this.message = null;
+            this.providerHint = null;
+            this.priority = PRIORITY_UNKNOWN;
+            this.size = -1;
+        }
+        this.released = released;
+    }
+
+    private void checkReleased() {
+        if (released) {
+            throw new IllegalStateException("The dispatch envelope was used after it was released");
+        }
+    }
 }
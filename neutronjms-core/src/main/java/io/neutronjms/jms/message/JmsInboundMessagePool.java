@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.message;
+
+import io.neutronjms.jms.message.facade.defaults.JmsDefaultMessageFacade;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+
+import javax.jms.JMSException;
+
+/**
+ * A pool of the dispatch envelopes and messages that a Provider creates for the incoming
+ * messages of a single consumer.
+ *
+ * The messages are created with the default facades and are returned to the pool along
+ * with their envelope once the Provider has settled the delivery.  At that point neither
+ * the consumer nor the application can still reference them as the application is always
+ * handed a copy of the dispatched message.  In debug mode released instances are marked
+ * and never handed out again, so any later use of them fails with an IllegalStateException.
+ *
+ * The pool is not thread safe, the Provider must create and release from a single thread.
+ */
+public class JmsInboundMessagePool implements JmsMessageFactory {
+
+    private final JmsMessageFactory factory = new JmsDefaultMessageFactory();
+    private final int capacity;
+    private final boolean debug;
+
+    private final ArrayDeque<JmsInboundMessageDispatch> envelopes = new ArrayDeque<JmsInboundMessageDispatch>();
+    private final ArrayDeque<JmsMessage> messages = new ArrayDeque<JmsMessage>();
+    private final ArrayDeque<JmsTextMessage> textMessages = new ArrayDeque<JmsTextMessage>();
+    private final ArrayDeque<JmsBytesMessage> bytesMessages = new ArrayDeque<JmsBytesMessage>();
+    private final ArrayDeque<JmsMapMessage> mapMessages = new ArrayDeque<JmsMapMessage>();
+    private final ArrayDeque<JmsStreamMessage> streamMessages = new ArrayDeque<JmsStreamMessage>();
+    private final ArrayDeque<JmsObjectMessage> objectMessages = new ArrayDeque<JmsObjectMessage>();
+
+    private long reusedCount;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param capacity
+     *        the maximum number of released envelopes, and of released messages of each type, to keep.
+     * @param debug
+     *        true if released instances should be checked for use after release instead of reused.
+     */
+    public JmsInboundMessagePool(int capacity, boolean debug) {
+        this.capacity = Math.max(capacity, 1);
+        this.debug = debug;
+    }
+
+    /**
+     * @return a released envelope if one is available, otherwise a new envelope.
+     */
+    public JmsInboundMessageDispatch createEnvelope() {
+        JmsInboundMessageDispatch envelope = envelopes.pollFirst();
+        if (envelope == null) {
+            return new JmsInboundMessageDispatch();
+        }
+
+        envelope.setReleased(false);
+        reusedCount++;
+        return envelope;
+    }
+
+    /**
+     * Returns an envelope and the message it carries to the pool.  The caller must ensure
+     * that nothing refers to either of them any longer.
+     *
+     * @param envelope
+     *        the envelope of a delivery that has been settled.
+     *
+     * @throws IllegalStateException if debugging and the envelope was already released.
+     */
+    public void release(JmsInboundMessageDispatch envelope) {
+        if (envelope.isReleased()) {
+            if (debug) {
+                throw new IllegalStateException("The dispatch envelope was already released");
+            }
+            return;
+        }
+
+        JmsMessage message = envelope.getMessage();
+        envelope.setReleased(true);
+        if (message != null && !message.isShared()) {
+            release(message);
+        }
+
+        if (!debug && envelopes.size() < capacity) {
+            envelopes.addFirst(envelope);
+        }
+    }
+
+    /**
+     * @return the number of envelopes and messages that were handed out again after being released.
+     */
+    public long getReusedCount() {
+        return reusedCount;
+    }
+
+    /**
+     * @return the number of released envelopes currently held in the pool.
+     */
+    public int getPooledEnvelopeCount() {
+        return envelopes.size();
+    }
+
+    @Override
+    public JmsMessage createMessage() {
+        JmsMessage message = acquire(messages);
+        return message != null ? message : factory.createMessage();
+    }
+
+    @Override
+    public JmsTextMessage createTextMessage() {
+        JmsTextMessage message = acquire(textMessages);
+        return message != null ? message : factory.createTextMessage();
+    }
+
+    @Override
+    public JmsTextMessage createTextMessage(String payload) {
+        JmsTextMessage message = createTextMessage();
+        if (payload != null) {
+            try {
+                message.setText(payload);
+            } catch (JMSException e) {
+            }
+        }
+        return message;
+    }
+
+    @Override
+    public JmsBytesMessage createBytesMessage() {
+        JmsBytesMessage message = acquire(bytesMessages);
+        return message != null ? message : factory.createBytesMessage();
+    }
+
+    @Override
+    public JmsMapMessage createMapMessage() {
+        JmsMapMessage message = acquire(mapMessages);
+        return message != null ? message : factory.createMapMessage();
+    }
+
+    @Override
+    public JmsStreamMessage createStreamMessage() {
+        JmsStreamMessage message = acquire(streamMessages);
+        return message != null ? message : factory.createStreamMessage();
+    }
+
+    @Override
+    public JmsObjectMessage createObjectMessage() {
+        JmsObjectMessage message = acquire(objectMessages);
+        return message != null ? message : factory.createObjectMessage();
+    }
+
+    @Override
+    public JmsObjectMessage createObjectMessage(Serializable payload) {
+        JmsObjectMessage message = createObjectMessage();
+        if (payload != null) {
+            try {
+                message.setObject(payload);
+            } catch (Exception e) {
+            }
+        }
+        return message;
+    }
+
+    private <T extends JmsMessage> T acquire(ArrayDeque<T> pool) {
+        T message = pool.pollFirst();
+        if (message != null) {
+            message.setReleased(false);
+            reusedCount++;
+        }
+        return message;
+    }
+
+    private void release(JmsMessage message) {
+        if (message.isReleased() || !(message.getFacade() instanceof JmsDefaultMessageFacade)) {
+            return;
+        }
+
+        ((JmsDefaultMessageFacade) message.getFacade()).recycle();
+        message.recycle();
+        message.setReleased(true);
+        if (debug) {
+            return;
+        }
+
+        Class<?> type = message.getClass();
+        if (type == JmsTextMessage.class) {
+            offer(textMessages, (JmsTextMessage) message);
+        } else if (type == JmsBytesMessage.class) {
+            offer(bytesMessages, (JmsBytesMessage) message);
+        } else if (type == JmsMapMessage.class) {
+            offer(mapMessages, (JmsMapMessage) message);
+        } else if (type == JmsStreamMessage.class) {
+            offer(streamMessages, (JmsStreamMessage) message);
+        } else if (type == JmsObjectMessage.class) {
+            offer(objectMessages, (JmsObjectMessage) message);
+        } else if (type == JmsMessage.class) {
+            offer(messages, message);
+        }
+    }
+
+    private <T extends JmsMessage> void offer(ArrayDeque<T> pool, T message) {
+        if (pool.size() < capacity) {
+            pool.addFirst(message);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import io.neutronjms.jms.JmsConnection;
 import io.neutronjms.jms.exceptions.JmsExceptionSupport;
 import io.neutronjms.jms.message.facade.JmsMessageFacade;
 import io.neutronjms.jms.meta.JmsMessageId;
+import io.neutronjms.provider.ProviderFuture;
 import io.neutronjms.util.TypeConversionSupport;
 
 import java.io.IOException;
@@ -39,8 +40,15 @@ import javax.jms.MessageNotWriteableException;
 
 public class JmsMessage implements javax.jms.Message {
 
+    protected static final int ESTIMATED_HEADER_SIZE = 256;
+
     protected transient Callable<Void> acknowledgeCallback;
     protected transient JmsConnection connection;
+    protected transient JmsInboundMessageDispatch sharedEnvelope;
+    protected transient volatile boolean sendInProgress;
+    protected transient boolean readOnlyBodyBeforeSend;
+    protected transient boolean readOnlyPropertiesBeforeSend;
+    protected transient boolean released;
 
     protected final JmsMessageFacade facade;
     protected boolean readOnlyBody;
@@ -57,6 +65,7 @@ public class JmsMessage implements javax.jms.Message {
     }
 
     protected void copy(JmsMessage other) {
+        other.checkReleased();
         this.readOnlyBody = other.readOnlyBody;
         this.readOnlyProperties = other.readOnlyBody;
         this.acknowledgeCallback = other.acknowledgeCallback;
@@ -111,6 +120,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void clearBody() throws JMSException {
+        beforeModification();
         readOnlyBody = false;
         facade.clearBody();
     }
@@ -123,6 +133,10 @@ public class JmsMessage implements javax.jms.Message {
         this.readOnlyBody = readOnlyBody;
     }
 
+    public boolean isReadOnlyProperties() {
+        return this.readOnlyProperties;
+    }
+
     public void setReadOnlyProperties(boolean readOnlyProperties) {
         this.readOnlyProperties = readOnlyProperties;
     }
@@ -137,6 +151,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSMessageID(String value) throws JMSException {
+        beforeModification();
         if (value != null) {
             JmsMessageId id = new JmsMessageId(value);
             facade.setMessageId(id);
@@ -146,6 +161,7 @@ public class JmsMessage implements javax.jms.Message {
     }
 
     public void setJMSMessageID(JmsMessageId messageId) throws JMSException {
+        beforeModification();
         facade.setMessageId(messageId);
     }
 
@@ -156,6 +172,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSTimestamp(long timestamp) throws JMSException {
+        beforeModification();
         facade.setTimestamp(timestamp);
     }
 
@@ -166,6 +183,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSCorrelationID(String correlationId) throws JMSException {
+        beforeModification();
         facade.setCorrelationId(correlationId);
     }
 
@@ -176,6 +194,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSCorrelationIDAsBytes(byte[] correlationId) throws JMSException {
+        beforeModification();
         facade.setCorrelationIdBytes(correlationId);
     }
 
@@ -186,6 +205,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSReplyTo(Destination destination) throws JMSException {
+        beforeModification();
         facade.setReplyTo(JmsMessageTransformation.transformDestination(connection, destination));
     }
 
@@ -196,6 +216,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSDestination(Destination destination) throws JMSException {
+        beforeModification();
         facade.setDestination(JmsMessageTransformation.transformDestination(connection, destination));
     }
 
@@ -206,6 +227,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSDeliveryMode(int mode) throws JMSException {
+        beforeModification();
         facade.setPersistent(mode == DeliveryMode.PERSISTENT);
     }
 
@@ -216,6 +238,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSRedelivered(boolean redelivered) throws JMSException {
+        beforeModification();
         this.setRedelivered(redelivered);
     }
 
@@ -226,6 +249,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSType(String type) throws JMSException {
+        beforeModification();
         facade.setType(type);
     }
 
@@ -236,6 +260,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSExpiration(long expiration) throws JMSException {
+        beforeModification();
         facade.setExpiration(expiration);
     }
 
@@ -246,6 +271,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void setJMSPriority(int priority) throws JMSException {
+        beforeModification();
         byte scaled = 0;
 
         if (priority < 0) {
@@ -261,6 +287,7 @@ public class JmsMessage implements javax.jms.Message {
 
     @Override
     public void clearProperties() throws JMSException {
+        beforeModification();
         facade.clearProperties();
     }
 
@@ -371,6 +398,7 @@ public class JmsMessage implements javax.jms.Message {
         }
 
         checkValidObject(value);
+        beforeModification();
         JmsMessagePropertySetter.setProperty(facade, name, value);
     }
 
@@ -574,6 +602,106 @@ public class JmsMessage implements javax.jms.Message {
         facade.onSend();
     }
 
+    /**
+     * Marks this message as being shared between the application and the envelope that
+     * delivered it.  While shared the envelope is handed a private copy of the message
+     * before the first change is made to it, or when it is redelivered, so that a later
+     * redelivery never sees the changes the application made to its instance.
+     *
+     * @param envelope
+     *        the envelope that delivered this message, or null to stop sharing.
+     */
+    public void setSharedEnvelope(JmsInboundMessageDispatch envelope) {
+        this.sharedEnvelope = envelope;
+    }
+
+    /**
+     * @return true if this message instance is still shared with its dispatch envelope.
+     */
+    public boolean isShared() {
+        return this.sharedEnvelope != null;
+    }
+
+    /**
+     * Called before any change is made to the message headers, properties or body.
+     *
+     * @throws JMSException if an error occurs while copying a shared message.
+     */
+    protected void beforeModification() throws JMSException {
+        awaitSendCompletion();
+
+        JmsInboundMessageDispatch envelope = this.sharedEnvelope;
+        if (envelope != null) {
+            this.sharedEnvelope = null;
+            envelope.unshareMessage(this);
+        }
+    }
+
+    /**
+     * Called when this instance is about to be handed to the Provider for sending without
+     * first being copied.  Until {@link #onSendComplete()} is called any attempt to modify
+     * the message blocks, afterwards the read-only state the message had before the send
+     * is restored.
+     */
+    public void onSendStart() {
+        this.readOnlyBodyBeforeSend = readOnlyBody;
+        this.readOnlyPropertiesBeforeSend = readOnlyProperties;
+        this.sendInProgress = true;
+    }
+
+    /**
+     * Called once the Provider no longer needs this instance for an in progress send, does
+     * nothing if the message was not being sent.
+     */
+    public void onSendComplete() {
+        if (sendInProgress) {
+            synchronized (this) {
+                this.readOnlyBody = readOnlyBodyBeforeSend;
+                this.readOnlyProperties = readOnlyPropertiesBeforeSend;
+                this.sendInProgress = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Blocks until any in progress send of this instance has completed.
+     *
+     * @throws JMSException if interrupted while waiting for the send to complete or if
+     *                      the calling thread is one the Provider needs to complete it.
+     */
+    protected void awaitSendCompletion() throws JMSException {
+        if (sendInProgress) {
+            if (ProviderFuture.isBlockingProhibited()) {
+                throw new javax.jms.IllegalStateException(
+                    "Cannot modify a message that is being sent on a thread the Provider needs to complete the send");
+            }
+
+            synchronized (this) {
+                while (sendInProgress) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw JmsExceptionSupport.create(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a rough estimate of the encoded size of this message which is used when
+     * limiting the amount of message data held in memory.  The estimate covers a fixed
+     * allowance for the headers and properties plus the size of the body where it can
+     * be determined cheaply.
+     *
+     * @return the estimated size of this message in bytes.
+     */
+    public int getEstimatedSize() {
+        return ESTIMATED_HEADER_SIZE;
+    }
+
     public JmsConnection getConnection() {
         return connection;
     }
@@ -595,9 +723,43 @@ public class JmsMessage implements javax.jms.Message {
     }
 
     public JmsMessageFacade getFacade() {
+        checkReleased();
         return this.facade;
     }
 
+    /**
+     * Restores the state held by this message to that of a newly created message, called
+     * by a JmsInboundMessagePool before the message is handed out again.  The facade is
+     * recycled separately by the pool.
+     */
+    protected void recycle() {
+        this.acknowledgeCallback = null;
+        this.connection = null;
+        this.sharedEnvelope = null;
+        this.sendInProgress = false;
+        this.readOnlyBodyBeforeSend = false;
+        this.readOnlyPropertiesBeforeSend = false;
+        this.readOnlyBody = false;
+        this.readOnlyProperties = false;
+    }
+
+    /**
+     * @return true if this message was released to a JmsInboundMessagePool and is not in use.
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    void setReleased(boolean released) {
+        this.released = released;
+    }
+
+    private void checkReleased() {
+        if (released) {
+            throw new IllegalStateException("The message was used after it was released");
+        }
+    }
+
     public boolean isRedelivered() throws JMSException {
         return facade.getRedeliveryCounter() > 0;
     }
@@ -614,13 +776,15 @@ public class JmsMessage implements javax.jms.Message {
         }
     }
 
-    protected void checkReadOnlyProperties() throws MessageNotWriteableException {
+    protected void checkReadOnlyProperties() throws JMSException {
+        awaitSendCompletion();
         if (readOnlyProperties) {
             throw new MessageNotWriteableException("Message properties are read-only");
         }
     }
 
-    protected void checkReadOnlyBody() throws MessageNotWriteableException {
+    protected void checkReadOnlyBody() throws JMSException {
+        awaitSendCompletion();
         if (readOnlyBody) {
             throw new MessageNotWriteableException("Message body is read-only");
         }
@@ -46,6 +46,13 @@ public class JmsStreamMessage extends JmsMessage implements StreamMessage {
         return other;
     }
 
+    @Override
+    protected void recycle() {
+        super.recycle();
+        this.bytes = null;
+        this.remainingBytes = NO_BYTES_IN_FLIGHT;
+    }
+
     @Override
     public void onSend() throws JMSException {
         super.onSend();
@@ -53,6 +53,19 @@ public class JmsTextMessage extends JmsMessage implements TextMessage {
         return facade.getText();
     }
 
+    @Override
+    public int getEstimatedSize() {
+        int size = super.getEstimatedSize();
+        try {
+            String text = facade.getText();
+            if (text != null) {
+                size += text.length() * 2;
+            }
+        } catch (JMSException e) {
+        }
+        return size;
+    }
+
     @Override
     public String toString() {
         try {
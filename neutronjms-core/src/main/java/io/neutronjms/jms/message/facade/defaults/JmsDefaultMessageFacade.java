@@ -108,6 +108,34 @@ public class JmsDefaultMessageFacade implements JmsMessageFacade {
         }
     }
 
+    /**
+     * Restores this facade to the state of a newly created instance, including clearing
+     * the message body, so that it can be reused for another message.
+     */
+    public void recycle() {
+        if (this.properties != null) {
+            this.properties.clear();
+        } else {
+            this.properties = new HashMap<String, Object>();
+        }
+
+        this.priority = javax.jms.Message.DEFAULT_PRIORITY;
+        this.groupId = null;
+        this.groupSequence = 0;
+        this.messageId = null;
+        this.expiration = 0;
+        this.timestamp = 0;
+        this.correlationId = null;
+        this.persistent = false;
+        this.redeliveryCount = 0;
+        this.type = null;
+        this.destination = null;
+        this.replyTo = null;
+        this.userId = null;
+
+        clearBody();
+    }
+
     @Override
     public Map<String, Object> getProperties() throws IOException {
         lazyCreateProperties();
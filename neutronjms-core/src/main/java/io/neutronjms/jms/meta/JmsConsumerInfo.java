@@ -24,12 +24,17 @@ public final class JmsConsumerInfo implements JmsResource, Comparable<JmsConsume
     protected final JmsConsumerId consumerId;
     protected JmsDestination destination;
     protected int prefetchSize;
+    protected volatile int creditWindow;
+    protected volatile boolean creditWithheld;
     protected boolean browser;
     protected String selector;
+    protected boolean clientSideSelector;
     protected String clientId;
     protected String subscriptionName;
     protected boolean noLocal;
     protected int acknowledgementMode;
+    protected boolean messageRecycling;
+    protected boolean messageRecyclingDebug;
 
     // Can be used to track the last consumed message.
     private transient long lastDeliveredSequenceId;
@@ -51,12 +56,17 @@ public final class JmsConsumerInfo implements JmsResource, Comparable<JmsConsume
     private void copy(JmsConsumerInfo info) {
         info.destination = destination;
         info.prefetchSize = prefetchSize;
+        info.creditWindow = creditWindow;
+        info.creditWithheld = creditWithheld;
         info.browser = browser;
         info.selector = selector;
+        info.clientSideSelector = clientSideSelector;
         info.clientId = clientId;
         info.subscriptionName = subscriptionName;
         info.noLocal = noLocal;
         info.acknowledgementMode = acknowledgementMode;
+        info.messageRecycling = messageRecycling;
+        info.messageRecyclingDebug = messageRecyclingDebug;
     }
 
     public boolean isDurable() {
@@ -89,6 +99,37 @@ public final class JmsConsumerInfo implements JmsResource, Comparable<JmsConsume
 
     public void setPrefetchSize(int prefetchSize) {
         this.prefetchSize = prefetchSize;
+        this.creditWindow = prefetchSize;
+    }
+
+    /**
+     * Returns the number of messages the Provider should keep credited to the remote
+     * peer for this consumer.  This is the prefetch size unless the window is being
+     * adjusted to the consumer's processing rate.
+     *
+     * @return the current credit window of the consumer.
+     */
+    public int getCreditWindow() {
+        return creditWindow;
+    }
+
+    public void setCreditWindow(int creditWindow) {
+        this.creditWindow = creditWindow;
+    }
+
+    /**
+     * Returns whether the Provider should hold back further credit for this consumer
+     * because the memory limit of its buffer has been reached.  The Provider grants the
+     * withheld credit when it is next asked to pull for the consumer.
+     *
+     * @return true if the consumer cannot currently accept more messages.
+     */
+    public boolean isCreditWithheld() {
+        return creditWithheld;
+    }
+
+    public void setCreditWithheld(boolean creditWithheld) {
+        this.creditWithheld = creditWithheld;
     }
 
     public String getSelector() {
@@ -99,6 +140,45 @@ public final class JmsConsumerInfo implements JmsResource, Comparable<JmsConsume
         this.selector = selector;
     }
 
+    /**
+     * Returns whether the selector must be evaluated in the client, which the Provider
+     * requests when the remote peer did not accept the selector.
+     *
+     * @return true if the consumer must filter its messages itself.
+     */
+    public boolean isClientSideSelector() {
+        return clientSideSelector;
+    }
+
+    public void setClientSideSelector(boolean clientSideSelector) {
+        this.clientSideSelector = clientSideSelector;
+    }
+
+    /**
+     * Returns whether the Provider should reuse the envelopes and messages it creates for
+     * this consumer once their deliveries are settled.
+     *
+     * @return true if incoming messages are recycled.
+     */
+    public boolean isMessageRecycling() {
+        return messageRecycling;
+    }
+
+    public void setMessageRecycling(boolean messageRecycling) {
+        this.messageRecycling = messageRecycling;
+    }
+
+    /**
+     * @return true if recycled envelopes and messages are checked for use after release.
+     */
+    public boolean isMessageRecyclingDebug() {
+        return messageRecyclingDebug;
+    }
+
+    public void setMessageRecyclingDebug(boolean messageRecyclingDebug) {
+        this.messageRecyclingDebug = messageRecyclingDebug;
+    }
+
     public String getClientId() {
         return clientId;
     }
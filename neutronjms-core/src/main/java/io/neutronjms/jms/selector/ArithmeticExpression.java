@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.selector;
+
+import io.neutronjms.jms.message.facade.JmsMessageFacade;
+
+import javax.jms.JMSException;
+
+/**
+ * Arithmetic on numeric values.  Exact operands are computed as long values and any
+ * approximate operand makes the result a double, a non-numeric or unknown operand
+ * makes the result unknown.
+ */
+abstract class ArithmeticExpression extends Expression {
+
+    static final char PLUS = '+';
+    static final char MINUS = '-';
+    static final char MULTIPLY = '*';
+    static final char DIVIDE = '/';
+
+    /**
+     * Creates a binary arithmetic expression.
+     */
+    static Expression create(char operator, Expression left, Expression right) throws JMSException {
+        Expression expression = new Binary(operator, left, right);
+        if (left.isConstant() && right.isConstant()) {
+            return Constant.of(expression.evaluate(null));
+        }
+        return expression;
+    }
+
+    /**
+     * Creates a unary minus expression.
+     */
+    static Expression negate(Expression operand) throws JMSException {
+        Expression expression = new Negate(operand);
+        if (operand.isConstant()) {
+            return Constant.of(expression.evaluate(null));
+        }
+        return expression;
+    }
+
+    private static final class Binary extends ArithmeticExpression {
+
+        private final char operator;
+        private final Expression left;
+        private final Expression right;
+
+        public Binary(char operator, Expression left, Expression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object evaluate(JmsMessageFacade message) throws JMSException {
+            Object lv = left.evaluate(message);
+            if (!(lv instanceof Number)) {
+                return null;
+            }
+            Object rv = right.evaluate(message);
+            if (!(rv instanceof Number)) {
+                return null;
+            }
+
+            if (isIntegral(lv) && isIntegral(rv)) {
+                long l = ((Number) lv).longValue();
+                long r = ((Number) rv).longValue();
+                switch (operator) {
+                    case PLUS:
+                        return Long.valueOf(l + r);
+                    case MINUS:
+                        return Long.valueOf(l - r);
+                    case MULTIPLY:
+                        return Long.valueOf(l * r);
+                    default:
+                        return r == 0 ? null : Long.valueOf(l / r);
+                }
+            }
+
+            double l = ((Number) lv).doubleValue();
+            double r = ((Number) rv).doubleValue();
+            switch (operator) {
+                case PLUS:
+                    return Double.valueOf(l + r);
+                case MINUS:
+                    return Double.valueOf(l - r);
+                case MULTIPLY:
+                    return Double.valueOf(l * r);
+                default:
+                    return Double.valueOf(l / r);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " " + operator + " " + right + ")";
+        }
+    }
+
+    private static final class Negate extends ArithmeticExpression {
+
+        private final Expression operand;
+
+        public Negate(Expression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        Object evaluate(JmsMessageFacade message) throws JMSException {
+            Object value = operand.evaluate(message);
+            if (!(value instanceof Number)) {
+                return null;
+            }
+
+            if (isIntegral(value)) {
+                return Long.valueOf(-((Number) value).longValue());
+            }
+            return Double.valueOf(-((Number) value).doubleValue());
+        }
+
+        @Override
+        public String toString() {
+            return "(-" + operand + ")";
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.selector;
+
+import io.neutronjms.jms.message.facade.JmsMessageFacade;
+
+import javax.jms.JMSException;
+
+/**
+ * An expression that yields TRUE, FALSE or null for unknown, and the AND, OR and NOT
+ * operators that combine them using the three valued logic of the JMS specification.
+ */
+abstract class BooleanExpression extends Expression {
+
+    @Override
+    abstract Boolean evaluate(JmsMessageFacade message) throws JMSException;
+
+    static Expression and(Expression left, Expression right) throws JMSException {
+        if (isFalse(left) || isFalse(right)) {
+            return Constant.FALSE;
+        } else if (isTrue(left) && right instanceof BooleanExpression) {
+            return right;
+        } else if (isTrue(right) && left instanceof BooleanExpression) {
+            return left;
+        }
+        return fold(new And(left, right), left, right);
+    }
+
+    static Expression or(Expression left, Expression right) throws JMSException {
+        if (isTrue(left) || isTrue(right)) {
+            return Constant.TRUE;
+        } else if (isFalse(left) && right instanceof BooleanExpression) {
+            return right;
+        } else if (isFalse(right) && left instanceof BooleanExpression) {
+            return left;
+        }
+        return fold(new Or(left, right), left, right);
+    }
+
+    static Expression not(Expression operand) throws JMSException {
+        return fold(new Not(operand), operand, operand);
+    }
+
+    static Expression fold(BooleanExpression expression, Expression left, Expression right) throws JMSException {
+        if (left.isConstant() && right.isConstant()) {
+            return Constant.of(expression.evaluate(null));
+        }
+        return expression;
+    }
+
+    private static boolean isTrue(Expression expression) {
+        return expression.isConstant() && Boolean.TRUE.equals(((Constant) expression).getValue());
+    }
+
+    private static boolean isFalse(Expression expression) {
+        return expression.isConstant() && Boolean.FALSE.equals(((Constant) expression).getValue());
+    }
+
+    private static final class And extends BooleanExpression {
+
+        private final Expression left;
+        private final Expression right;
+
+        public And(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Boolean evaluate(JmsMessageFacade message) throws JMSException {
+            Object lv = left.evaluate(message);
+            if (Boolean.FALSE.equals(lv)) {
+                return Boolean.FALSE;
+            }
+
+            Object rv = right.evaluate(message);
+            if (Boolean.FALSE.equals(rv)) {
+                return Boolean.FALSE;
+            } else if (Boolean.TRUE.equals(lv) && Boolean.TRUE.equals(rv)) {
+                return Boolean.TRUE;
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " AND " + right + ")";
+        }
+    }
+
+    private static final class Or extends BooleanExpression {
+
+        private final Expression left;
+        private final Expression right;
+
+        public Or(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Boolean evaluate(JmsMessageFacade message) throws JMSException {
+            Object lv = left.evaluate(message);
+            if (Boolean.TRUE.equals(lv)) {
+                return Boolean.TRUE;
+            }
+
+            Object rv = right.evaluate(message);
+            if (Boolean.TRUE.equals(rv)) {
+                return Boolean.TRUE;
+            } else if (Boolean.FALSE.equals(lv) && Boolean.FALSE.equals(rv)) {
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " OR " + right + ")";
+        }
+    }
+
+    private static final class Not extends BooleanExpression {
+
+        private final Expression operand;
+
+        public Not(Expression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        Boolean evaluate(JmsMessageFacade message) throws JMSException {
+            Object value = operand.evaluate(message);
+            if (Boolean.TRUE.equals(value)) {
+                return Boolean.FALSE;
+            } else if (Boolean.FALSE.equals(value)) {
+                return Boolean.TRUE;
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "(NOT " + operand + ")";
+        }
+    }
+}
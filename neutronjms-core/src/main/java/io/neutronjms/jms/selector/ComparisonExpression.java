@@ -0,0 +1,334 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.selector;
+
+import io.neutronjms.jms.message.facade.JmsMessageFacade;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.jms.JMSException;
+
+/**
+ * The comparison operators of the selector language.
+ *
+ * Any comparison with an unknown value is unknown.  Numbers compare with numbers, while
+ * strings and booleans only support equality with values of their own type, all other
+ * comparisons of unlike types are false.
+ */
+abstract class ComparisonExpression extends BooleanExpression {
+
+    static final int EQUAL = 0;
+    static final int NOT_EQUAL = 1;
+    static final int LESS_THAN = 2;
+    static final int LESS_THAN_OR_EQUAL = 3;
+    static final int GREATER_THAN = 4;
+    static final int GREATER_THAN_OR_EQUAL = 5;
+
+    private static final String[] OPERATORS = new String[] { "=", "<>", "<", "<=", ">", ">=" };
+
+    static Expression create(int operator, Expression left, Expression right) throws JMSException {
+        BooleanExpression expression;
+        if (operator == EQUAL || operator == NOT_EQUAL) {
+            expression = new Equality(left, right, operator == NOT_EQUAL);
+        } else {
+            expression = new Relational(operator, left, right);
+        }
+        return fold(expression, left, right);
+    }
+
+    static Expression in(Expression value, Set<String> values, boolean negated) throws JMSException {
+        return fold(new In(value, values, negated), value, value);
+    }
+
+    static Expression like(Expression value, String pattern, Character escape, boolean negated) throws JMSException {
+        return fold(new Like(value, pattern, escape, negated), value, value);
+    }
+
+    static Expression isNull(Expression value, boolean negated) throws JMSException {
+        return fold(new IsNull(value, negated), value, value);
+    }
+
+    static int compareNumbers(Object lv, Object rv) {
+        if (isIntegral(lv) && isIntegral(rv)) {
+            long l = ((Number) lv).longValue();
+            long r = ((Number) rv).longValue();
+            return l < r ? -1 : (l == r ? 0 : 1);
+        }
+
+        double l = ((Number) lv).doubleValue();
+        double r = ((Number) rv).doubleValue();
+        return l < r ? -1 : (l == r ? 0 : 1);
+    }
+
+    private static final class Equality extends ComparisonExpression {
+
+        private final Expression left;
+        private final Expression right;
+        private final boolean negated;
+
+        public Equality(Expression left, Expression right, boolean negated) {
+            this.left = left;
+            this.right = right;
+            this.negated = negated;
+        }
+
+        @Override
+        Boolean evaluate(JmsMessageFacade message) throws JMSException {
+            Object lv = left.evaluate(message);
+            if (lv == null) {
+                return null;
+            }
+            Object rv = right.evaluate(message);
+            if (rv == null) {
+                return null;
+            }
+
+            boolean equal;
+            if (lv instanceof String) {
+                if (!(rv instanceof String)) {
+                    return Boolean.FALSE;
+                }
+                equal = lv.equals(rv);
+            } else if (lv instanceof Number) {
+                if (!(rv instanceof Number)) {
+                    return Boolean.FALSE;
+                }
+                equal = compareNumbers(lv, rv) == 0;
+            } else if (lv instanceof Boolean && rv instanceof Boolean) {
+                equal = lv.equals(rv);
+            } else {
+                return Boolean.FALSE;
+            }
+
+            return valueOf(equal != negated);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + (negated ? " <> " : " = ") + right + ")";
+        }
+    }
+
+    private static final class Relational extends ComparisonExpression {
+
+        private final int operator;
+        private final Expression left;
+        private final Expression right;
+
+        public Relational(int operator, Expression left, Expression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Boolean evaluate(JmsMessageFacade message) throws JMSException {
+            Object lv = left.evaluate(message);
+            if (lv == null) {
+                return null;
+            }
+            Object rv = right.evaluate(message);
+            if (rv == null) {
+                return null;
+            }
+
+            if (!(lv instanceof Number) || !(rv instanceof Number)) {
+                return Boolean.FALSE;
+            }
+
+            int result = compareNumbers(lv, rv);
+            switch (operator) {
+                case LESS_THAN:
+                    return valueOf(result < 0);
+                case LESS_THAN_OR_EQUAL:
+                    return valueOf(result <= 0);
+                case GREATER_THAN:
+                    return valueOf(result > 0);
+                default:
+                    return valueOf(result >= 0);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " " + OPERATORS[operator] + " " + right + ")";
+        }
+    }
+
+    private static final class In extends ComparisonExpression {
+
+        private final Expression value;
+        private final Set<String> values;
+        private final boolean negated;
+
+        public In(Expression value, Set<String> values, boolean negated) {
+            this.value = value;
+            this.values = values;
+            this.negated = negated;
+        }
+
+        @Override
+        Boolean evaluate(JmsMessageFacade message) throws JMSException {
+            Object lv = value.evaluate(message);
+            if (lv == null) {
+                return null;
+            } else if (!(lv instanceof String)) {
+                return Boolean.FALSE;
+            }
+
+            return valueOf(values.contains(lv) != negated);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + value + (negated ? " NOT IN " : " IN ") + values + ")";
+        }
+    }
+
+    private static final class IsNull extends ComparisonExpression {
+
+        private final Expression value;
+        private final boolean negated;
+
+        public IsNull(Expression value, boolean negated) {
+            this.value = value;
+            this.negated = negated;
+        }
+
+        @Override
+        Boolean evaluate(JmsMessageFacade message) throws JMSException {
+            return valueOf((value.evaluate(message) == null) != negated);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + value + (negated ? " IS NOT NULL)" : " IS NULL)");
+        }
+    }
+
+    /**
+     * LIKE compiled to a plain string test when the pattern allows it, only patterns with
+     * single character wildcards or wildcards in the middle use a regular expression.
+     */
+    private static final class Like extends ComparisonExpression {
+
+        private static final int EXACT = 0;
+        private static final int PREFIX = 1;
+        private static final int SUFFIX = 2;
+        private static final int CONTAINS = 3;
+        private static final int REGEX = 4;
+
+        private final Expression value;
+        private final String pattern;
+        private final boolean negated;
+
+        private final int kind;
+        private final String literal;
+        private final Pattern regex;
+
+        public Like(Expression value, String pattern, Character escape, boolean negated) {
+            this.value = value;
+            this.pattern = pattern;
+            this.negated = negated;
+
+            // Split the pattern into literal text and wildcards.
+            StringBuilder text = new StringBuilder();
+            StringBuilder expression = new StringBuilder("\\A");
+            boolean singleWildcard = false;
+            int firstMulti = -1;
+            int lastMulti = -1;
+            int multiCount = 0;
+            for (int i = 0; i < pattern.length(); ++i) {
+                char c = pattern.charAt(i);
+                if (escape != null && c == escape.charValue() && i + 1 < pattern.length()) {
+                    c = pattern.charAt(++i);
+                    text.append(c);
+                    expression.append(Pattern.quote(String.valueOf(c)));
+                } else if (c == '%') {
+                    if (firstMulti < 0) {
+                        firstMulti = text.length();
+                    }
+                    lastMulti = text.length();
+                    multiCount++;
+                    expression.append(".*");
+                } else if (c == '_') {
+                    singleWildcard = true;
+                    expression.append('.');
+                } else {
+                    text.append(c);
+                    expression.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            expression.append("\\z");
+
+            String plain = text.toString();
+            if (singleWildcard) {
+                kind = REGEX;
+            } else if (multiCount == 0) {
+                kind = EXACT;
+            } else if (firstMulti == plain.length() && lastMulti == plain.length()) {
+                kind = PREFIX;
+            } else if (firstMulti == 0 && lastMulti == 0) {
+                kind = SUFFIX;
+            } else if (firstMulti == 0 && lastMulti == plain.length() && multiCount == 2) {
+                kind = CONTAINS;
+            } else {
+                kind = REGEX;
+            }
+
+            this.literal = plain;
+            this.regex = kind == REGEX ? Pattern.compile(expression.toString(), Pattern.DOTALL) : null;
+        }
+
+        @Override
+        Boolean evaluate(JmsMessageFacade message) throws JMSException {
+            Object lv = value.evaluate(message);
+            if (lv == null) {
+                return null;
+            } else if (!(lv instanceof String)) {
+                return Boolean.FALSE;
+            }
+
+            String string = (String) lv;
+            boolean matched;
+            switch (kind) {
+                case EXACT:
+                    matched = string.equals(literal);
+                    break;
+                case PREFIX:
+                    matched = string.startsWith(literal);
+                    break;
+                case SUFFIX:
+                    matched = string.endsWith(literal);
+                    break;
+                case CONTAINS:
+                    matched = string.contains(literal);
+                    break;
+                default:
+                    matched = regex.matcher(string).matches();
+            }
+
+            return valueOf(matched != negated);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + value + (negated ? " NOT LIKE '" : " LIKE '") + pattern.replace("'", "''") + "')";
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.selector;
+
+import io.neutronjms.jms.message.JmsMessagePropertyGetter;
+import io.neutronjms.jms.message.facade.JmsMessageFacade;
+
+import javax.jms.JMSException;
+
+/**
+ * A node in a compiled selector expression tree.
+ *
+ * Nodes evaluate to a String, Boolean or Number value, or to null when the value is
+ * unknown.  Boolean results are always one of the two canonical Boolean instances.
+ */
+abstract class Expression {
+
+    /**
+     * Evaluates this expression against the given message.
+     *
+     * @param message
+     *        the message the expression is evaluated against, null only for constants.
+     *
+     * @return the value of the expression or null if it is unknown.
+     *
+     * @throws JMSException if a value cannot be read from the message.
+     */
+    abstract Object evaluate(JmsMessageFacade message) throws JMSException;
+
+    /**
+     * @return true if the expression yields the same value for every message.
+     */
+    boolean isConstant() {
+        return false;
+    }
+
+    static Boolean valueOf(boolean value) {
+        return value ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * A literal value, or the folded value of an expression over literals only.
+     */
+    static final class Constant extends Expression {
+
+        static final Constant NULL = new Constant(null);
+        static final Constant TRUE = new Constant(Boolean.TRUE);
+        static final Constant FALSE = new Constant(Boolean.FALSE);
+
+        private final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        static Constant of(Object value) {
+            if (value == null) {
+                return NULL;
+            } else if (value instanceof Boolean) {
+                return ((Boolean) value).booleanValue() ? TRUE : FALSE;
+            }
+            return new Constant(value);
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        @Override
+        Object evaluate(JmsMessageFacade message) {
+            return value;
+        }
+
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            if (value instanceof String) {
+                return "'" + ((String) value).replace("'", "''") + "'";
+            }
+            return String.valueOf(value);
+        }
+    }
+
+    /**
+     * A message header or property, the accessor for the name is resolved once when the
+     * selector is compiled.
+     */
+    static final class Property extends Expression {
+
+        private final JmsMessagePropertyGetter getter;
+
+        Property(String name) {
+            this.getter = new JmsMessagePropertyGetter(name);
+        }
+
+        @Override
+        Object evaluate(JmsMessageFacade message) throws JMSException {
+            return getter.get(message);
+        }
+
+        @Override
+        public String toString() {
+            return getter.getName();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.selector;
+
+import io.neutronjms.jms.message.facade.JmsMessageFacade;
+import io.neutronjms.jms.selector.Expression.Constant;
+
+import javax.jms.InvalidSelectorException;
+import javax.jms.JMSException;
+
+/**
+ * A JMS message selector compiled for evaluation in the client.
+ *
+ * The selector is parsed once into an expression tree in which expressions over literals
+ * are folded into constants and every header or property accessor is resolved up front.
+ * Evaluation reads the values it needs directly from the JmsMessageFacade and does not
+ * copy the message properties.
+ */
+public final class JmsSelector {
+
+    private final String selector;
+    private final Expression expression;
+
+    private JmsSelector(String selector, Expression expression) {
+        this.selector = selector;
+        this.expression = expression;
+    }
+
+    /**
+     * Compiles the given selector.
+     *
+     * @param selector
+     *        the JMS message selector to compile.
+     *
+     * @return a new JmsSelector that evaluates the given selector.
+     *
+     * @throws InvalidSelectorException if the selector is not valid.
+     */
+    public static JmsSelector compile(String selector) throws InvalidSelectorException {
+        if (selector == null || selector.trim().isEmpty()) {
+            throw new InvalidSelectorException("Selector cannot be empty");
+        }
+
+        return new JmsSelector(selector, SelectorParser.parse(selector));
+    }
+
+    /**
+     * Evaluates the selector against a message.
+     *
+     * @param message
+     *        the facade of the message to test.
+     *
+     * @return true if the selector evaluates to TRUE for the message.
+     *
+     * @throws JMSException if a value cannot be read from the message.
+     */
+    public boolean matches(JmsMessageFacade message) throws JMSException {
+        return Boolean.TRUE.equals(expression.evaluate(message));
+    }
+
+    /**
+     * @return true if the selector is known to match every message.
+     */
+    public boolean isAlwaysTrue() {
+        return expression.isConstant() && Boolean.TRUE.equals(((Constant) expression).getValue());
+    }
+
+    /**
+     * @return the selector text this instance was compiled from.
+     */
+    public String getSelector() {
+        return selector;
+    }
+
+    @Override
+    public String toString() {
+        return expression.toString();
+    }
+}
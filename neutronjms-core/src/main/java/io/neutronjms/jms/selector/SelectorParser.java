@@ -0,0 +1,434 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.selector;
+
+import io.neutronjms.jms.selector.Expression.Constant;
+import io.neutronjms.jms.selector.Expression.Property;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.jms.InvalidSelectorException;
+import javax.jms.JMSException;
+
+/**
+ * Recursive descent parser for the JMS message selector language.  Expressions over
+ * literals are folded into constants while the tree is built.
+ *
+ * <pre>
+ * or         := and ( OR and )*
+ * and        := not ( AND not )*
+ * not        := NOT not | comparison
+ * comparison := sum [ op sum | [NOT] BETWEEN sum AND sum | [NOT] IN ( string, ... )
+ *                   | [NOT] LIKE string [ESCAPE string] | IS [NOT] NULL ]
+ * sum        := product ( (+|-) product )*
+ * product    := unary ( (*|/) unary )*
+ * unary      := (+|-) unary | primary
+ * primary    := literal | identifier | ( or )
+ * </pre>
+ */
+final class SelectorParser {
+
+    private static final int EOF = 0;
+    private static final int IDENTIFIER = 1;
+    private static final int STRING = 2;
+    private static final int NUMBER = 3;
+    private static final int OPERATOR = 4;
+    private static final int KEYWORD = 5;
+
+    private final String selector;
+    private int position;
+
+    private int tokenType;
+    private String tokenText;
+    private Object tokenValue;
+    private int tokenStart;
+
+    private SelectorParser(String selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * Parses and compiles the given selector.
+     *
+     * @param selector
+     *        the selector text.
+     *
+     * @return the root of the compiled expression tree.
+     *
+     * @throws InvalidSelectorException if the selector is not valid.
+     */
+    static Expression parse(String selector) throws InvalidSelectorException {
+        SelectorParser parser = new SelectorParser(selector);
+        try {
+            parser.next();
+            Expression expression = parser.parseOr();
+            if (parser.tokenType != EOF) {
+                throw parser.error("Unexpected '" + parser.tokenText + "'");
+            }
+            return expression;
+        } catch (InvalidSelectorException e) {
+            throw e;
+        } catch (JMSException e) {
+            throw parser.error(e.getMessage());
+        }
+    }
+
+    private Expression parseOr() throws JMSException {
+        Expression expression = parseAnd();
+        while (acceptKeyword("OR")) {
+            expression = BooleanExpression.or(expression, parseAnd());
+        }
+        return expression;
+    }
+
+    private Expression parseAnd() throws JMSException {
+        Expression expression = parseNot();
+        while (acceptKeyword("AND")) {
+            expression = BooleanExpression.and(expression, parseNot());
+        }
+        return expression;
+    }
+
+    private Expression parseNot() throws JMSException {
+        if (acceptKeyword("NOT")) {
+            return BooleanExpression.not(parseNot());
+        }
+        return parseComparison();
+    }
+
+    private Expression parseComparison() throws JMSException {
+        Expression left = parseSum();
+
+        if (tokenType == OPERATOR) {
+            int operator = -1;
+            if ("=".equals(tokenText)) {
+                operator = ComparisonExpression.EQUAL;
+            } else if ("<>".equals(tokenText)) {
+                operator = ComparisonExpression.NOT_EQUAL;
+            } else if ("<".equals(tokenText)) {
+                operator = ComparisonExpression.LESS_THAN;
+            } else if ("<=".equals(tokenText)) {
+                operator = ComparisonExpression.LESS_THAN_OR_EQUAL;
+            } else if (">".equals(tokenText)) {
+                operator = ComparisonExpression.GREATER_THAN;
+            } else if (">=".equals(tokenText)) {
+                operator = ComparisonExpression.GREATER_THAN_OR_EQUAL;
+            }
+
+            if (operator >= 0) {
+                next();
+                return ComparisonExpression.create(operator, left, parseSum());
+            }
+            return left;
+        }
+
+        if (acceptKeyword("IS")) {
+            boolean negated = acceptKeyword("NOT");
+            expectKeyword("NULL");
+            return ComparisonExpression.isNull(left, negated);
+        }
+
+        boolean negated = acceptKeyword("NOT");
+        if (acceptKeyword("BETWEEN")) {
+            Expression lower = parseSum();
+            expectKeyword("AND");
+            Expression upper = parseSum();
+            Expression between = BooleanExpression.and(
+                ComparisonExpression.create(ComparisonExpression.GREATER_THAN_OR_EQUAL, left, lower),
+                ComparisonExpression.create(ComparisonExpression.LESS_THAN_OR_EQUAL, left, upper));
+            return negated ? BooleanExpression.not(between) : between;
+        } else if (acceptKeyword("IN")) {
+            expectOperator("(");
+            Set<String> values = new HashSet<String>();
+            do {
+                values.add(expectString());
+            } while (acceptOperator(","));
+            expectOperator(")");
+            return ComparisonExpression.in(left, values, negated);
+        } else if (acceptKeyword("LIKE")) {
+            String pattern = expectString();
+            Character escape = null;
+            if (acceptKeyword("ESCAPE")) {
+                String text = expectString();
+                if (text.length() != 1) {
+                    throw error("ESCAPE must be a single character");
+                }
+                escape = Character.valueOf(text.charAt(0));
+            }
+            return ComparisonExpression.like(left, pattern, escape, negated);
+        } else if (negated) {
+            throw error("Expected BETWEEN, IN or LIKE after NOT");
+        }
+
+        return left;
+    }
+
+    private Expression parseSum() throws JMSException {
+        Expression expression = parseProduct();
+        for (;;) {
+            if (acceptOperator("+")) {
+                expression = ArithmeticExpression.create(ArithmeticExpression.PLUS, expression, parseProduct());
+            } else if (acceptOperator("-")) {
+                expression = ArithmeticExpression.create(ArithmeticExpression.MINUS, expression, parseProduct());
+            } else {
+                return expression;
+            }
+        }
+    }
+
+    private Expression parseProduct() throws JMSException {
+        Expression expression = parseUnary();
+        for (;;) {
+            if (acceptOperator("*")) {
+                expression = ArithmeticExpression.create(ArithmeticExpression.MULTIPLY, expression, parseUnary());
+            } else if (acceptOperator("/")) {
+                expression = ArithmeticExpression.create(ArithmeticExpression.DIVIDE, expression, parseUnary());
+            } else {
+                return expression;
+            }
+        }
+    }
+
+    private Expression parseUnary() throws JMSException {
+        if (acceptOperator("+")) {
+            return parseUnary();
+        } else if (tokenType == OPERATOR && "-".equals(tokenText)) {
+            next();
+            if (tokenType == NUMBER) {
+                // Fold the sign into the literal so the smallest long can be written.
+                Object value = parseNumber("-" + tokenText);
+                next();
+                return Constant.of(value);
+            }
+            return ArithmeticExpression.negate(parseUnary());
+        }
+        return parsePrimary();
+    }
+
+    private Expression parsePrimary() throws JMSException {
+        switch (tokenType) {
+            case STRING: {
+                Object value = tokenValue;
+                next();
+                return Constant.of(value);
+            }
+            case NUMBER: {
+                Object value = parseNumber(tokenText);
+                next();
+                return Constant.of(value);
+            }
+            case IDENTIFIER: {
+                String name = tokenText;
+                next();
+                return new Property(name);
+            }
+            case KEYWORD:
+                if (acceptKeyword("TRUE")) {
+                    return Constant.TRUE;
+                } else if (acceptKeyword("FALSE")) {
+                    return Constant.FALSE;
+                } else if (acceptKeyword("NULL")) {
+                    return Constant.NULL;
+                }
+                break;
+            case OPERATOR:
+                if (acceptOperator("(")) {
+                    Expression expression = parseOr();
+                    expectOperator(")");
+                    return expression;
+                }
+                break;
+            default:
+                throw error("Unexpected end of selector");
+        }
+
+        throw error("Unexpected '" + tokenText + "'");
+    }
+
+    //----- Token handling ---------------------------------------------------//
+
+    private boolean acceptKeyword(String keyword) throws JMSException {
+        if (tokenType == KEYWORD && keyword.equals(tokenText)) {
+            next();
+            return true;
+        }
+        return false;
+    }
+
+    private void expectKeyword(String keyword) throws JMSException {
+        if (!acceptKeyword(keyword)) {
+            throw error("Expected " + keyword);
+        }
+    }
+
+    private boolean acceptOperator(String operator) throws JMSException {
+        if (tokenType == OPERATOR && operator.equals(tokenText)) {
+            next();
+            return true;
+        }
+        return false;
+    }
+
+    private void expectOperator(String operator) throws JMSException {
+        if (!acceptOperator(operator)) {
+            throw error("Expected '" + operator + "'");
+        }
+    }
+
+    private String expectString() throws JMSException {
+        if (tokenType != STRING) {
+            throw error("Expected a string literal");
+        }
+        String value = (String) tokenValue;
+        next();
+        return value;
+    }
+
+    private void next() throws InvalidSelectorException {
+        int length = selector.length();
+        while (position < length && Character.isWhitespace(selector.charAt(position))) {
+            position++;
+        }
+
+        tokenStart = position;
+        tokenValue = null;
+        if (position == length) {
+            tokenType = EOF;
+            tokenText = "";
+            return;
+        }
+
+        char c = selector.charAt(position);
+        if (c == '\'') {
+            StringBuilder value = new StringBuilder();
+            position++;
+            for (;;) {
+                if (position == length) {
+                    throw error("Unterminated string literal");
+                }
+                char s = selector.charAt(position++);
+                if (s == '\'') {
+                    if (position < length && selector.charAt(position) == '\'') {
+                        value.append('\'');
+                        position++;
+                    } else {
+                        break;
+                    }
+                } else {
+                    value.append(s);
+                }
+            }
+            tokenType = STRING;
+            tokenValue = value.toString();
+            tokenText = selector.substring(tokenStart, position);
+        } else if (Character.isDigit(c) || (c == '.' && position + 1 < length && Character.isDigit(selector.charAt(position + 1)))) {
+            position++;
+            while (position < length) {
+                char n = selector.charAt(position);
+                if (Character.isLetterOrDigit(n) || n == '.') {
+                    position++;
+                } else if ((n == '+' || n == '-') && isExponent(selector.charAt(position - 1))) {
+                    position++;
+                } else {
+                    break;
+                }
+            }
+            tokenType = NUMBER;
+            // The value is parsed by the caller, which may first apply a leading sign.
+            tokenText = selector.substring(tokenStart, position);
+        } else if (Character.isJavaIdentifierStart(c)) {
+            position++;
+            while (position < length && Character.isJavaIdentifierPart(selector.charAt(position))) {
+                position++;
+            }
+            tokenText = selector.substring(tokenStart, position);
+            String upper = tokenText.toUpperCase();
+            if (isKeyword(upper)) {
+                tokenType = KEYWORD;
+                tokenText = upper;
+            } else {
+                tokenType = IDENTIFIER;
+            }
+        } else {
+            position++;
+            if ((c == '<' || c == '>') && position < length) {
+                char n = selector.charAt(position);
+                if (n == '=' || (c == '<' && n == '>')) {
+                    position++;
+                }
+            }
+            tokenType = OPERATOR;
+            tokenText = selector.substring(tokenStart, position);
+            if ("=<><=>=+-*/(),".indexOf(c) < 0) {
+                throw error("Unexpected character '" + c + "'");
+            }
+        }
+    }
+
+    private boolean isExponent(char c) {
+        if (c != 'e' && c != 'E') {
+            return false;
+        }
+        // Hex literals may contain an E digit that is not an exponent.
+        String text = selector.substring(tokenStart, position);
+        return !text.startsWith("0x") && !text.startsWith("0X");
+    }
+
+    private static boolean isKeyword(String text) {
+        return "AND".equals(text) || "OR".equals(text) || "NOT".equals(text) ||
+               "BETWEEN".equals(text) || "LIKE".equals(text) || "ESCAPE".equals(text) ||
+               "IN".equals(text) || "IS".equals(text) || "NULL".equals(text) ||
+               "TRUE".equals(text) || "FALSE".equals(text);
+    }
+
+    private Object parseNumber(String text) throws InvalidSelectorException {
+        try {
+            boolean negative = text.startsWith("-");
+            String digits = negative ? text.substring(1) : text;
+            String sign = negative ? "-" : "";
+
+            if (digits.startsWith("0x") || digits.startsWith("0X")) {
+                return Long.valueOf(Long.parseLong(sign + strip(digits.substring(2)), 16));
+            }
+
+            if (digits.indexOf('.') >= 0 || digits.indexOf('e') >= 0 || digits.indexOf('E') >= 0 ||
+                digits.endsWith("d") || digits.endsWith("D") || digits.endsWith("f") || digits.endsWith("F")) {
+                return Double.valueOf(text);
+            }
+
+            digits = strip(digits);
+            if (digits.length() > 1 && digits.startsWith("0")) {
+                return Long.valueOf(Long.parseLong(sign + digits.substring(1), 8));
+            }
+            return Long.valueOf(Long.parseLong(sign + digits));
+        } catch (NumberFormatException e) {
+            throw error("Invalid numeric literal '" + text + "'");
+        }
+    }
+
+    private static String strip(String digits) {
+        if (digits.endsWith("l") || digits.endsWith("L")) {
+            return digits.substring(0, digits.length() - 1);
+        }
+        return digits;
+    }
+
+    private InvalidSelectorException error(String message) {
+        return new InvalidSelectorException(message + " at position " + tokenStart + " in selector: " + selector);
+    }
+}
@@ -22,8 +22,9 @@ import io.neutronjms.util.IOExceptionSupport;
 
 import java.io.IOException;
 import java.net.URI;
-import java.util.concurrent.Executors;
+import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -46,7 +47,7 @@ public abstract class AbstractAsyncProvider implements AsyncProvider {
     public AbstractAsyncProvider(URI remoteURI) {
         this.remoteURI = remoteURI;
 
-        this.serializer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        this.serializer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
 
             @Override
             public Thread newThread(Runnable runner) {
@@ -55,7 +56,13 @@ public abstract class AbstractAsyncProvider implements AsyncProvider {
                 serial.setName(toString());
                 return serial;
             }
-        });
+        }) {
+
+            @Override
+            protected void afterExecute(Runnable task, Throwable error) {
+                onSerializerTaskComplete();
+            }
+        };
     }
 
     @Override
@@ -87,6 +94,11 @@ public abstract class AbstractAsyncProvider implements AsyncProvider {
         throw new UnsupportedOperationException("Provider does not support message pull");
     }
 
+    @Override
+    public void resumeCredit(List<JmsConsumerId> consumerIds, AsyncResult request) throws IOException, UnsupportedOperationException {
+        request.onSuccess();
+    }
+
     @Override
     public void setProviderListener(ProviderListener listener) {
         this.listener = listener;
@@ -109,6 +121,14 @@ public abstract class AbstractAsyncProvider implements AsyncProvider {
         }
     }
 
+    /**
+     * Called on the serializer thread each time one of its tasks completes.  Providers
+     * use this to flush the data that the task sent to their Transport so that all of
+     * the writes made by a single task go out as one batch.
+     */
+    protected void onSerializerTaskComplete() {
+    }
+
     protected void checkClosed() throws IOException {
         if (closed.get()) {
             throw new IOException("The Provider is already closed");
@@ -26,6 +26,7 @@ import io.neutronjms.provider.ProviderConstants.ACK_TYPE;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 
 import javax.jms.JMSException;
 
@@ -161,6 +162,23 @@ public interface AsyncProvider {
      */
     void send(JmsOutboundMessageDispatch envelope, AsyncResult request) throws IOException, JMSException;
 
+    /**
+     * Sends a batch of JmsMessages to the remote peer in a single operation.
+     *
+     * The envelopes are sent in the order given, each one following the same rules as
+     * a single send.  The request is signaled once every send in the batch has completed
+     * or as soon as any one of them fails.
+     *
+     * @param envelopes
+     *        the message envelopes containing the messages to send and their routing.
+     * @param request
+     *        The request object that should be signaled when this operation completes.
+     *
+     * @throws IOException if an error occurs or the Provider is already closed.
+     * @throws JMSException if an error occurs due to JMS violation such as bad credentials.
+     */
+    void send(List<JmsOutboundMessageDispatch> envelopes, AsyncResult request) throws IOException, JMSException;
+
     /**
      * Called to acknowledge all messages that have been delivered in a given session.
      *
@@ -203,6 +221,29 @@ public interface AsyncProvider {
     void acknowledge(JmsInboundMessageDispatch envelope, ACK_TYPE ackType, AsyncResult request)
         throws IOException, JMSException;
 
+    /**
+     * Called to acknowledge a batch of JmsMessages with the same acknowledgment type.
+     *
+     * The provider should apply the acknowledgment to each message in the order given, the
+     * request is signaled once all of the messages in the batch have been acknowledged or on
+     * the first failure.
+     *
+     * The provider is required to implement this method without throwing any JMS or other
+     * exceptions such as UnsupportedOperationException.
+     *
+     * @param envelopes
+     *        The message dispatch envelopes of the messages being acknowledged.
+     * @param ackType
+     *        The type of acknowledgment being done.
+     * @param request
+     *        The request object that should be signaled when this operation completes.
+     *
+     * @throws IOException if an error occurs or the Provider is already closed.
+     * @throws JMSException if an error occurs due to JMS violation such as unmatched ack.
+     */
+    void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType, AsyncResult request)
+        throws IOException, JMSException;
+
     /**
      * Called to commit an open transaction.
      *
@@ -292,6 +333,21 @@ public interface AsyncProvider {
      */
     void pull(JmsConsumerId consumerId, long timeout, AsyncResult request) throws IOException, UnsupportedOperationException;
 
+    /**
+     * Grants the given consumers the credit that was held back from the remote peer
+     * while their buffers were full.  The client sets the credit withheld flag of each
+     * consumer's JmsConsumerInfo when its buffer fills and clears it again before making
+     * this call, a Provider that never withholds credit can complete the request at once.
+     *
+     * @param consumerIds
+     *        the consumers whose buffers have room again.
+     * @param request
+     *        The request object that should be signaled when this operation completes.
+     *
+     * @throws IOException if an error occurs or the Provider is already closed.
+     */
+    void resumeCredit(List<JmsConsumerId> consumerIds, AsyncResult request) throws IOException, UnsupportedOperationException;
+
     /**
      * Gets the Provider specific Message factory for use in the JMS layer when a Session
      * is asked to create a Message type.  The Provider should implement it's own internal
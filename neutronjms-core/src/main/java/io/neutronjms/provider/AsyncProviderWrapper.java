@@ -26,6 +26,7 @@ import io.neutronjms.provider.ProviderConstants.ACK_TYPE;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 
 import javax.jms.JMSException;
 
@@ -90,6 +91,11 @@ public class AsyncProviderWrapper<E extends AsyncProvider> implements AsyncProvi
         next.send(envelope, request);
     }
 
+    @Override
+    public void send(List<JmsOutboundMessageDispatch> envelopes, AsyncResult request) throws IOException, JMSException {
+        next.send(envelopes, request);
+    }
+
     @Override
     public void acknowledge(JmsSessionId sessionId, AsyncResult request) throws IOException, JMSException {
         next.acknowledge(sessionId, request);
@@ -100,6 +106,11 @@ public class AsyncProviderWrapper<E extends AsyncProvider> implements AsyncProvi
         next.acknowledge(envelope, ackType, request);
     }
 
+    @Override
+    public void acknowledge(List<JmsInboundMessageDispatch> envelopes, ACK_TYPE ackType, AsyncResult request) throws IOException, JMSException {
+        next.acknowledge(envelopes, ackType, request);
+    }
+
     @Override
     public void commit(JmsSessionId sessionId, AsyncResult request) throws IOException, JMSException, UnsupportedOperationException {
         next.commit(sessionId, request);
@@ -125,6 +136,11 @@ public class AsyncProviderWrapper<E extends AsyncProvider> implements AsyncProvi
         next.pull(consumerId, timeout, request);
     }
 
+    @Override
+    public void resumeCredit(List<JmsConsumerId> consumerIds, AsyncResult request) throws IOException, UnsupportedOperationException {
+        next.resumeCredit(consumerIds, request);
+    }
+
     @Override
     public JmsMessageFactory getMessageFactory() {
         return next.getMessageFactory();
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.provider;
+
+/**
+ * Completes a single request once every operation in a batch has completed, or fails
+ * it as soon as any one of them fails.
+ *
+ * Each operation in the batch is given its own member result from {@link #newMember()}
+ * which counts towards the batch only once no matter how often it is signaled.
+ */
+public final class BatchAsyncResult implements AsyncResult {
+
+    private final AsyncResult request;
+    private int remaining;
+    private boolean complete;
+
+    /**
+     * @param count
+     *        the number of operations in the batch.
+     * @param request
+     *        the request to signal when the batch completes.
+     */
+    public BatchAsyncResult(int count, AsyncResult request) {
+        this.remaining = count;
+        this.request = request;
+
+        if (count <= 0) {
+            complete = true;
+            request.onSuccess();
+        }
+    }
+
+    /**
+     * @return a new result for one operation of the batch.
+     */
+    public AsyncResult newMember() {
+        return new Member();
+    }
+
+    @Override
+    public void onSuccess() {
+        boolean signal = false;
+        synchronized (this) {
+            if (!complete && --remaining <= 0) {
+                complete = true;
+                signal = true;
+            }
+        }
+
+        if (signal) {
+            request.onSuccess();
+        }
+    }
+
+    @Override
+    public void onFailure(Throwable result) {
+        synchronized (this) {
+            if (complete) {
+                return;
+            }
+            complete = true;
+        }
+
+        request.onFailure(result);
+    }
+
+    @Override
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    private final class Member implements AsyncResult {
+
+        private boolean complete;
+
+        @Override
+        public void onSuccess() {
+            if (markComplete()) {
+                BatchAsyncResult.this.onSuccess();
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable result) {
+            if (markComplete()) {
+                BatchAsyncResult.this.onFailure(result);
+            }
+        }
+
+        @Override
+        public synchronized boolean isComplete() {
+            return complete;
+        }
+
+        private synchronized boolean markComplete() {
+            if (complete) {
+                return false;
+            }
+            complete = true;
+            return true;
+        }
+    }
+}
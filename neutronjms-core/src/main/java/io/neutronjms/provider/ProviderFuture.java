@@ -27,6 +27,8 @@ import java.util.concurrent.TimeUnit;
  */
 public class ProviderFuture implements AsyncResult {
 
+    private static final ThreadLocal<Boolean> BLOCKING_PROHIBITED = new ThreadLocal<Boolean>();
+
     protected final CountDownLatch latch = new CountDownLatch(1);
     protected Throwable error;
     protected final AsyncResult watcher;
@@ -74,6 +76,7 @@ public class ProviderFuture implements AsyncResult {
      * @throws IOException if an error occurs while waiting for the response.
      */
     public void sync(long amount, TimeUnit unit) throws IOException {
+        checkBlockingAllowed();
         try {
             latch.await(amount, unit);
         } catch (InterruptedException e) {
@@ -91,6 +94,7 @@ public class ProviderFuture implements AsyncResult {
      * @throws IOException if an error occurs while waiting for the response.
      */
     public void sync() throws IOException {
+        checkBlockingAllowed();
         try {
             latch.await();
         } catch (InterruptedException e) {
@@ -100,6 +104,36 @@ public class ProviderFuture implements AsyncResult {
         failOnError();
     }
 
+    /**
+     * Marks whether the calling thread may wait on a ProviderFuture.  A thread that is
+     * running application code on behalf of the Provider, and which the Provider therefore
+     * needs in order to complete any request, must not wait for a response.
+     *
+     * @param prohibited
+     *        true if the calling thread must not wait for Provider responses.
+     */
+    public static void setBlockingProhibited(boolean prohibited) {
+        if (prohibited) {
+            BLOCKING_PROHIBITED.set(Boolean.TRUE);
+        } else {
+            BLOCKING_PROHIBITED.remove();
+        }
+    }
+
+    /**
+     * @return true if the calling thread must not wait for Provider responses, client
+     *         code that blocks on anything the Provider completes checks this first.
+     */
+    public static boolean isBlockingProhibited() {
+        return BLOCKING_PROHIBITED.get() != null;
+    }
+
+    private void checkBlockingAllowed() throws IOException {
+        if (BLOCKING_PROHIBITED.get() != null && !isComplete()) {
+            throw new IOException("Cannot wait for a Provider response on a thread the Provider needs to complete it");
+        }
+    }
+
     private void failOnError() throws IOException {
         Throwable cause = error;
         if (cause != null) {
@@ -269,6 +269,19 @@ public class FailoverProvider extends DefaultProviderListener implements AsyncPr
         serializer.execute(pending);
     }
 
+    @Override
+    public void send(final List<JmsOutboundMessageDispatch> envelopes, AsyncResult request) throws IOException, JMSException {
+        checkClosed();
+        final FailoverRequest pending = new FailoverRequest(request) {
+            @Override
+            public void doTask() throws Exception {
+                provider.send(envelopes, this);
+            }
+        };
+
+        serializer.execute(pending);
+    }
+
     @Override
     public void acknowledge(final JmsSessionId sessionId, AsyncResult request) throws IOException, JMSException {
         checkClosed();
@@ -307,6 +320,25 @@ public class FailoverProvider extends DefaultProviderListener implements AsyncPr
         serializer.execute(pending);
     }
 
+    @Override
+    public void acknowledge(final List<JmsInboundMessageDispatch> envelopes, final ACK_TYPE ackType, AsyncResult request) throws IOException, JMSException {
+        checkClosed();
+        final FailoverRequest pending = new FailoverRequest(request) {
+            @Override
+            public void doTask() throws Exception {
+                provider.acknowledge(envelopes, ackType, this);
+            }
+
+            @Override
+            public boolean succeedsWhenOffline() {
+                // Allow this to succeed, acks would be stale.
+                return true;
+            }
+        };
+
+        serializer.execute(pending);
+    }
+
     @Override
     public void commit(final JmsSessionId sessionId, AsyncResult request) throws IOException, JMSException, UnsupportedOperationException {
         checkClosed();
@@ -388,6 +420,19 @@ public class FailoverProvider extends DefaultProviderListener implements AsyncPr
         serializer.execute(pending);
     }
 
+    @Override
+    public void resumeCredit(final List<JmsConsumerId> consumerIds, final AsyncResult request) throws IOException, UnsupportedOperationException {
+        checkClosed();
+        final FailoverRequest pending = new FailoverRequest(request) {
+            @Override
+            public void doTask() throws Exception {
+                provider.resumeCredit(consumerIds, this);
+            }
+        };
+
+        serializer.execute(pending);
+    }
+
     @Override
     public JmsMessageFactory getMessageFactory() {
         final AtomicReference<JmsMessageFactory> result =
@@ -0,0 +1,498 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.transports;
+
+import io.netty.buffer.Unpooled;
+import io.neutronjms.util.BufferPool;
+import io.neutronjms.util.IOExceptionSupport;
+import io.neutronjms.util.PooledBuffer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.vertx.java.core.buffer.Buffer;
+
+/**
+ * NIO based TCP transport that needs no Vert.x event loop.
+ *
+ * The socket channel is registered with the NioTransportSelector which is shared by all
+ * instances of this transport, so a single thread serves the reads of every connection
+ * and an idle connection uses no CPU.  Data is read into a reusable direct buffer and
+ * sent data is written with gathering writes when the transport is flushed.  If the
+ * socket cannot take all of the data the remainder is written by the selector thread
+ * once the socket becomes writable.  When a BufferPool is set each read is copied into a
+ * pooled buffer that is handed to the listener, and the copies made by send are taken
+ * from the pool and returned once they have been written.
+ */
+public class NioTcpTransport implements Transport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NioTcpTransport.class);
+    private static final Object NOT_POOLED = new Object();
+
+    private final URI remoteLocation;
+    private final AtomicBoolean connected = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+    private final ArrayDeque<Object> pendingOwners = new ArrayDeque<Object>();
+
+    private TransportListener listener;
+    private SocketChannel channel;
+    private NioTransportSelector selector;
+    private ByteBuffer readBuffer;
+    private BufferPool bufferPool;
+    private int pendingBytes;
+    private boolean awaitingWritable;
+
+    private int socketBufferSize = 64 * 1024;
+    private int ioBufferSize = 64 * 1024;
+    private int writeBatchSize = 64 * 1024;
+    private int connectTimeout = -1;
+    private int closeTimeout = 5000;
+    private int soLinger = Integer.MIN_VALUE;
+    private boolean keepAlive;
+    private boolean tcpNoDelay = true;
+
+    /**
+     * Create a new instance of the transport.
+     *
+     * @param listener
+     *        The TransportListener that will receive data from this Transport instance.
+     * @param remoteLocation
+     *        The remote location where this transport should connection to.
+     */
+    public NioTcpTransport(TransportListener listener, URI remoteLocation) {
+        this.listener = listener;
+        this.remoteLocation = remoteLocation;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        if (listener == null) {
+            throw new IllegalStateException("A transport listener must be set before connection attempts.");
+        }
+
+        try {
+            channel = SocketChannel.open();
+            initialiseSocket(channel.socket());
+            channel.socket().connect(new InetSocketAddress(remoteLocation.getHost(), remoteLocation.getPort()),
+                                     Math.max(connectTimeout, 0));
+            channel.configureBlocking(false);
+        } catch (Throwable reason) {
+            LOG.info("Failed to connect to target Broker: {}", reason);
+            if (channel != null) {
+                channel.close();
+            }
+            throw IOExceptionSupport.create(reason);
+        }
+
+        readBuffer = ByteBuffer.allocateDirect(ioBufferSize);
+        selector = NioTransportSelector.acquire();
+        connected.set(true);
+        selector.register(channel, this);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                if (connected.get()) {
+                    flush();
+                    awaitPendingWrites();
+                }
+            } finally {
+                connected.set(false);
+                discardPending();
+                if (channel != null) {
+                    selector.deregister(channel);
+                    channel.close();
+                    NioTransportSelector.release(selector);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void send(ByteBuffer output) throws IOException {
+        checkConnected();
+        int length = output.remaining();
+        if (length == 0) {
+            return;
+        }
+
+        if (bufferPool != null) {
+            PooledBuffer copy = bufferPool.allocate(length);
+            output.get(copy.getData(), 0, length);
+            copy.setLength(length);
+            enqueue(copy.toByteBuffer(), copy);
+        } else {
+            ByteBuffer copy = ByteBuffer.allocate(length);
+            copy.put(output);
+            copy.flip();
+            enqueue(copy, null);
+        }
+    }
+
+    @Override
+    public void send(org.fusesource.hawtbuf.Buffer output) throws IOException {
+        checkConnected();
+        int length = output.length();
+        if (length == 0) {
+            return;
+        }
+
+        if (bufferPool != null) {
+            PooledBuffer copy = bufferPool.allocate(length);
+            System.arraycopy(output.data, output.offset, copy.getData(), 0, length);
+            copy.setLength(length);
+            enqueue(copy.toByteBuffer(), copy);
+        } else {
+            ByteBuffer copy = ByteBuffer.allocate(length);
+            copy.put(output.data, output.offset, length);
+            copy.flip();
+            enqueue(copy, null);
+        }
+    }
+
+    @Override
+    public void sendOwned(ByteBuffer output) throws IOException {
+        checkConnected();
+        if (output.hasRemaining()) {
+            enqueue(output, null);
+        }
+    }
+
+    @Override
+    public void sendOwned(org.fusesource.hawtbuf.Buffer output) throws IOException {
+        checkConnected();
+        if (output.length() > 0) {
+            enqueue(output.toByteBuffer(), null);
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        checkConnected();
+        writePending();
+    }
+
+    @Override
+    public void setBufferPool(BufferPool pool) {
+        this.bufferPool = pool;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return this.connected.get();
+    }
+
+    @Override
+    public TransportListener getTransportListener() {
+        return this.listener;
+    }
+
+    @Override
+    public void setTransportListener(TransportListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be set to null");
+        }
+
+        this.listener = listener;
+    }
+
+    public int getSocketBufferSize() {
+        return socketBufferSize;
+    }
+
+    public void setSocketBufferSize(int socketBufferSize) {
+        this.socketBufferSize = socketBufferSize;
+    }
+
+    public int getIoBufferSize() {
+        return ioBufferSize;
+    }
+
+    /**
+     * Sets the size of the direct buffer that incoming data is read into.
+     *
+     * @param ioBufferSize
+     *        the size in bytes of the read buffer.
+     */
+    public void setIoBufferSize(int ioBufferSize) {
+        this.ioBufferSize = ioBufferSize;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    /**
+     * Sets the number of bytes of pending writes that will cause the transport to write
+     * them to the socket without waiting for the next flush.
+     *
+     * @param writeBatchSize
+     *        the number of pending bytes that triggers a write.
+     */
+    public void setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    public int getSoLinger() {
+        return soLinger;
+    }
+
+    public void setSoLinger(int soLinger) {
+        this.soLinger = soLinger;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getCloseTimeout() {
+        return closeTimeout;
+    }
+
+    /**
+     * Sets how long close waits for data that the socket could not yet take to be
+     * written before the channel is closed and the remaining data is discarded.
+     *
+     * @param closeTimeout
+     *        the time in milliseconds to wait for pending writes on close.
+     */
+    public void setCloseTimeout(int closeTimeout) {
+        this.closeTimeout = closeTimeout;
+    }
+
+    //---------- Selector thread callbacks -----------------------------------//
+
+    /**
+     * Called on the selector thread when the channel has data to read.  The data is
+     * copied out of the reusable read buffer into a Buffer that the listener owns.
+     */
+    void onReadable() {
+        try {
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                LOG.debug("Remote peer closed the connection: {}", remoteLocation);
+                selector.deregister(channel);
+                if (connected.compareAndSet(true, false)) {
+                    listener.onTransportClosed();
+                }
+            } else if (read > 0) {
+                readBuffer.flip();
+                if (bufferPool != null) {
+                    PooledBuffer incoming = bufferPool.allocate(read);
+                    readBuffer.get(incoming.getData(), 0, read);
+                    incoming.setLength(read);
+                    readBuffer.clear();
+                    listener.onData(incoming);
+                } else {
+                    Buffer incoming = new Buffer(Unpooled.copiedBuffer(readBuffer));
+                    readBuffer.clear();
+                    listener.onData(incoming);
+                }
+            }
+        } catch (IOException e) {
+            onSelectorError(e);
+        }
+    }
+
+    /**
+     * Called on the selector thread when the channel can take the writes that did not
+     * fit into the socket buffer earlier.
+     */
+    synchronized void onWritable() {
+        try {
+            if (drainPending()) {
+                awaitingWritable = false;
+                selector.setWriteInterest(channel, false);
+            }
+        } catch (IOException e) {
+            onSelectorError(e);
+        }
+    }
+
+    /**
+     * Called when an error occurs while the selector thread is servicing the channel.
+     */
+    void onSelectorError(Throwable error) {
+        if (connected.compareAndSet(true, false)) {
+            selector.deregister(channel);
+            listener.onTransportError(error);
+        }
+    }
+
+    //---------- Transport internal implementation ---------------------------//
+
+    private synchronized void enqueue(ByteBuffer data, PooledBuffer pooled) throws IOException {
+        pending.add(data);
+        pendingOwners.add(pooled == null ? NOT_POOLED : pooled);
+        pendingBytes += data.remaining();
+        if (pendingBytes >= writeBatchSize) {
+            writePending();
+        }
+    }
+
+    private void writePending() throws IOException {
+        // Once the selector is waiting for the socket to become writable it owns the
+        // pending writes, writing here as well could reorder the data.
+        if (awaitingWritable) {
+            return;
+        }
+
+        if (!drainPending()) {
+            awaitingWritable = true;
+            selector.setWriteInterest(channel, true);
+        }
+    }
+
+    /**
+     * Writes as much of the pending data as the socket will accept with one gathering
+     * write.
+     *
+     * @return true if all of the pending data was written.
+     */
+    private boolean drainPending() throws IOException {
+        if (!pending.isEmpty()) {
+            long written = channel.write(pending.toArray(new ByteBuffer[pending.size()]));
+            pendingBytes -= written;
+            while (!pending.isEmpty() && !pending.peek().hasRemaining()) {
+                pending.poll();
+                releaseOwner(pendingOwners.poll());
+            }
+        }
+
+        return pending.isEmpty();
+    }
+
+    /**
+     * Writes the data still pending on close, waiting up to the close timeout for the
+     * socket to take it so that the last data sent, such as a protocol close frame, is
+     * not lost when the selector was still waiting for the socket to become writable.
+     */
+    private void awaitPendingWrites() throws IOException {
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + closeTimeout;
+        Selector writeSelector = Selector.open();
+        try {
+            channel.register(writeSelector, SelectionKey.OP_WRITE);
+            for (;;) {
+                synchronized (this) {
+                    if (drainPending()) {
+                        return;
+                    }
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return;
+                }
+
+                writeSelector.select(remaining);
+                writeSelector.selectedKeys().clear();
+            }
+        } finally {
+            writeSelector.close();
+        }
+    }
+
+    private synchronized void discardPending() {
+        if (pendingBytes > 0) {
+            LOG.warn("Discarding {} bytes that could not be written before {} was closed", pendingBytes, this);
+        }
+        pending.clear();
+        pendingBytes = 0;
+        while (!pendingOwners.isEmpty()) {
+            releaseOwner(pendingOwners.poll());
+        }
+    }
+
+    private static void releaseOwner(Object owner) {
+        if (owner != NOT_POOLED) {
+            ((PooledBuffer) owner).release();
+        }
+    }
+
+    protected void initialiseSocket(Socket socket) throws SocketException {
+        try {
+            socket.setReceiveBufferSize(socketBufferSize);
+            socket.setSendBufferSize(socketBufferSize);
+        } catch (SocketException se) {
+            LOG.warn("Cannot set socket buffer size = {}", socketBufferSize);
+            LOG.debug("Cannot set socket buffer size. Reason: {}. This exception is ignored.", se.getMessage(), se);
+        }
+
+        socket.setKeepAlive(keepAlive);
+        socket.setTcpNoDelay(tcpNoDelay);
+        if (soLinger > -1) {
+            socket.setSoLinger(true, soLinger);
+        } else if (soLinger == -1) {
+            socket.setSoLinger(false, 0);
+        }
+    }
+
+    private void checkConnected() throws IOException {
+        if (!connected.get()) {
+            throw new IOException("Cannot send to a non-connected transport.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NioTcpTransport: " + remoteLocation;
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.transports;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single selector thread shared by all the NioTcpTransport instances of the JVM.  The
+ * thread blocks in select until one of the registered channels can be read or written,
+ * so idle connections cost no CPU time.
+ *
+ * The selector is reference counted in the same way as the TransportEventLoopGroup, the
+ * first transport to acquire it starts the thread and the last one to release it stops
+ * the thread.  All changes to the channel registrations are made on the selector thread.
+ */
+public final class NioTransportSelector implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NioTransportSelector.class);
+
+    private static final Object lock = new Object();
+
+    private static NioTransportSelector instance;
+    private static int references;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+    private volatile boolean running = true;
+
+    private NioTransportSelector() throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, "NeutronJMS NioTransportSelector");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Acquires a reference to the shared selector, starting its thread if needed.
+     *
+     * @return the shared selector instance.
+     *
+     * @throws IOException if the selector cannot be opened.
+     */
+    public static NioTransportSelector acquire() throws IOException {
+        synchronized (lock) {
+            if (instance == null) {
+                instance = new NioTransportSelector();
+            }
+            references++;
+            return instance;
+        }
+    }
+
+    /**
+     * Releases a reference obtained from acquire, the selector thread is stopped once no
+     * references remain.
+     *
+     * @param selector
+     *        the selector that was returned from acquire.
+     */
+    public static void release(NioTransportSelector selector) {
+        synchronized (lock) {
+            if (selector == null || selector != instance) {
+                return;
+            }
+
+            if (--references == 0) {
+                instance.shutdown();
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Registers the channel for read events, when the channel becomes readable or
+     * writable the matching method of the given transport is called on the selector
+     * thread.
+     *
+     * @param channel
+     *        the non-blocking channel to register.
+     * @param transport
+     *        the transport that handles the channel's events.
+     */
+    void register(final SocketChannel channel, final NioTcpTransport transport) {
+        execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    channel.register(selector, SelectionKey.OP_READ, transport);
+                } catch (ClosedChannelException e) {
+                    transport.onSelectorError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Turns interest in write events for the channel on or off.
+     *
+     * @param channel
+     *        the registered channel.
+     * @param writable
+     *        true if the transport has data waiting for the channel to become writable.
+     */
+    void setWriteInterest(final SocketChannel channel, final boolean writable) {
+        execute(new Runnable() {
+
+            @Override
+            public void run() {
+                SelectionKey key = channel.keyFor(selector);
+                if (key != null && key.isValid()) {
+                    if (writable) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    } else {
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes the channel from the selector.
+     *
+     * @param channel
+     *        the channel to deregister.
+     */
+    void deregister(final SocketChannel channel) {
+        execute(new Runnable() {
+
+            @Override
+            public void run() {
+                SelectionKey key = channel.keyFor(selector);
+                if (key != null) {
+                    key.cancel();
+                }
+            }
+        });
+    }
+
+    private void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    private void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        LOG.trace("NIO selector thread starting");
+        try {
+            while (running) {
+                runTasks();
+
+                selector.select();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    NioTcpTransport transport = (NioTcpTransport) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            transport.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            transport.onWritable();
+                        }
+                    } catch (CancelledKeyException e) {
+                        LOG.trace("Selection key cancelled while processing: {}", transport);
+                    } catch (Throwable e) {
+                        // A failure in one transport or its listener must not take down
+                        // the thread that services every other connection in the JVM.
+                        LOG.debug("Transport {} failed while processing selection: {}", transport, e.getMessage());
+                        key.cancel();
+                        failTransport(transport, e);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            LOG.warn("NIO selector thread failed: {}", e.getMessage(), e);
+            for (SelectionKey key : selector.keys()) {
+                failTransport((NioTcpTransport) key.attachment(), e);
+            }
+        } finally {
+            synchronized (lock) {
+                // When the thread dies on its own the next acquire must start a new one
+                // rather than hand out a selector that no longer services its channels.
+                running = false;
+                if (instance == this) {
+                    instance = null;
+                    references = 0;
+                }
+            }
+
+            try {
+                selector.close();
+            } catch (IOException e) {
+                LOG.debug("Caught exception while closing the selector: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                LOG.debug("Selector task failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void failTransport(NioTcpTransport transport, Throwable error) {
+        try {
+            transport.onSelectorError(error);
+        } catch (Throwable e) {
+            LOG.debug("Transport {} failed while handling a selector error: {}", transport, e.getMessage());
+        }
+    }
+}
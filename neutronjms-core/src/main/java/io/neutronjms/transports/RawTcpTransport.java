@@ -16,8 +16,11 @@
  */
 package io.neutronjms.transports;
 
+import io.netty.buffer.Unpooled;
+import io.neutronjms.util.BufferPool;
 import io.neutronjms.util.IOExceptionSupport;
 import io.neutronjms.util.InetAddressUtil;
+import io.neutronjms.util.PooledBuffer;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -26,6 +29,7 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
@@ -60,6 +64,8 @@ public class RawTcpTransport implements Transport, Runnable {
     private final Socket socket;
     private DataOutputStream dataOut;
     private DataInputStream dataIn;
+    private byte[] readBuffer;
+    private BufferPool bufferPool;
     private Thread runner;
 
     private boolean closeAsync = true;
@@ -141,7 +147,7 @@ public class RawTcpTransport implements Transport, Runnable {
                     public void run() {
                         LOG.trace("Closing socket {}", socket);
                         try {
-                            socket.close();
+                            flushAndClose();
                             LOG.debug("Closed socket {}", socket);
                         } catch (IOException e) {
                             if (LOG.isDebugEnabled()) {
@@ -163,7 +169,7 @@ public class RawTcpTransport implements Transport, Runnable {
             } else {
                 LOG.trace("Closing socket {}", socket);
                 try {
-                    socket.close();
+                    flushAndClose();
                     LOG.debug("Closed socket {}", socket);
                 } catch (IOException e) {
                     LOG.debug("Caught exception closing socket {}. This exception will be ignored.", socket, e);
@@ -172,10 +178,20 @@ public class RawTcpTransport implements Transport, Runnable {
         }
     }
 
+    private void flushAndClose() throws IOException {
+        try {
+            if (dataOut != null && connected.get()) {
+                dataOut.flush();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
     @Override
     public void send(ByteBuffer output) throws IOException {
         checkConnected();
-        LOG.info("RawTcpTransport sending packet of size: {}", output.remaining());
+        LOG.trace("RawTcpTransport sending packet of size: {}", output.remaining());
         if (dataOut instanceof OutputStream) {
             WritableByteChannel channel = Channels.newChannel(dataOut);
             channel.write(output);
@@ -184,7 +200,6 @@ public class RawTcpTransport implements Transport, Runnable {
                 dataOut.writeByte(output.get());
             }
         }
-        dataOut.flush();
     }
 
     @Override
@@ -193,6 +208,27 @@ public class RawTcpTransport implements Transport, Runnable {
         send(output.toByteBuffer());
     }
 
+    @Override
+    public void sendOwned(ByteBuffer output) throws IOException {
+        send(output);
+    }
+
+    @Override
+    public void sendOwned(org.fusesource.hawtbuf.Buffer output) throws IOException {
+        send(output);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkConnected();
+        dataOut.flush();
+    }
+
+    @Override
+    public void setBufferPool(BufferPool pool) {
+        this.bufferPool = pool;
+    }
+
     @Override
     public boolean isConnected() {
         return this.connected.get();
@@ -287,7 +323,10 @@ public class RawTcpTransport implements Transport, Runnable {
             }
         } catch (IOException e) {
             connectionError.set(e);
-            onException(e);
+            // A blocked read fails when the socket is closed locally, that isn't an error.
+            if (!closed.get()) {
+                onException(e);
+            }
         } catch (Throwable e) {
             IOException ioe = new IOException("Unexpected error occured: " + e);
             connectionError.set(ioe);
@@ -297,19 +336,31 @@ public class RawTcpTransport implements Transport, Runnable {
     }
 
     protected void doRun() throws IOException {
-        int size = dataIn.available();
-        if (size <= 0) {
-            try {
-                TimeUnit.NANOSECONDS.sleep(1);
-            } catch (InterruptedException e) {
-            }
+        // Blocks until data arrives, the read buffer is reused and only the bytes that
+        // were read are copied into the Buffer handed to the listener.
+        int read;
+        try {
+            read = dataIn.read(readBuffer);
+        } catch (SocketTimeoutException e) {
+            return;
+        }
+
+        if (read < 0) {
+            connected.set(false);
+            listener.onTransportClosed();
             return;
         }
 
-        byte[] buffer = new byte[size];
-        dataIn.readFully(buffer);
-        Buffer incoming = new Buffer(buffer);
-        listener.onData(incoming);
+        if (read > 0) {
+            if (bufferPool != null) {
+                PooledBuffer incoming = bufferPool.allocate(read);
+                System.arraycopy(readBuffer, 0, incoming.getData(), 0, read);
+                incoming.setLength(read);
+                listener.onData(incoming);
+            } else {
+                listener.onData(new Buffer(Unpooled.copiedBuffer(readBuffer, 0, read)));
+            }
+        }
     }
 
     /**
@@ -359,6 +410,7 @@ public class RawTcpTransport implements Transport, Runnable {
         try {
             TcpBufferedInputStream buffIn = new TcpBufferedInputStream(socket.getInputStream(), ioBufferSize);
             this.dataIn = new DataInputStream(buffIn);
+            this.readBuffer = new byte[ioBufferSize];
             TcpBufferedOutputStream outputStream = new TcpBufferedOutputStream(socket.getOutputStream(), ioBufferSize);
             this.dataOut = new DataOutputStream(outputStream);
         } catch (Throwable e) {
@@ -16,6 +16,10 @@
  */
 package io.neutronjms.transports;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.neutronjms.util.BufferPool;
 import io.neutronjms.util.IOExceptionSupport;
 
 import java.io.IOException;
@@ -29,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.vertx.java.core.AsyncResult;
 import org.vertx.java.core.AsyncResultHandler;
+import org.vertx.java.core.Context;
 import org.vertx.java.core.Handler;
 import org.vertx.java.core.Vertx;
 import org.vertx.java.core.VertxFactory;
@@ -43,14 +48,17 @@ public class TcpTransport implements Transport {
 
     private static final Logger LOG = LoggerFactory.getLogger(TcpTransport.class);
 
-    private final Vertx vertx = VertxFactory.newVertx();
-    private final NetClient client = vertx.createNetClient();
     private final URI remoteLocation;
     private final AtomicBoolean connected = new AtomicBoolean();
     private final AtomicBoolean closed = new AtomicBoolean();
     private final AtomicReference<Throwable> connectionError = new AtomicReference<Throwable>();
 
+    private Vertx vertx;
+    private NetClient client;
     private NetSocket socket;
+    private volatile Context ioContext;
+    private volatile Thread ioThread;
+    private CompositeByteBuf pending;
 
     private TransportListener listener;
     private int socketBufferSize = 64 * 1024;
@@ -59,6 +67,8 @@ public class TcpTransport implements Transport {
     private int soLinger = Integer.MIN_VALUE;
     private boolean keepAlive;
     private boolean tcpNoDelay = true;
+    private boolean sharedEventLoop = true;
+    private int writeBatchSize = 64 * 1024;
 
     /**
      * Create a new instance of the transport.
@@ -81,14 +91,18 @@ public class TcpTransport implements Transport {
             throw new IllegalStateException("A transport listener must be set before connection attempts.");
         }
 
-        configureNetClient(client);
+        vertx = sharedEventLoop ? TransportEventLoopGroup.acquire() : VertxFactory.newVertx();
+        client = vertx.createNetClient();
 
         try {
+            configureNetClient(client);
             client.connect(remoteLocation.getPort(), remoteLocation.getHost(), new AsyncResultHandler<NetSocket>() {
                 @Override
                 public void handle(AsyncResult<NetSocket> asyncResult) {
                     if (asyncResult.succeeded()) {
                         socket = asyncResult.result();
+                        ioContext = vertx.currentContext();
+                        ioThread = Thread.currentThread();
                         LOG.info("We have connected! Socket is {}", socket);
 
                         connected.set(true);
@@ -126,6 +140,7 @@ public class TcpTransport implements Transport {
             });
         } catch (Throwable reason) {
             LOG.info("Failed to connect to target Broker: {}", reason);
+            releaseEventLoop();
             throw IOExceptionSupport.create(reason);
         }
 
@@ -136,6 +151,7 @@ public class TcpTransport implements Transport {
         }
 
         if (connectionError.get() != null) {
+            releaseEventLoop();
             throw IOExceptionSupport.create(connectionError.get());
         }
     }
@@ -144,11 +160,27 @@ public class TcpTransport implements Transport {
     public void close() throws IOException {
         if (closed.compareAndSet(false, true)) {
             if (connected.get()) {
-                socket.close();
+                try {
+                    flush();
+                } finally {
+                    socket.close();
+                }
                 connected.set(false);
             }
 
-            vertx.stop();
+            releaseEventLoop();
+        }
+    }
+
+    private synchronized void releaseEventLoop() {
+        if (client != null) {
+            client.close();
+            client = null;
+            if (sharedEventLoop) {
+                TransportEventLoopGroup.release(vertx);
+            } else {
+                vertx.stop();
+            }
         }
     }
 
@@ -160,11 +192,9 @@ public class TcpTransport implements Transport {
             return;
         }
 
-        byte[] copy = new byte[length];
-        output.get(copy);
-        Buffer sendBuffer = new Buffer(copy);
-
-        vertx.eventBus().send(socket.writeHandlerID(), sendBuffer);
+        ByteBuf copy = Unpooled.copiedBuffer(output);
+        output.position(output.limit());
+        enqueue(copy);
     }
 
     @Override
@@ -175,9 +205,89 @@ public class TcpTransport implements Transport {
             return;
         }
 
-        org.fusesource.hawtbuf.Buffer clone = output.deepCopy();
-        Buffer sendBuffer = new Buffer(clone.data);
-        vertx.eventBus().send(socket.writeHandlerID(), sendBuffer);
+        enqueue(Unpooled.copiedBuffer(output.data, output.offset, length));
+    }
+
+    @Override
+    public void sendOwned(ByteBuffer output) throws IOException {
+        checkConnected();
+        int length = output.remaining();
+        if (length == 0) {
+            return;
+        }
+
+        ByteBuf wrapped = Unpooled.wrappedBuffer(output);
+        output.position(output.limit());
+        enqueue(wrapped);
+    }
+
+    @Override
+    public void sendOwned(org.fusesource.hawtbuf.Buffer output) throws IOException {
+        checkConnected();
+        int length = output.length();
+        if (length == 0) {
+            return;
+        }
+
+        enqueue(Unpooled.wrappedBuffer(output.data, output.offset, length));
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (pending == null) {
+            return;
+        }
+
+        checkConnected();
+        ByteBuf batch = pending;
+        pending = null;
+        write(batch);
+    }
+
+    /**
+     * Adds the data to the batch of pending writes, the batch is written out when the
+     * transport is flushed or once it holds at least writeBatchSize bytes.
+     */
+    private synchronized void enqueue(ByteBuf data) {
+        if (pending == null) {
+            pending = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        }
+
+        pending.addComponent(data);
+        pending.writerIndex(pending.writerIndex() + data.readableBytes());
+
+        if (pending.readableBytes() >= writeBatchSize) {
+            ByteBuf batch = pending;
+            pending = null;
+            write(batch);
+        }
+    }
+
+    /**
+     * Queues the data for writing on the event loop that owns the socket.  When called
+     * from that event loop the data is written immediately, otherwise a write task is
+     * queued behind any others so that the order of sends is preserved.  A batch made
+     * of several buffers is written with a single gathering write.
+     */
+    private void write(ByteBuf data) {
+        final Buffer sendBuffer = new Buffer(data);
+        if (Thread.currentThread() == ioThread) {
+            socket.write(sendBuffer);
+        } else {
+            ioContext.runOnContext(new Handler<Void>() {
+                @Override
+                public void handle(Void event) {
+                    socket.write(sendBuffer);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void setBufferPool(BufferPool pool) {
+        // Vert.x reads into unpooled heap buffers and copies any pooled or direct buffer
+        // before handing it to the data handler, so each read already arrives in a buffer
+        // that nothing else references and a pool would only add a copy.
     }
 
     /**
@@ -261,6 +371,36 @@ public class TcpTransport implements Transport {
         this.keepAlive = keepAlive;
     }
 
+    public boolean isSharedEventLoop() {
+        return sharedEventLoop;
+    }
+
+    /**
+     * Controls whether this transport runs its connection on the JVM wide event loop group
+     * shared by all TCP based transports or on a Vert.x instance of its own.
+     *
+     * @param sharedEventLoop
+     *        true if the transport should use the shared TransportEventLoopGroup.
+     */
+    public void setSharedEventLoop(boolean sharedEventLoop) {
+        this.sharedEventLoop = sharedEventLoop;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    /**
+     * Sets the number of bytes of pending writes that will cause the transport to write
+     * them to the socket without waiting for the next flush.
+     *
+     * @param writeBatchSize
+     *        the number of pending bytes that triggers a write.
+     */
+    public void setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+    }
+
     public int getConnectTimeout() {
         return connectTimeout;
     }
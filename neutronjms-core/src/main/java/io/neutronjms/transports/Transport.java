@@ -16,6 +16,8 @@
  */
 package io.neutronjms.transports;
 
+import io.neutronjms.util.BufferPool;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
@@ -66,6 +68,51 @@ public interface Transport {
      */
     void send(Buffer output) throws IOException;
 
+    /**
+     * Sends a chunk of data over the Transport connection, passing ownership of the
+     * buffer to the Transport.  The caller must not modify or reuse the buffer once
+     * this method returns, which allows the Transport to write it without a copy.
+     *
+     * @param output
+     *        The buffer of data that is to be transmitted.
+     *
+     * @throws IOException if an error occurs during the send operation.
+     */
+    void sendOwned(ByteBuffer output) throws IOException;
+
+    /**
+     * Sends a chunk of data over the Transport connection, passing ownership of the
+     * buffer to the Transport.  The caller must not modify or reuse the buffer once
+     * this method returns, which allows the Transport to write it without a copy.
+     *
+     * @param output
+     *        The buffer of data that is to be transmitted.
+     *
+     * @throws IOException if an error occurs during the send operation.
+     */
+    void sendOwned(Buffer output) throws IOException;
+
+    /**
+     * Writes out any data that was sent since the last flush.  A Transport may hold on
+     * to sent data so that it can write several sends with one write on the socket, so
+     * callers must flush once they have sent a batch of data.  Closing the Transport
+     * flushes any remaining data.
+     *
+     * @throws IOException if an error occurs while writing the data.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Sets the pool that the Transport takes its read buffers from.  A Transport that
+     * reads into pooled buffers passes them to TransportListener.onData(PooledBuffer),
+     * one that cannot, such as a Transport whose reads are buffered by another library,
+     * may ignore the pool.  Must be called before connect.
+     *
+     * @param pool
+     *        the connection's buffer pool, or null to read into unpooled buffers.
+     */
+    void setBufferPool(BufferPool pool);
+
     /**
      * Gets the currently set TransportListener instance
      *
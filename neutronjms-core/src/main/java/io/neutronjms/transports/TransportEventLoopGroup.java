@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.transports;
+
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+
+/**
+ * A reference counted Vert.x instance shared by the TCP based transports of the JVM so
+ * that all of their connections are multiplexed onto one group of event loop threads
+ * instead of each connection starting its own.
+ *
+ * The instance is created by the first transport that acquires it and stopped when the
+ * last one releases it.  Vert.x sizes the event loop group to the number of available
+ * processors, which can be changed with the vertx.pool.eventloop.size system property.
+ * Each NetClient created from the shared instance is assigned the next event loop in
+ * turn.
+ */
+public final class TransportEventLoopGroup {
+
+    private static final Object lock = new Object();
+
+    private static Vertx vertx;
+    private static int references;
+
+    private TransportEventLoopGroup() {
+    }
+
+    /**
+     * Acquires a reference to the shared Vert.x instance, creating it if needed.
+     *
+     * @return the shared Vert.x instance.
+     */
+    public static Vertx acquire() {
+        synchronized (lock) {
+            if (vertx == null) {
+                vertx = VertxFactory.newVertx();
+            }
+            references++;
+            return vertx;
+        }
+    }
+
+    /**
+     * Releases a reference obtained from acquire, the shared instance is stopped once no
+     * references remain.
+     *
+     * @param instance
+     *        the Vert.x instance that was returned from acquire.
+     */
+    public static void release(Vertx instance) {
+        synchronized (lock) {
+            if (instance == null || instance != vertx) {
+                return;
+            }
+
+            if (--references == 0) {
+                vertx.stop();
+                vertx = null;
+            }
+        }
+    }
+
+    /**
+     * @return the number of transports currently holding a reference to the shared instance.
+     */
+    public static int getReferenceCount() {
+        synchronized (lock) {
+            return references;
+        }
+    }
+}
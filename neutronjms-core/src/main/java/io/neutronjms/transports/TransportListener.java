@@ -16,6 +16,8 @@
  */
 package io.neutronjms.transports;
 
+import io.neutronjms.util.PooledBuffer;
+
 import org.vertx.java.core.buffer.Buffer;
 
 /**
@@ -25,13 +27,24 @@ import org.vertx.java.core.buffer.Buffer;
 public interface TransportListener {
 
     /**
-     * Called when new incoming data has become available.
+     * Called when new incoming data has become available.  The listener owns the given
+     * Buffer and may keep it after this method returns.
      *
      * @param incoming
      *        the next incoming packet of data.
      */
     void onData(Buffer incoming);
 
+    /**
+     * Called when new incoming data has been read into a buffer taken from the pool set
+     * on the Transport.  The listener takes over the Transport's reference and must
+     * release the buffer once it has processed the data.
+     *
+     * @param incoming
+     *        the next incoming packet of data.
+     */
+    void onData(PooledBuffer incoming);
+
     /**
      * Called if the connection state becomes closed.
      */
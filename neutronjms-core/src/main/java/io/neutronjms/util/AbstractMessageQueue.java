@@ -18,6 +18,8 @@ package io.neutronjms.util;
 
 import io.neutronjms.jms.message.JmsInboundMessageDispatch;
 
+import java.util.Collection;
+
 /**
  * Abstract Message Queue class used to implement the common functions of a Message Queue
  * instance.
@@ -66,6 +68,20 @@ public abstract class AbstractMessageQueue implements MessageQueue {
         }
     }
 
+    @Override
+    public int drainTo(Collection<JmsInboundMessageDispatch> target, int maxMessages) {
+        synchronized (lock) {
+            int count = 0;
+            if (!closed && running) {
+                while (count < maxMessages && !isEmpty()) {
+                    target.add(removeFirst());
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
     @Override
     public void start() {
         synchronized (lock) {
@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of reference counted byte buffers shared by the transport and the Provider of
+ * a single connection.
+ *
+ * Buffers are handed out from power of two size classes, a request is served from the
+ * smallest class that fits it and a released buffer goes back to the free list of its
+ * class.  Requests larger than the largest class are allocated on demand and left to the
+ * garbage collector when released.  Each class keeps at most a fixed number of free
+ * buffers so that a burst of large reads does not pin memory for the life of the
+ * connection.
+ *
+ * The pool is thread safe, buffers are typically allocated on a transport thread and
+ * released on the Provider's serializer thread.
+ */
+public final class BufferPool {
+
+    public static final int MIN_BUFFER_SIZE = 256;
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_FREE_PER_CLASS = 32;
+
+    private final int maxBufferSize;
+    private final int maxFreePerClass;
+    private final SizeClass[] sizeClasses;
+
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong outstandingBytes = new AtomicLong();
+
+    /**
+     * Creates a pool with the default largest size class and free list length.
+     */
+    public BufferPool() {
+        this(DEFAULT_MAX_BUFFER_SIZE, DEFAULT_MAX_FREE_PER_CLASS);
+    }
+
+    /**
+     * Creates a new pool.
+     *
+     * @param maxBufferSize
+     *        the size of the largest pooled buffer, rounded up to a power of two.
+     * @param maxFreePerClass
+     *        the maximum number of released buffers kept for each size class.
+     */
+    public BufferPool(int maxBufferSize, int maxFreePerClass) {
+        int classes = indexOf(Math.max(maxBufferSize, MIN_BUFFER_SIZE)) + 1;
+
+        this.sizeClasses = new SizeClass[classes];
+        for (int i = 0; i < classes; ++i) {
+            sizeClasses[i] = new SizeClass(MIN_BUFFER_SIZE << i);
+        }
+
+        this.maxBufferSize = sizeClasses[classes - 1].size;
+        this.maxFreePerClass = Math.max(maxFreePerClass, 0);
+    }
+
+    /**
+     * Allocates a buffer that can hold at least the requested number of bytes.  The
+     * returned buffer has a reference count of one and a length of zero.
+     *
+     * @param size
+     *        the number of bytes the buffer must be able to hold.
+     *
+     * @return a pooled buffer that must be released once it is no longer used.
+     */
+    public PooledBuffer allocate(int size) {
+        allocations.incrementAndGet();
+
+        PooledBuffer buffer = null;
+        if (size > maxBufferSize) {
+            buffer = new PooledBuffer(this, new byte[size], -1);
+        } else {
+            int index = indexOf(size);
+            SizeClass sizeClass = sizeClasses[index];
+            buffer = sizeClass.free.poll();
+            if (buffer != null) {
+                sizeClass.freeCount.decrementAndGet();
+                hits.incrementAndGet();
+                buffer.reset();
+            } else {
+                buffer = new PooledBuffer(this, new byte[sizeClass.size], index);
+            }
+        }
+
+        outstandingBytes.addAndGet(buffer.capacity());
+        return buffer;
+    }
+
+    /**
+     * Called by a buffer once its reference count drops to zero.
+     */
+    void recycle(PooledBuffer buffer) {
+        outstandingBytes.addAndGet(-buffer.capacity());
+
+        int index = buffer.getSizeClass();
+        if (index < 0) {
+            return;
+        }
+
+        SizeClass sizeClass = sizeClasses[index];
+        if (sizeClass.freeCount.incrementAndGet() <= maxFreePerClass) {
+            sizeClass.free.add(buffer);
+        } else {
+            sizeClass.freeCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of buffers allocated from this pool.
+     */
+    public long getAllocationCount() {
+        return allocations.get();
+    }
+
+    /**
+     * @return the number of allocations that were served by a released buffer.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the fraction of allocations that were served by a released buffer.
+     */
+    public double getHitRate() {
+        long total = allocations.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    /**
+     * @return the capacity in bytes of all buffers that are allocated and not yet released.
+     */
+    public long getOutstandingBytes() {
+        return outstandingBytes.get();
+    }
+
+    /**
+     * @return the capacity in bytes of the released buffers the pool is holding for reuse.
+     */
+    public long getPooledBytes() {
+        long pooled = 0;
+        for (SizeClass sizeClass : sizeClasses) {
+            pooled += (long) sizeClass.freeCount.get() * sizeClass.size;
+        }
+        return pooled;
+    }
+
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool { allocations = " + getAllocationCount() +
+               ", hitRate = " + getHitRate() +
+               ", outstandingBytes = " + getOutstandingBytes() +
+               ", pooledBytes = " + getPooledBytes() + " }";
+    }
+
+    private static int indexOf(int size) {
+        if (size <= MIN_BUFFER_SIZE) {
+            return 0;
+        }
+
+        int rounded = 32 - Integer.numberOfLeadingZeros(size - 1);
+        return rounded - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+
+    private static final class SizeClass {
+
+        private final int size;
+        private final Queue<PooledBuffer> free = new ConcurrentLinkedQueue<PooledBuffer>();
+        private final AtomicInteger freeCount = new AtomicInteger();
+
+        public SizeClass(int size) {
+            this.size = size;
+        }
+    }
+}
@@ -28,11 +28,13 @@ import java.util.List;
 public final class FifoMessageQueue extends AbstractMessageQueue {
 
     protected final LinkedList<JmsInboundMessageDispatch> list = new LinkedList<JmsInboundMessageDispatch>();
+    private volatile int size;
 
     @Override
     public void enqueueFirst(JmsInboundMessageDispatch envelope) {
         synchronized (lock) {
             list.addFirst(envelope);
+            size++;
             lock.notify();
         }
     }
@@ -41,28 +43,26 @@ public final class FifoMessageQueue extends AbstractMessageQueue {
     public void enqueue(JmsInboundMessageDispatch envelope) {
         synchronized (lock) {
             list.addLast(envelope);
+            size++;
             lock.notify();
         }
     }
 
     @Override
     public boolean isEmpty() {
-        synchronized (lock) {
-            return list.isEmpty();
-        }
+        return size == 0;
     }
 
     @Override
     public int size() {
-        synchronized (lock) {
-            return list.size();
-        }
+        return size;
     }
 
     @Override
     public void clear() {
         synchronized (lock) {
             list.clear();
+            size = 0;
         }
     }
 
@@ -74,6 +74,7 @@ public final class FifoMessageQueue extends AbstractMessageQueue {
                 rc.add(entry);
             }
             list.clear();
+            size = 0;
             return rc;
         }
     }
@@ -87,7 +88,9 @@ public final class FifoMessageQueue extends AbstractMessageQueue {
 
     @Override
     protected JmsInboundMessageDispatch removeFirst() {
-        return list.removeFirst();
+        JmsInboundMessageDispatch envelope = list.removeFirst();
+        size--;
+        return envelope;
     }
 
     @Override
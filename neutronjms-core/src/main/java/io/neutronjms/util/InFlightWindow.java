@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+/**
+ * Tracks operations that have been started but not yet completed and blocks callers
+ * once either the number of outstanding operations or their combined size reaches
+ * the configured limit.
+ *
+ * An operation that is larger than the byte limit on its own is allowed to proceed
+ * once the window is otherwise empty so that it can never block forever.
+ */
+public final class InFlightWindow {
+
+    private final Object lock = new Object();
+
+    private final int maxCount;
+    private final long maxBytes;
+
+    private int count;
+    private long bytes;
+    private boolean closed;
+
+    /**
+     * Creates a new window with the given limits, a limit of zero or less disables
+     * that particular check.
+     *
+     * @param maxCount
+     *        the maximum number of operations that can be in flight.
+     * @param maxBytes
+     *        the maximum combined size of the operations that are in flight.
+     */
+    public InFlightWindow(int maxCount, long maxBytes) {
+        this.maxCount = maxCount;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Reserves space in the window for an operation of the given size, blocking until
+     * the space is available.
+     *
+     * @param size
+     *        the size in bytes of the operation being started.
+     *
+     * @throws InterruptedException if the caller is interrupted while waiting.
+     * @throws IllegalStateException if the window is closed before space is available.
+     */
+    public void acquire(long size) throws InterruptedException {
+        synchronized (lock) {
+            while (!closed && isFull(size)) {
+                lock.wait();
+            }
+
+            if (closed) {
+                throw new IllegalStateException("The in-flight window has been closed");
+            }
+
+            count++;
+            bytes += size;
+        }
+    }
+
+    /**
+     * Reserves space in the window for an operation of the given size if it is available
+     * right now, never blocks.
+     *
+     * @param size
+     *        the size in bytes of the operation being started.
+     *
+     * @return true if the space was reserved, false if the window is full.
+     *
+     * @throws IllegalStateException if the window is closed.
+     */
+    public boolean tryAcquire(long size) {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("The in-flight window has been closed");
+            }
+
+            if (isFull(size)) {
+                return false;
+            }
+
+            count++;
+            bytes += size;
+            return true;
+        }
+    }
+
+    /**
+     * Releases the space held by a completed operation and wakes any blocked callers.
+     *
+     * @param size
+     *        the size in bytes that was given when the operation was started.
+     */
+    public void release(long size) {
+        synchronized (lock) {
+            count--;
+            bytes -= size;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Closes the window, any blocked or future callers of acquire will fail.
+     */
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * @return the number of operations currently in flight.
+     */
+    public int getCount() {
+        synchronized (lock) {
+            return count;
+        }
+    }
+
+    /**
+     * @return the combined size of the operations currently in flight.
+     */
+    public long getBytes() {
+        synchronized (lock) {
+            return bytes;
+        }
+    }
+
+    private boolean isFull(long size) {
+        if (maxCount > 0 && count >= maxCount) {
+            return true;
+        }
+
+        return maxBytes > 0 && count > 0 && bytes + size > maxBytes;
+    }
+}
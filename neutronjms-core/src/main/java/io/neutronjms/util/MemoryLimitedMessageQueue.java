@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A MessageQueue that charges every message it holds to a MemoryUsage.
+ *
+ * Each envelope is accounted by its size when it is enqueued and released again when it
+ * leaves the queue by any means, so the usage always reflects the messages currently
+ * buffered.  The queue itself never refuses a message, the owner checks the usage and
+ * withholds credit from the remote peer while it is full.
+ */
+public final class MemoryLimitedMessageQueue implements MessageQueue {
+
+    private final MessageQueue queue;
+    private final MemoryUsage usage;
+
+    public MemoryLimitedMessageQueue(MessageQueue queue, MemoryUsage usage) {
+        this.queue = queue;
+        this.usage = usage;
+    }
+
+    @Override
+    public void enqueue(JmsInboundMessageDispatch envelope) {
+        usage.increase(envelope.getSize());
+        queue.enqueue(envelope);
+    }
+
+    @Override
+    public void enqueueFirst(JmsInboundMessageDispatch envelope) {
+        usage.increase(envelope.getSize());
+        queue.enqueueFirst(envelope);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public JmsInboundMessageDispatch peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public JmsInboundMessageDispatch dequeue(long timeout) throws InterruptedException {
+        return released(queue.dequeue(timeout));
+    }
+
+    @Override
+    public JmsInboundMessageDispatch dequeueNoWait() {
+        return released(queue.dequeueNoWait());
+    }
+
+    @Override
+    public int drainTo(Collection<JmsInboundMessageDispatch> target, int maxMessages) {
+        if (target instanceof List) {
+            List<JmsInboundMessageDispatch> list = (List<JmsInboundMessageDispatch>) target;
+            int start = list.size();
+            int count = queue.drainTo(list, maxMessages);
+            release(list.subList(start, list.size()));
+            return count;
+        }
+
+        List<JmsInboundMessageDispatch> drained = new ArrayList<JmsInboundMessageDispatch>(Math.min(maxMessages, 64));
+        int count = queue.drainTo(drained, maxMessages);
+        release(drained);
+        target.addAll(drained);
+        return count;
+    }
+
+    @Override
+    public void start() {
+        queue.start();
+    }
+
+    @Override
+    public void stop() {
+        queue.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return queue.isRunning();
+    }
+
+    @Override
+    public void close() {
+        queue.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return queue.isClosed();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void clear() {
+        release(queue.removeAll());
+    }
+
+    @Override
+    public List<JmsInboundMessageDispatch> removeAll() {
+        List<JmsInboundMessageDispatch> removed = queue.removeAll();
+        release(removed);
+        return removed;
+    }
+
+    @Override
+    public Object getLock() {
+        return queue.getLock();
+    }
+
+    /**
+     * @return the MemoryUsage that this queue charges its messages to.
+     */
+    public MemoryUsage getMemoryUsage() {
+        return usage;
+    }
+
+    @Override
+    public String toString() {
+        return queue.toString();
+    }
+
+    private JmsInboundMessageDispatch released(JmsInboundMessageDispatch envelope) {
+        if (envelope != null) {
+            usage.decrease(envelope.getSize());
+        }
+        return envelope;
+    }
+
+    private void release(List<JmsInboundMessageDispatch> envelopes) {
+        long size = 0;
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            size += envelope.getSize();
+        }
+        if (size > 0) {
+            usage.decrease(size);
+        }
+    }
+}
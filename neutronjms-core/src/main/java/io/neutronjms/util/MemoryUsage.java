@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the number of bytes held in memory against an optional limit.
+ *
+ * A usage can have a parent usage, every change is also applied to the parent and the
+ * usage reports itself full when either its own limit or that of any parent has been
+ * reached.  Nothing blocks on a full usage, callers check {@link #isFull()} and hold
+ * back whatever produces more data.  Listeners are notified each time the usage drops
+ * from its limit to below it so that they can resume.
+ */
+public final class MemoryUsage {
+
+    private final MemoryUsage parent;
+    private final long limit;
+    private final AtomicLong usage = new AtomicLong();
+    private final CopyOnWriteArrayList<Runnable> listeners = new CopyOnWriteArrayList<Runnable>();
+
+    /**
+     * Creates a new usage with the given limit, a limit of zero or less disables it.
+     *
+     * @param limit
+     *        the number of bytes at which this usage is full.
+     */
+    public MemoryUsage(long limit) {
+        this(limit, null);
+    }
+
+    /**
+     * Creates a new usage with the given limit whose changes are also applied to the
+     * given parent.
+     *
+     * @param limit
+     *        the number of bytes at which this usage is full, zero or less for no limit.
+     * @param parent
+     *        the usage that is also charged for this usage, or null if there is none.
+     */
+    public MemoryUsage(long limit, MemoryUsage parent) {
+        this.limit = limit;
+        this.parent = parent;
+    }
+
+    /**
+     * Adds the given number of bytes to this usage and its parents.
+     *
+     * @param size
+     *        the number of bytes now held.
+     */
+    public void increase(long size) {
+        usage.addAndGet(size);
+        if (parent != null) {
+            parent.increase(size);
+        }
+    }
+
+    /**
+     * Removes the given number of bytes from this usage and its parents, notifying the
+     * listeners of any usage that drops below its limit.
+     *
+     * @param size
+     *        the number of bytes no longer held.
+     */
+    public void decrease(long size) {
+        long value = usage.addAndGet(-size);
+        if (parent != null) {
+            parent.decrease(size);
+        }
+
+        if (limit > 0 && value < limit && value + size >= limit) {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * @return true if this usage or one of its parents has reached its limit.
+     */
+    public boolean isFull() {
+        if (limit > 0 && usage.get() >= limit) {
+            return true;
+        }
+
+        return parent != null && parent.isFull();
+    }
+
+    /**
+     * @return the number of bytes currently held.
+     */
+    public long getUsage() {
+        return usage.get();
+    }
+
+    /**
+     * @return the limit of this usage, zero or less if it has none.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the parent of this usage or null if it has none.
+     */
+    public MemoryUsage getParent() {
+        return parent;
+    }
+
+    /**
+     * Registers a listener that is run each time this usage drops below its limit.  The
+     * listener is run on the thread that released the memory and must not block.
+     *
+     * @param listener
+     *        the listener to add.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener
+     *        the listener to remove.
+     */
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryUsage { usage = " + usage.get() + ", limit = " + limit + " }";
+    }
+}
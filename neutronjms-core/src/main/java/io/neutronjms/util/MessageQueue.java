@@ -18,6 +18,7 @@ package io.neutronjms.util;
 
 import io.neutronjms.jms.message.JmsInboundMessageDispatch;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -42,6 +43,9 @@ public interface MessageQueue {
     void enqueueFirst(JmsInboundMessageDispatch envelope);
 
     /**
+     * Checks whether the queue holds any messages without taking the queue's lock, so
+     * that a thread can poll the queue cheaply before trying to take a message.
+     *
      * @return true if there are no messages in the queue.
      */
     boolean isEmpty();
@@ -74,6 +78,20 @@ public interface MessageQueue {
      */
     JmsInboundMessageDispatch dequeueNoWait();
 
+    /**
+     * Removes up to the given number of Messages from the Queue in Queue order and adds
+     * them to the given collection without blocking.  A non-started Queue transfers no
+     * Messages.
+     *
+     * @param target
+     *        the collection that the removed Messages are added to.
+     * @param maxMessages
+     *        the maximum number of Messages to remove.
+     *
+     * @return the number of Messages that were added to the target collection.
+     */
+    int drainTo(Collection<JmsInboundMessageDispatch> target, int maxMessages);
+
     /**
      * Starts the Message Queue.  An non-started Queue will always return null for
      * any of the Queue accessor methods.
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference counted byte array handed out by a {@link BufferPool}.
+ *
+ * The buffer starts with a single reference owned by the code that allocated it.  Each
+ * additional owner calls {@link #retain()} and every owner calls {@link #release()} when
+ * done, the last release returns the buffer to its pool.  The backing array must not be
+ * used after the final release as it will be handed out again.
+ */
+public final class PooledBuffer {
+
+    private final BufferPool pool;
+    private final byte[] data;
+    private final int sizeClass;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private int length;
+
+    PooledBuffer(BufferPool pool, byte[] data, int sizeClass) {
+        this.pool = pool;
+        this.data = data;
+        this.sizeClass = sizeClass;
+    }
+
+    /**
+     * @return the backing array, which may be larger than the requested size.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return the number of bytes of valid data held in the buffer.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public void setLength(int length) {
+        if (length < 0 || length > data.length) {
+            throw new IndexOutOfBoundsException("Length " + length + " is outside the buffer capacity " + data.length);
+        }
+        this.length = length;
+    }
+
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * @return a ByteBuffer that wraps the valid data of this buffer without a copy.
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(data, 0, length);
+    }
+
+    /**
+     * Adds a reference to the buffer.
+     *
+     * @return this buffer.
+     */
+    public PooledBuffer retain() {
+        if (references.getAndIncrement() <= 0) {
+            references.getAndDecrement();
+            throw new IllegalStateException("Cannot retain a buffer that has already been released");
+        }
+        return this;
+    }
+
+    /**
+     * Removes a reference from the buffer, the buffer returns to its pool when the last
+     * reference is released.
+     */
+    public void release() {
+        int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            pool.recycle(this);
+        } else if (remaining < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("Buffer was released more times than it was retained");
+        }
+    }
+
+    public int getReferenceCount() {
+        return references.get();
+    }
+
+    int getSizeClass() {
+        return sizeClass;
+    }
+
+    void reset() {
+        references.set(1);
+        length = 0;
+    }
+}
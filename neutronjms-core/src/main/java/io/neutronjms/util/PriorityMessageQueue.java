@@ -19,34 +19,37 @@ package io.neutronjms.util;
 import io.neutronjms.jms.message.JmsInboundMessageDispatch;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
-import javax.jms.JMSException;
-
 /**
  * Simple Message Priority ordered Queue.  Message envelopes are stored in the
  * Queue based on their priority value.
+ *
+ * Each priority level is held in its own array backed ring and a bitmask tracks
+ * which levels currently hold messages so that the highest priority message can
+ * be located without scanning every level.
  */
 public final class PriorityMessageQueue extends AbstractMessageQueue {
 
-    private static final Integer MAX_PRIORITY = 10;
+    private static final int MAX_PRIORITY = 10;
 
-    private final LinkedList<JmsInboundMessageDispatch>[] lists;
-    private int size = 0;
+    private final PriorityLevel[] levels;
+    private int occupied;
+    private volatile int size = 0;
 
-    @SuppressWarnings("unchecked")
     public PriorityMessageQueue() {
-        this.lists = new LinkedList[MAX_PRIORITY];
+        this.levels = new PriorityLevel[MAX_PRIORITY];
         for (int i = 0; i < MAX_PRIORITY; i++) {
-            lists[i] = new LinkedList<JmsInboundMessageDispatch>();
+            levels[i] = new PriorityLevel();
         }
     }
 
     @Override
     public void enqueue(JmsInboundMessageDispatch envelope) {
         synchronized (lock) {
-            getList(envelope).addLast(envelope);
+            int priority = envelope.getPriority();
+            levels[priority].addLast(envelope);
+            this.occupied |= 1 << priority;
             this.size++;
             lock.notify();
         }
@@ -55,7 +58,9 @@ public final class PriorityMessageQueue extends AbstractMessageQueue {
     @Override
     public void enqueueFirst(JmsInboundMessageDispatch envelope) {
         synchronized (lock) {
-            getList(envelope).addFirst(envelope);
+            int priority = envelope.getPriority();
+            levels[priority].addFirst(envelope);
+            this.occupied |= 1 << priority;
             this.size++;
             lock.notify();
         }
@@ -63,24 +68,21 @@ public final class PriorityMessageQueue extends AbstractMessageQueue {
 
     @Override
     public boolean isEmpty() {
-        synchronized (lock) {
-            return size == 0;
-        }
+        return size == 0;
     }
 
     @Override
     public int size() {
-        synchronized (lock) {
-            return size;
-        }
+        return size;
     }
 
     @Override
     public void clear() {
         synchronized (lock) {
             for (int i = 0; i < MAX_PRIORITY; i++) {
-                lists[i].clear();
+                levels[i].clear();
             }
+            this.occupied = 0;
             this.size = 0;
         }
     }
@@ -88,57 +90,108 @@ public final class PriorityMessageQueue extends AbstractMessageQueue {
     @Override
     public List<JmsInboundMessageDispatch> removeAll() {
         synchronized (lock) {
-            ArrayList<JmsInboundMessageDispatch> result = new ArrayList<JmsInboundMessageDispatch>(size());
+            ArrayList<JmsInboundMessageDispatch> result = new ArrayList<JmsInboundMessageDispatch>(size);
             for (int i = MAX_PRIORITY - 1; i >= 0; i--) {
-                List<JmsInboundMessageDispatch> list = lists[i];
-                result.addAll(list);
-                size -= list.size();
-                list.clear();
+                levels[i].drainTo(result);
             }
+            this.occupied = 0;
+            this.size = 0;
             return result;
         }
     }
 
     @Override
     protected JmsInboundMessageDispatch removeFirst() {
-        if (this.size > 0) {
-            for (int i = MAX_PRIORITY - 1; i >= 0; i--) {
-                LinkedList<JmsInboundMessageDispatch> list = lists[i];
-                if (!list.isEmpty()) {
-                    this.size--;
-                    return list.removeFirst();
-                }
+        if (this.occupied != 0) {
+            int priority = highestPriority();
+            PriorityLevel level = levels[priority];
+            JmsInboundMessageDispatch envelope = level.removeFirst();
+            if (level.isEmpty()) {
+                this.occupied &= ~(1 << priority);
             }
+            this.size--;
+            return envelope;
         }
         return null;
     }
 
     @Override
     protected JmsInboundMessageDispatch peekFirst() {
-        if (this.size > 0) {
-            for (int i = MAX_PRIORITY - 1; i >= 0; i--) {
-                LinkedList<JmsInboundMessageDispatch> list = lists[i];
-                if (!list.isEmpty()) {
-                    return list.peekFirst();
-                }
-            }
+        if (this.occupied != 0) {
+            return levels[highestPriority()].peekFirst();
         }
         return null;
     }
 
-    private int getPriority(JmsInboundMessageDispatch envelope) {
-        int priority = javax.jms.Message.DEFAULT_PRIORITY;
-        if (envelope.getMessage() != null) {
-            try {
-                priority = Math.max(envelope.getMessage().getJMSPriority(), 0);
-            } catch (JMSException e) {
+    private int highestPriority() {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(occupied);
+    }
+
+    /**
+     * Growable array backed ring holding the envelopes of a single priority level.
+     */
+    private static final class PriorityLevel {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private JmsInboundMessageDispatch[] elements = new JmsInboundMessageDispatch[INITIAL_CAPACITY];
+        private int head;
+        private int count;
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        public void addLast(JmsInboundMessageDispatch envelope) {
+            if (count == elements.length) {
+                grow();
             }
-            priority = Math.min(priority, 9);
+            elements[(head + count) & (elements.length - 1)] = envelope;
+            count++;
+        }
+
+        public void addFirst(JmsInboundMessageDispatch envelope) {
+            if (count == elements.length) {
+                grow();
+            }
+            head = (head - 1) & (elements.length - 1);
+            elements[head] = envelope;
+            count++;
+        }
+
+        public JmsInboundMessageDispatch peekFirst() {
+            return elements[head];
+        }
+
+        public JmsInboundMessageDispatch removeFirst() {
+            JmsInboundMessageDispatch envelope = elements[head];
+            elements[head] = null;
+            head = (head + 1) & (elements.length - 1);
+            count--;
+            return envelope;
         }
-        return priority;
-    }
 
-    private LinkedList<JmsInboundMessageDispatch> getList(JmsInboundMessageDispatch envelope) {
-        return lists[getPriority(envelope)];
+        public void drainTo(List<JmsInboundMessageDispatch> target) {
+            while (count > 0) {
+                target.add(removeFirst());
+            }
+            head = 0;
+        }
+
+        public void clear() {
+            while (count > 0) {
+                removeFirst();
+            }
+            head = 0;
+        }
+
+        private void grow() {
+            JmsInboundMessageDispatch[] expanded = new JmsInboundMessageDispatch[elements.length << 1];
+            for (int i = 0; i < count; i++) {
+                expanded[i] = elements[(head + i) & (elements.length - 1)];
+            }
+            elements = expanded;
+            head = 0;
+        }
     }
 }
@@ -0,0 +1,346 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, array backed first in / first out Message Queue.
+ *
+ * The Queue is designed for a single producer, the Provider thread dispatching to a
+ * consumer, and any number of consumer threads.  Callers must ensure that enqueue
+ * calls are never made concurrently, the JmsMessageConsumer does so by holding its own
+ * lock while dispatching.  Enqueue and dequeue do not acquire a monitor on their fast
+ * path, the lock is only used to park consumers when the Queue is empty and to guard
+ * the rarely used overflow and enqueueFirst lists.
+ *
+ * The ring is sized from the consumer prefetch so that the overflow list is only used
+ * when the remote peer sends more than the credit it was granted, such as when messages
+ * are redelivered during recovery.
+ */
+public final class RingBufferMessageQueue implements MessageQueue {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final Object lock = new Object();
+
+    private final AtomicReferenceArray<JmsInboundMessageDispatch> ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final LinkedList<JmsInboundMessageDispatch> prepended = new LinkedList<JmsInboundMessageDispatch>();
+    private final LinkedList<JmsInboundMessageDispatch> overflow = new LinkedList<JmsInboundMessageDispatch>();
+    private volatile int prependedCount;
+    private volatile int overflowCount;
+    private volatile int waiters;
+
+    private volatile boolean closed;
+    private volatile boolean running;
+
+    /**
+     * Creates a new Queue whose ring can hold at least the given number of messages.
+     *
+     * @param capacity
+     *        the minimum number of messages the ring can hold, usually the consumer prefetch.
+     */
+    public RingBufferMessageQueue(int capacity) {
+        int size = MIN_CAPACITY;
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        this.ring = new AtomicReferenceArray<JmsInboundMessageDispatch>(size);
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void enqueue(JmsInboundMessageDispatch envelope) {
+        if (overflowCount == 0 && offer(envelope)) {
+            if (waiters > 0) {
+                synchronized (lock) {
+                    lock.notify();
+                }
+            }
+        } else {
+            synchronized (lock) {
+                overflow.addLast(envelope);
+                overflowCount++;
+                lock.notify();
+            }
+        }
+    }
+
+    @Override
+    public void enqueueFirst(JmsInboundMessageDispatch envelope) {
+        synchronized (lock) {
+            prepended.addFirst(envelope);
+            prependedCount++;
+            lock.notify();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public JmsInboundMessageDispatch peek() {
+        if (prependedCount > 0 || overflowCount > 0) {
+            synchronized (lock) {
+                if (!prepended.isEmpty()) {
+                    return prepended.peekFirst();
+                }
+
+                JmsInboundMessageDispatch envelope = peekRing();
+                if (envelope == null) {
+                    envelope = overflow.peekFirst();
+                }
+                return envelope;
+            }
+        }
+
+        return peekRing();
+    }
+
+    @Override
+    public JmsInboundMessageDispatch dequeue(long timeout) throws InterruptedException {
+        JmsInboundMessageDispatch envelope = dequeueNoWait();
+        if (envelope != null || timeout == 0 || closed) {
+            return envelope;
+        }
+
+        synchronized (lock) {
+            waiters++;
+            try {
+                // Wait until the consumer is ready to deliver messages.
+                while (!closed && (!running || (envelope = take()) == null)) {
+                    if (timeout == -1) {
+                        lock.wait();
+                    } else {
+                        lock.wait(timeout);
+                        break;
+                    }
+                }
+            } finally {
+                waiters--;
+            }
+
+            if (envelope == null && !closed && running) {
+                envelope = take();
+            }
+        }
+
+        return envelope;
+    }
+
+    @Override
+    public JmsInboundMessageDispatch dequeueNoWait() {
+        if (closed || !running) {
+            return null;
+        }
+
+        return take();
+    }
+
+    @Override
+    public int drainTo(Collection<JmsInboundMessageDispatch> target, int maxMessages) {
+        if (closed || !running) {
+            return 0;
+        }
+
+        synchronized (lock) {
+            int count = 0;
+            JmsInboundMessageDispatch envelope = null;
+            while (count < maxMessages && (envelope = take()) != null) {
+                target.add(envelope);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    @Override
+    public void start() {
+        synchronized (lock) {
+            running = true;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (!closed) {
+                running = false;
+                closed = true;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int size() {
+        long inRing = tail.get() - head.get();
+        return (int) Math.max(0, inRing) + prependedCount + overflowCount;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            prepended.clear();
+            prependedCount = 0;
+            while (pollRing() != null) {
+            }
+            overflow.clear();
+            overflowCount = 0;
+        }
+    }
+
+    @Override
+    public List<JmsInboundMessageDispatch> removeAll() {
+        synchronized (lock) {
+            ArrayList<JmsInboundMessageDispatch> rc = new ArrayList<JmsInboundMessageDispatch>(size());
+            rc.addAll(prepended);
+            prepended.clear();
+            prependedCount = 0;
+
+            JmsInboundMessageDispatch envelope = null;
+            while ((envelope = pollRing()) != null) {
+                rc.add(envelope);
+            }
+
+            rc.addAll(overflow);
+            overflow.clear();
+            overflowCount = 0;
+            return rc;
+        }
+    }
+
+    @Override
+    public Object getLock() {
+        return lock;
+    }
+
+    /**
+     * @return the number of messages the ring portion of this Queue can hold.
+     */
+    public int getCapacity() {
+        return ring.length();
+    }
+
+    @Override
+    public String toString() {
+        return "RingBufferMessageQueue { size = " + size() + ", capacity = " + getCapacity() + " }";
+    }
+
+    /**
+     * Removes the next message in Queue order checking the lists that are guarded by
+     * the lock only when they are known to hold messages.
+     */
+    private JmsInboundMessageDispatch take() {
+        if (prependedCount > 0) {
+            synchronized (lock) {
+                if (!prepended.isEmpty()) {
+                    prependedCount--;
+                    return prepended.removeFirst();
+                }
+            }
+        }
+
+        JmsInboundMessageDispatch envelope = pollRing();
+        if (envelope == null && overflowCount > 0) {
+            synchronized (lock) {
+                // Overflowed messages are always newer than those in the ring so
+                // they are only taken once the ring has been fully drained.
+                envelope = pollRing();
+                if (envelope == null && !overflow.isEmpty()) {
+                    overflowCount--;
+                    envelope = overflow.removeFirst();
+                }
+            }
+        }
+
+        return envelope;
+    }
+
+    private boolean offer(JmsInboundMessageDispatch envelope) {
+        long current = tail.get();
+        int index = (int) current & mask;
+
+        // A slot that is still occupied means the ring is full or a consumer has
+        // claimed it but not yet cleared it, either way it cannot be reused yet.
+        if (ring.get(index) != null) {
+            return false;
+        }
+
+        ring.lazySet(index, envelope);
+        tail.set(current + 1);
+        return true;
+    }
+
+    private JmsInboundMessageDispatch pollRing() {
+        while (true) {
+            long current = head.get();
+            if (current >= tail.get()) {
+                return null;
+            }
+
+            if (head.compareAndSet(current, current + 1)) {
+                int index = (int) current & mask;
+                JmsInboundMessageDispatch envelope = ring.get(index);
+                ring.lazySet(index, null);
+                return envelope;
+            }
+        }
+    }
+
+    private JmsInboundMessageDispatch peekRing() {
+        long current = head.get();
+        if (current >= tail.get()) {
+            return null;
+        }
+
+        return ring.get((int) current & mask);
+    }
+}
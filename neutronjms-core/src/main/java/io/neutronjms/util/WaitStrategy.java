@@ -0,0 +1,229 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controls how a thread waits for a message to arrive in a MessageQueue during a
+ * synchronous receive.
+ *
+ * The default strategy parks the thread on the queue's lock until a message is
+ * enqueued, which costs the least CPU but adds the wake-up latency of the parked thread
+ * to every message.  The other strategies poll the queue for a number of attempts before
+ * they yield, fall back to parking, or never stop polling, trading CPU time for latency.
+ */
+public abstract class WaitStrategy {
+
+    public static final String BLOCKING = "blocking";
+    public static final String SPIN_YIELD = "spin-yield";
+    public static final String SPIN_PARK = "spin-park";
+    public static final String BUSY_SPIN = "busy-spin";
+
+    public static final int DEFAULT_SPIN_COUNT = 10000;
+
+    /**
+     * Creates the named wait strategy.
+     *
+     * @param name
+     *        one of blocking, spin-yield, spin-park or busy-spin.
+     * @param spinCount
+     *        the number of times the queue is polled before a spin-yield strategy starts
+     *        to yield or a spin-park strategy parks the thread.
+     *
+     * @return a new WaitStrategy instance.
+     *
+     * @throws IllegalArgumentException if the name is not a known strategy.
+     */
+    public static WaitStrategy create(String name, int spinCount) {
+        if (name == null || BLOCKING.equalsIgnoreCase(name)) {
+            return new BlockingWaitStrategy();
+        } else if (SPIN_YIELD.equalsIgnoreCase(name)) {
+            return new SpinYieldWaitStrategy(spinCount);
+        } else if (SPIN_PARK.equalsIgnoreCase(name)) {
+            return new SpinParkWaitStrategy(spinCount);
+        } else if (BUSY_SPIN.equalsIgnoreCase(name)) {
+            return new BusySpinWaitStrategy();
+        }
+
+        throw new IllegalArgumentException("Unknown wait strategy: " + name);
+    }
+
+    /**
+     * Removes the first message from the queue, waiting for one to arrive if needed.
+     *
+     * @param queue
+     *        the queue to take the message from.
+     * @param timeout
+     *        the time in milliseconds to wait, -1 waits until a message arrives or the
+     *        queue is closed and zero does not wait.
+     *
+     * @return the first message in the queue or null if none arrived in time.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public JmsInboundMessageDispatch dequeue(MessageQueue queue, long timeout) throws InterruptedException {
+        if (timeout == 0) {
+            return queue.dequeue(0);
+        }
+
+        long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+        int attempt = 0;
+
+        for (;;) {
+            // Only take the queue's lock once a message is visible, polling an empty
+            // queue must not contend with the thread that is enqueuing into it.
+            if (!queue.isEmpty()) {
+                JmsInboundMessageDispatch envelope = queue.dequeueNoWait();
+                if (envelope != null) {
+                    return envelope;
+                }
+            }
+
+            if (queue.isClosed()) {
+                return null;
+            }
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            long remaining = -1;
+            if (timeout > 0) {
+                remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+            }
+
+            // A stopped queue may stay empty indefinitely, let it park the thread until
+            // the consumer is started again.
+            if (!queue.isRunning() || !idle(attempt++)) {
+                if (remaining > 0) {
+                    remaining = Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining));
+                }
+                return queue.dequeue(remaining);
+            }
+        }
+    }
+
+    /**
+     * Called each time the queue was found to be empty.
+     *
+     * @param attempt
+     *        the number of earlier attempts to take a message.
+     *
+     * @return true to poll the queue again, false to park on the queue until a message arrives.
+     */
+    protected abstract boolean idle(int attempt);
+
+    /**
+     * @return the name of this wait strategy.
+     */
+    public abstract String getName();
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    /**
+     * Parks the thread on the queue immediately.
+     */
+    private static final class BlockingWaitStrategy extends WaitStrategy {
+
+        @Override
+        public JmsInboundMessageDispatch dequeue(MessageQueue queue, long timeout) throws InterruptedException {
+            return queue.dequeue(timeout);
+        }
+
+        @Override
+        protected boolean idle(int attempt) {
+            return false;
+        }
+
+        @Override
+        public String getName() {
+            return BLOCKING;
+        }
+    }
+
+    /**
+     * Polls the queue for the spin budget and then yields between polls.
+     */
+    private static final class SpinYieldWaitStrategy extends WaitStrategy {
+
+        private final int spinCount;
+
+        public SpinYieldWaitStrategy(int spinCount) {
+            this.spinCount = spinCount;
+        }
+
+        @Override
+        protected boolean idle(int attempt) {
+            if (attempt < 0 || attempt >= spinCount) {
+                Thread.yield();
+            }
+            return true;
+        }
+
+        @Override
+        public String getName() {
+            return SPIN_YIELD;
+        }
+    }
+
+    /**
+     * Polls the queue for the spin budget and then parks on the queue.
+     */
+    private static final class SpinParkWaitStrategy extends WaitStrategy {
+
+        private final int spinCount;
+
+        public SpinParkWaitStrategy(int spinCount) {
+            this.spinCount = spinCount;
+        }
+
+        @Override
+        protected boolean idle(int attempt) {
+            return attempt < spinCount;
+        }
+
+        @Override
+        public String getName() {
+            return SPIN_PARK;
+        }
+    }
+
+    /**
+     * Polls the queue without pause until a message arrives or the wait times out.
+     */
+    private static final class BusySpinWaitStrategy extends WaitStrategy {
+
+        @Override
+        protected boolean idle(int attempt) {
+            return true;
+        }
+
+        @Override
+        public String getName() {
+            return BUSY_SPIN;
+        }
+    }
+}
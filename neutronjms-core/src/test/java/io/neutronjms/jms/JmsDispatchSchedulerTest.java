@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for the JmsDispatchScheduler
+ */
+public class JmsDispatchSchedulerTest {
+
+    @Test(timeout = 30000)
+    public void testSerialExecutorRunsTasksInOrderOneAtATime() throws Exception {
+        JmsDispatchScheduler scheduler = new JmsDispatchScheduler(4);
+        assertTrue(scheduler.acquire());
+
+        final int TASK_COUNT = 10000;
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>(TASK_COUNT));
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(TASK_COUNT);
+
+        Executor executor = scheduler.createSerialExecutor();
+        for (int i = 0; i < TASK_COUNT; ++i) {
+            final int index = i;
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (running.incrementAndGet() != 1) {
+                        overlapped.set(true);
+                    }
+                    order.add(index);
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertFalse("Tasks of one serial executor ran concurrently", overlapped.get());
+        for (int i = 0; i < TASK_COUNT; ++i) {
+            assertEquals(i, order.get(i).intValue());
+        }
+
+        scheduler.release();
+    }
+
+    @Test(timeout = 30000)
+    public void testManySerialExecutorsShareFixedPool() throws Exception {
+        final int POOL_SIZE = 2;
+        final int EXECUTOR_COUNT = 200;
+
+        JmsDispatchScheduler scheduler = new JmsDispatchScheduler(POOL_SIZE);
+        assertTrue(scheduler.acquire());
+
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        final CountDownLatch done = new CountDownLatch(EXECUTOR_COUNT * 10);
+
+        for (int i = 0; i < EXECUTOR_COUNT; ++i) {
+            Executor executor = scheduler.createSerialExecutor();
+            for (int j = 0; j < 10; ++j) {
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        threads.add(Thread.currentThread());
+                        done.countDown();
+                    }
+                });
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue("Used more threads than the pool size: " + threads.size(), threads.size() <= POOL_SIZE);
+
+        scheduler.release();
+    }
+
+    @Test(timeout = 30000)
+    public void testFailedTaskDoesNotStopExecutor() throws Exception {
+        JmsDispatchScheduler scheduler = new JmsDispatchScheduler(1);
+        assertTrue(scheduler.acquire());
+
+        final CountDownLatch done = new CountDownLatch(1);
+        Executor executor = scheduler.createSerialExecutor();
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                throw new RuntimeException("Expected");
+            }
+        });
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        scheduler.release();
+    }
+
+    @Test(timeout = 30000)
+    public void testReleaseOfLastReferenceShutsDown() throws Exception {
+        JmsDispatchScheduler scheduler = new JmsDispatchScheduler(1);
+        assertTrue(scheduler.acquire());
+        assertTrue(scheduler.acquire());
+
+        scheduler.release();
+        Executor executor = scheduler.createSerialExecutor();
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        scheduler.release();
+        assertFalse(scheduler.acquire());
+
+        try {
+            scheduler.createSerialExecutor().execute(new Runnable() {
+
+                @Override
+                public void run() {
+                }
+            });
+            throw new AssertionError("Should not accept work after shutdown");
+        } catch (RejectedExecutionException e) {
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.neutronjms.jms.meta.JmsMessageId;
+
+import org.junit.Test;
+
+/**
+ * Tests for the JmsInboundMessagePool class
+ */
+public class JmsInboundMessagePoolTest {
+
+    @Test
+    public void testReleasedInstancesAreReused() throws Exception {
+        JmsInboundMessagePool pool = new JmsInboundMessagePool(10, false);
+
+        JmsTextMessage message = pool.createTextMessage("first");
+        message.setStringProperty("color", "red");
+        message.getFacade().setMessageId(new JmsMessageId("ID:1"));
+        message.onSend();
+        JmsInboundMessageDispatch envelope = pool.createEnvelope();
+        envelope.setMessage(message);
+        envelope.setSize(100);
+
+        JmsTextMessage copy = message.copy();
+        pool.release(envelope);
+        assertTrue(envelope.isReleased());
+        assertTrue(message.isReleased());
+        assertEquals(1, pool.getPooledEnvelopeCount());
+
+        JmsInboundMessageDispatch reusedEnvelope = pool.createEnvelope();
+        JmsTextMessage reusedMessage = pool.createTextMessage();
+        assertSame(envelope, reusedEnvelope);
+        assertSame(message, reusedMessage);
+        assertEquals(2, pool.getReusedCount());
+
+        // Recycled instances look like new ones and the earlier copy is unaffected.
+        assertFalse(reusedEnvelope.isReleased());
+        assertNull(reusedEnvelope.getMessage());
+        assertNull(reusedMessage.getText());
+        assertNull(reusedMessage.getStringProperty("color"));
+        assertNull(reusedMessage.getJMSMessageID());
+        reusedMessage.setText("second");
+        assertEquals("first", copy.getText());
+        assertEquals("red", copy.getStringProperty("color"));
+    }
+
+    @Test
+    public void testMessagesAreOnlyReusedForTheirType() throws Exception {
+        JmsInboundMessagePool pool = new JmsInboundMessagePool(10, false);
+
+        JmsBytesMessage message = pool.createBytesMessage();
+        message.writeInt(42);
+        message.onSend();
+        JmsInboundMessageDispatch envelope = pool.createEnvelope();
+        envelope.setMessage(message);
+        pool.release(envelope);
+
+        assertNotSame(message, pool.createMapMessage());
+        JmsBytesMessage reused = pool.createBytesMessage();
+        assertSame(message, reused);
+        reused.reset();
+        assertEquals(0, reused.getBodyLength());
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        JmsInboundMessagePool pool = new JmsInboundMessagePool(2, false);
+        for (int i = 0; i < 5; ++i) {
+            JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+            envelope.setMessage(pool.createMessage());
+            pool.release(envelope);
+        }
+        assertEquals(2, pool.getPooledEnvelopeCount());
+    }
+
+    @Test
+    public void testUseAfterReleaseIsDetected() throws Exception {
+        JmsInboundMessagePool pool = new JmsInboundMessagePool(10, true);
+
+        JmsMessage message = pool.createMessage();
+        JmsInboundMessageDispatch envelope = pool.createEnvelope();
+        envelope.setMessage(message);
+        pool.release(envelope);
+
+        try {
+            envelope.getMessage();
+            fail("Should not be able to use a released envelope");
+        } catch (IllegalStateException ex) {
+        }
+
+        try {
+            message.copy();
+            fail("Should not be able to copy a released message");
+        } catch (IllegalStateException ex) {
+        }
+
+        try {
+            pool.release(envelope);
+            fail("Should not be able to release an envelope twice");
+        } catch (IllegalStateException ex) {
+        }
+
+        // Released instances are never handed out again while debugging.
+        assertEquals(0, pool.getPooledEnvelopeCount());
+        assertNotSame(envelope, pool.createEnvelope());
+        assertNotSame(message, pool.createMessage());
+    }
+}
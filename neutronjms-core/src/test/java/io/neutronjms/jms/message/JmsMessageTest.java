@@ -937,4 +937,45 @@ public class JmsMessageTest {
         msg.setJMSExpiration(System.currentTimeMillis() + 10000);
         assertFalse(msg.isExpired());
     }
+
+    @Test
+    public void testSharedMessageIsCopiedBeforeModification() throws JMSException {
+        JmsTextMessage msg = factory.createTextMessage();
+        msg.setText("original");
+        msg.setStringProperty("key", "value");
+        msg.onSend();
+
+        JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+        envelope.setMessage(msg);
+        msg.setSharedEnvelope(envelope);
+        assertTrue(msg.isShared());
+
+        msg.getText();
+        assertTrue(envelope.getMessage() == msg);
+
+        msg.clearBody();
+        msg.setText("changed");
+        msg.clearProperties();
+
+        assertFalse(msg.isShared());
+        assertFalse(envelope.getMessage() == msg);
+        JmsTextMessage retained = (JmsTextMessage) envelope.getMessage();
+        assertEquals("original", retained.getText());
+        assertEquals("value", retained.getStringProperty("key"));
+    }
+
+    @Test
+    public void testSharedMessageIsCopiedOnRedelivery() throws JMSException {
+        JmsMessage msg = factory.createMessage();
+        JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+        envelope.setMessage(msg);
+        msg.setSharedEnvelope(envelope);
+
+        envelope.onMessageRedelivered();
+
+        assertFalse(msg.isShared());
+        assertFalse(msg.getJMSRedelivered());
+        assertFalse(envelope.getMessage() == msg);
+        assertTrue(envelope.getMessage().getJMSRedelivered());
+    }
 }
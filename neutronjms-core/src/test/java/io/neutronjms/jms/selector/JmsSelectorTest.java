@@ -0,0 +1,252 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.jms.selector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.neutronjms.jms.message.facade.defaults.JmsDefaultMessageFacade;
+
+import javax.jms.InvalidSelectorException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the client side JmsSelector
+ */
+public class JmsSelectorTest {
+
+    private JmsDefaultMessageFacade message;
+
+    @Before
+    public void setUp() throws Exception {
+        message = new JmsDefaultMessageFacade();
+        message.setProperty("name", "James");
+        message.setProperty("location", "London");
+        message.setProperty("byteProp", Byte.valueOf((byte) 3));
+        message.setProperty("shortProp", Short.valueOf((short) 4));
+        message.setProperty("intProp", Integer.valueOf(5));
+        message.setProperty("longProp", Long.valueOf(10));
+        message.setProperty("floatProp", Float.valueOf(1.5f));
+        message.setProperty("doubleProp", Double.valueOf(2.5));
+        message.setProperty("trueProp", Boolean.TRUE);
+        message.setProperty("falseProp", Boolean.FALSE);
+        message.setType("selector-test");
+        message.setPriority((byte) 7);
+        message.setPersistent(true);
+        message.setGroupId("orders");
+    }
+
+    @Test
+    public void testStringComparison() throws Exception {
+        assertSelector("name = 'James'", true);
+        assertSelector("name = 'Hiram'", false);
+        assertSelector("name <> 'Hiram'", true);
+        assertSelector("'James' = name", true);
+        assertSelector("name = 'It''s'", false);
+    }
+
+    @Test
+    public void testNumericComparison() throws Exception {
+        assertSelector("intProp = 5", true);
+        assertSelector("intProp = 5.0", true);
+        assertSelector("longProp > intProp", true);
+        assertSelector("byteProp < shortProp", true);
+        assertSelector("floatProp >= 1.5", true);
+        assertSelector("doubleProp <= 2", false);
+        assertSelector("intProp <> 5", false);
+        assertSelector("longProp = 0xA", true);
+        assertSelector("longProp = 012", true);
+        assertSelector("longProp = 10L", true);
+        assertSelector("doubleProp = 25E-1", true);
+    }
+
+    @Test
+    public void testUnlikeTypesAreNotEqual() throws Exception {
+        assertSelector("name = 5", false);
+        assertSelector("name <> 5", false);
+        assertSelector("intProp = '5'", false);
+        assertSelector("name > 'A'", false);
+        assertSelector("trueProp = 1", false);
+    }
+
+    @Test
+    public void testBooleans() throws Exception {
+        assertSelector("trueProp", true);
+        assertSelector("trueProp = TRUE", true);
+        assertSelector("falseProp", false);
+        assertSelector("NOT falseProp", true);
+        assertSelector("falseProp = false", true);
+        assertSelector("name", false);
+    }
+
+    @Test
+    public void testUnknownValues() throws Exception {
+        assertSelector("missing = 'x'", false);
+        assertSelector("NOT (missing = 'x')", false);
+        assertSelector("missing IS NULL", true);
+        assertSelector("name IS NOT NULL", true);
+        assertSelector("missing IS NOT NULL", false);
+        assertSelector("missing = 'x' OR name = 'James'", true);
+        assertSelector("missing = 'x' AND name = 'James'", false);
+        assertSelector("NOT (missing = 'x' AND name = 'Hiram')", true);
+        assertSelector("missing + 1 = 1", false);
+        assertSelector("missing NOT IN ('a', 'b')", false);
+        assertSelector("missing NOT LIKE 'a%'", false);
+        assertSelector("missing NOT BETWEEN 1 AND 3", false);
+    }
+
+    @Test
+    public void testLogicalOperators() throws Exception {
+        assertSelector("name = 'James' AND location = 'London'", true);
+        assertSelector("name = 'James' AND location = 'Paris'", false);
+        assertSelector("name = 'Hiram' OR location = 'London'", true);
+        assertSelector("NOT name = 'Hiram'", true);
+        assertSelector("name = 'Hiram' OR location = 'Paris' OR intProp = 5", true);
+        assertSelector("(name = 'Hiram' OR location = 'London') AND intProp = 5", true);
+        assertSelector("name = 'Hiram' OR location = 'London' AND intProp = 6", false);
+    }
+
+    @Test
+    public void testArithmetic() throws Exception {
+        assertSelector("intProp + 5 = longProp", true);
+        assertSelector("longProp - intProp * 2 = 0", true);
+        assertSelector("longProp / 4 = 2", true);
+        assertSelector("longProp / 4.0 = 2.5", true);
+        assertSelector("-intProp = -5", true);
+        assertSelector("doubleProp * 2 = 5", true);
+        assertSelector("intProp / 0 = 0", false);
+        assertSelector("intProp > -9223372036854775808", true);
+    }
+
+    @Test
+    public void testBetween() throws Exception {
+        assertSelector("intProp BETWEEN 1 AND 5", true);
+        assertSelector("intProp BETWEEN 6 AND 10", false);
+        assertSelector("intProp NOT BETWEEN 6 AND 10", true);
+        assertSelector("doubleProp BETWEEN 2 AND 3", true);
+        assertSelector("name BETWEEN 1 AND 3", false);
+    }
+
+    @Test
+    public void testIn() throws Exception {
+        assertSelector("location IN ('London', 'Paris')", true);
+        assertSelector("location IN ('Paris')", false);
+        assertSelector("location NOT IN ('Paris', 'Rome')", true);
+        assertSelector("intProp IN ('5')", false);
+    }
+
+    @Test
+    public void testLike() throws Exception {
+        assertSelector("name LIKE 'James'", true);
+        assertSelector("name LIKE 'Jam%'", true);
+        assertSelector("name LIKE '%mes'", true);
+        assertSelector("name LIKE '%am%'", true);
+        assertSelector("name LIKE 'J%s'", true);
+        assertSelector("name LIKE 'J_mes'", true);
+        assertSelector("name LIKE 'J_m'", false);
+        assertSelector("name LIKE '%'", true);
+        assertSelector("name NOT LIKE 'H%'", true);
+        assertSelector("name LIKE 'j%'", false);
+        assertSelector("name LIKE 'Ja.*'", false);
+        assertSelector("intProp LIKE '5'", false);
+    }
+
+    @Test
+    public void testLikeEscape() throws Exception {
+        message.setProperty("path", "100%_done");
+        assertSelector("path LIKE '100\\%\\_done' ESCAPE '\\'", true);
+        assertSelector("path LIKE '100!%%' ESCAPE '!'", true);
+        assertSelector("path LIKE '10!%%' ESCAPE '!'", false);
+    }
+
+    @Test
+    public void testHeaders() throws Exception {
+        assertSelector("JMSType = 'selector-test'", true);
+        assertSelector("JMSPriority > 5", true);
+        assertSelector("JMSDeliveryMode = 'PERSISTENT'", true);
+        assertSelector("JMSXGroupID = 'orders'", true);
+        assertSelector("JMSCorrelationID IS NULL", true);
+    }
+
+    @Test
+    public void testKeywordsAreCaseInsensitive() throws Exception {
+        assertSelector("name = 'James' and location in ('London') or false", true);
+        assertSelector("missing is null and not (intProp between 6 and 7)", true);
+    }
+
+    @Test
+    public void testConstantExpressionsAreFolded() throws Exception {
+        assertTrue(JmsSelector.compile("1 + 1 = 2").isAlwaysTrue());
+        assertTrue(JmsSelector.compile("TRUE OR name = 'James'").isAlwaysTrue());
+        assertFalse(JmsSelector.compile("1 + 1 = 3").isAlwaysTrue());
+        assertFalse(JmsSelector.compile("name = 'James'").isAlwaysTrue());
+
+        assertEquals("(intProp > 6)", JmsSelector.compile("intProp > 2 * 3").toString());
+        assertEquals("(name = 'James')", JmsSelector.compile("1 = 1 AND name = 'James'").toString());
+        assertEquals("false", JmsSelector.compile("name = 'James' AND 1 = 2").toString());
+    }
+
+    @Test
+    public void testInvalidSelectors() throws Exception {
+        assertInvalid("name =");
+        assertInvalid("name = 'James");
+        assertInvalid("(name = 'James'");
+        assertInvalid("name = 'James')");
+        assertInvalid("name IN (1, 2)");
+        assertInvalid("name LIKE 'a' ESCAPE 'ab'");
+        assertInvalid("name NOT 'James'");
+        assertInvalid("name = 'James' AND");
+        assertInvalid("name # 'James'");
+        assertInvalid("x = 12a");
+        assertInvalid("   ");
+    }
+
+    @Test
+    public void testCompoundSelectorIsReusable() throws Exception {
+        JmsSelector selector = JmsSelector.compile(
+            "location IN ('London', 'Paris') AND intProp BETWEEN 1 AND 10 AND name LIKE 'Ja%' AND JMSPriority > 4");
+
+        for (int i = 0; i < 1000; ++i) {
+            assertTrue(selector.matches(message));
+        }
+
+        message.setPriority((byte) 4);
+        assertFalse(selector.matches(message));
+
+        message.setPriority((byte) 7);
+        message.setProperty("location", "Berlin");
+        assertFalse(selector.matches(message));
+
+        message.setProperty("location", "Paris");
+        assertTrue(selector.matches(message));
+    }
+
+    private void assertSelector(String selector, boolean expected) throws Exception {
+        assertEquals(selector, expected, JmsSelector.compile(selector).matches(message));
+    }
+
+    private void assertInvalid(String selector) {
+        try {
+            JmsSelector.compile(selector);
+            fail("Selector should be invalid: " + selector);
+        } catch (InvalidSelectorException e) {
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Tests for the BufferPool class
+ */
+public class BufferPoolTest {
+
+    @Test
+    public void testAllocationsAreRoundedUpToSizeClass() {
+        BufferPool pool = new BufferPool();
+        assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.allocate(1).capacity());
+        assertEquals(256, pool.allocate(256).capacity());
+        assertEquals(512, pool.allocate(257).capacity());
+        assertEquals(64 * 1024, pool.allocate(40000).capacity());
+    }
+
+    @Test
+    public void testReleasedBufferIsReused() {
+        BufferPool pool = new BufferPool();
+        PooledBuffer first = pool.allocate(1000);
+        first.setLength(10);
+        first.release();
+
+        PooledBuffer second = pool.allocate(600);
+        assertSame(first, second);
+        assertEquals(0, second.getLength());
+        assertEquals(1, second.getReferenceCount());
+        assertEquals(2, pool.getAllocationCount());
+        assertEquals(1, pool.getHitCount());
+        assertEquals(0.5, pool.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void testBufferReturnsOnLastRelease() {
+        BufferPool pool = new BufferPool();
+        PooledBuffer buffer = pool.allocate(100);
+        buffer.retain();
+
+        buffer.release();
+        assertEquals(buffer.capacity(), pool.getOutstandingBytes());
+        assertEquals(0, pool.getPooledBytes());
+
+        buffer.release();
+        assertEquals(0, pool.getOutstandingBytes());
+        assertEquals(buffer.capacity(), pool.getPooledBytes());
+    }
+
+    @Test
+    public void testOutstandingBytes() {
+        BufferPool pool = new BufferPool();
+        PooledBuffer small = pool.allocate(100);
+        PooledBuffer large = pool.allocate(5000);
+        assertEquals(256 + 8192, pool.getOutstandingBytes());
+
+        small.release();
+        assertEquals(8192, pool.getOutstandingBytes());
+        large.release();
+        assertEquals(0, pool.getOutstandingBytes());
+    }
+
+    @Test
+    public void testOversizedBuffersAreNotPooled() {
+        BufferPool pool = new BufferPool(1024, 4);
+        PooledBuffer buffer = pool.allocate(2000);
+        assertEquals(2000, buffer.capacity());
+        buffer.release();
+
+        assertEquals(0, pool.getPooledBytes());
+        assertNotSame(buffer, pool.allocate(2000));
+        assertEquals(0, pool.getHitCount());
+    }
+
+    @Test
+    public void testFreeListIsBounded() {
+        BufferPool pool = new BufferPool(1024, 2);
+        PooledBuffer[] buffers = new PooledBuffer[4];
+        for (int i = 0; i < buffers.length; ++i) {
+            buffers[i] = pool.allocate(256);
+        }
+        for (PooledBuffer buffer : buffers) {
+            buffer.release();
+        }
+
+        assertEquals(2 * 256, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testReleaseTooManyTimesFails() {
+        BufferPool pool = new BufferPool();
+        PooledBuffer buffer = pool.allocate(100);
+        buffer.release();
+
+        try {
+            buffer.release();
+            fail("Should not be able to release a buffer twice");
+        } catch (IllegalStateException e) {
+        }
+
+        try {
+            buffer.retain();
+            fail("Should not be able to retain a released buffer");
+        } catch (IllegalStateException e) {
+        }
+    }
+}
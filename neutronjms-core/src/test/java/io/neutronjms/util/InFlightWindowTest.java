@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Tests for the InFlightWindow
+ */
+public class InFlightWindowTest {
+
+    @Test(timeout = 30000)
+    public void testAcquireBlocksWhenCountLimitReached() throws Exception {
+        final InFlightWindow window = new InFlightWindow(2, 0);
+        window.acquire(10);
+        window.acquire(10);
+        assertEquals(2, window.getCount());
+        assertEquals(20, window.getBytes());
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread sender = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    window.acquire(10);
+                    acquired.countDown();
+                } catch (InterruptedException e) {
+                }
+            }
+        });
+        sender.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        window.release(10);
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+        assertEquals(2, window.getCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testAcquireBlocksWhenByteLimitReached() throws Exception {
+        final InFlightWindow window = new InFlightWindow(0, 100);
+        window.acquire(60);
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread sender = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    window.acquire(60);
+                    acquired.countDown();
+                } catch (InterruptedException e) {
+                }
+            }
+        });
+        sender.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        window.release(60);
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+        assertEquals(60, window.getBytes());
+    }
+
+    @Test
+    public void testOversizedAcquireProceedsWhenEmpty() throws Exception {
+        InFlightWindow window = new InFlightWindow(0, 100);
+        window.acquire(1000);
+        assertEquals(1, window.getCount());
+        assertEquals(1000, window.getBytes());
+    }
+
+    @Test
+    public void testTryAcquireDoesNotBlockWhenFull() throws Exception {
+        InFlightWindow window = new InFlightWindow(1, 0);
+        assertTrue(window.tryAcquire(10));
+        assertFalse(window.tryAcquire(10));
+        assertEquals(1, window.getCount());
+
+        window.release(10);
+        assertTrue(window.tryAcquire(10));
+        assertEquals(10, window.getBytes());
+    }
+
+    @Test(timeout = 30000)
+    public void testCloseFailsBlockedAcquire() throws Exception {
+        final InFlightWindow window = new InFlightWindow(1, 0);
+        window.acquire(1);
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicBoolean failed = new AtomicBoolean();
+        Thread sender = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    window.acquire(1);
+                } catch (IllegalStateException e) {
+                    failed.set(true);
+                } catch (InterruptedException e) {
+                }
+                done.countDown();
+            }
+        });
+        sender.start();
+
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        window.close();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(failed.get());
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for the MemoryLimitedMessageQueue
+ */
+public class MemoryLimitedMessageQueueTest {
+
+    @Test
+    public void testDequeueReleasesMemory() throws Exception {
+        MemoryUsage usage = new MemoryUsage(0);
+        MemoryLimitedMessageQueue queue = new MemoryLimitedMessageQueue(new FifoMessageQueue(), usage);
+        queue.start();
+
+        JmsInboundMessageDispatch first = createEnvelope(100);
+        JmsInboundMessageDispatch second = createEnvelope(200);
+        queue.enqueue(first);
+        queue.enqueueFirst(second);
+        assertEquals(300, usage.getUsage());
+
+        assertSame(second, queue.dequeueNoWait());
+        assertEquals(100, usage.getUsage());
+        assertSame(first, queue.dequeue(100));
+        assertEquals(0, usage.getUsage());
+    }
+
+    @Test
+    public void testDrainToReleasesMemory() throws Exception {
+        MemoryUsage usage = new MemoryUsage(0);
+        MemoryLimitedMessageQueue queue = new MemoryLimitedMessageQueue(new FifoMessageQueue(), usage);
+        queue.start();
+
+        for (int i = 0; i < 10; ++i) {
+            queue.enqueue(createEnvelope(10));
+        }
+
+        List<JmsInboundMessageDispatch> target = new ArrayList<JmsInboundMessageDispatch>();
+        assertEquals(4, queue.drainTo(target, 4));
+        assertEquals(4, target.size());
+        assertEquals(60, usage.getUsage());
+
+        assertEquals(4, queue.drainTo(target, 4));
+        assertEquals(8, target.size());
+        assertEquals(20, usage.getUsage());
+    }
+
+    @Test
+    public void testClearAndRemoveAllReleaseMemory() throws Exception {
+        MemoryUsage parent = new MemoryUsage(0);
+        MemoryUsage usage = new MemoryUsage(0, parent);
+        MemoryLimitedMessageQueue queue = new MemoryLimitedMessageQueue(new PriorityMessageQueue(), usage);
+
+        for (int i = 0; i < 10; ++i) {
+            queue.enqueue(createEnvelope(10));
+        }
+        assertEquals(100, parent.getUsage());
+
+        assertEquals(10, queue.removeAll().size());
+        assertEquals(0, usage.getUsage());
+        assertEquals(0, parent.getUsage());
+
+        queue.enqueue(createEnvelope(10));
+        queue.clear();
+        assertEquals(0, parent.getUsage());
+    }
+
+    private JmsInboundMessageDispatch createEnvelope(int size) {
+        JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+        envelope.setSize(size);
+        return envelope;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for the MemoryUsage class
+ */
+public class MemoryUsageTest {
+
+    @Test
+    public void testUnlimitedUsageIsNeverFull() {
+        MemoryUsage usage = new MemoryUsage(0);
+        usage.increase(Long.MAX_VALUE / 2);
+        assertFalse(usage.isFull());
+        assertEquals(Long.MAX_VALUE / 2, usage.getUsage());
+    }
+
+    @Test
+    public void testFullAtLimit() {
+        MemoryUsage usage = new MemoryUsage(100);
+        usage.increase(99);
+        assertFalse(usage.isFull());
+        usage.increase(1);
+        assertTrue(usage.isFull());
+        usage.decrease(1);
+        assertFalse(usage.isFull());
+    }
+
+    @Test
+    public void testChangesAreAppliedToParent() {
+        MemoryUsage parent = new MemoryUsage(100);
+        MemoryUsage first = new MemoryUsage(0, parent);
+        MemoryUsage second = new MemoryUsage(0, parent);
+
+        first.increase(60);
+        second.increase(40);
+        assertEquals(100, parent.getUsage());
+        assertTrue(parent.isFull());
+        assertTrue("Full when the parent is full", first.isFull());
+        assertTrue(second.isFull());
+
+        first.decrease(60);
+        assertEquals(40, parent.getUsage());
+        assertFalse(first.isFull());
+    }
+
+    @Test
+    public void testListenersRunWhenDroppingBelowLimit() {
+        final AtomicInteger resumed = new AtomicInteger();
+        MemoryUsage usage = new MemoryUsage(100);
+        usage.addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                resumed.incrementAndGet();
+            }
+        });
+
+        usage.increase(50);
+        usage.decrease(50);
+        assertEquals("Never reached the limit", 0, resumed.get());
+
+        usage.increase(150);
+        usage.decrease(40);
+        assertEquals("Still at the limit", 0, resumed.get());
+        usage.decrease(11);
+        assertEquals(1, resumed.get());
+        usage.decrease(99);
+        assertEquals("Already below the limit", 1, resumed.get());
+    }
+
+    @Test
+    public void testParentListenersRunOnChildRelease() {
+        final AtomicInteger resumed = new AtomicInteger();
+        MemoryUsage parent = new MemoryUsage(100);
+        MemoryUsage child = new MemoryUsage(0, parent);
+        parent.addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                resumed.incrementAndGet();
+            }
+        });
+
+        child.increase(100);
+        child.decrease(1);
+        assertEquals(1, resumed.get());
+    }
+}
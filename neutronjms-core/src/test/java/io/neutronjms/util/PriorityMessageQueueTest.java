@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.message.JmsDefaultMessageFactory;
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+import io.neutronjms.jms.message.JmsMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for the PriorityMessageQueue
+ */
+public class PriorityMessageQueueTest {
+
+    @Test
+    public void testDequeueInPriorityOrder() throws Exception {
+        PriorityMessageQueue queue = new PriorityMessageQueue();
+        queue.start();
+
+        JmsInboundMessageDispatch low = createEnvelope(1);
+        JmsInboundMessageDispatch normal = createEnvelope(4);
+        JmsInboundMessageDispatch high = createEnvelope(9);
+
+        queue.enqueue(low);
+        queue.enqueue(normal);
+        queue.enqueue(high);
+
+        assertEquals(3, queue.size());
+        assertSame(high, queue.peek());
+        assertSame(high, queue.dequeueNoWait());
+        assertSame(normal, queue.dequeueNoWait());
+        assertSame(low, queue.dequeueNoWait());
+        assertNull(queue.dequeueNoWait());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testDrainToInPriorityOrder() throws Exception {
+        PriorityMessageQueue queue = new PriorityMessageQueue();
+        queue.start();
+
+        JmsInboundMessageDispatch low = createEnvelope(1);
+        JmsInboundMessageDispatch normal = createEnvelope(4);
+        JmsInboundMessageDispatch high = createEnvelope(9);
+
+        queue.enqueue(low);
+        queue.enqueue(normal);
+        queue.enqueue(high);
+
+        List<JmsInboundMessageDispatch> drained = new ArrayList<JmsInboundMessageDispatch>();
+        assertEquals(2, queue.drainTo(drained, 2));
+        assertSame(high, drained.get(0));
+        assertSame(normal, drained.get(1));
+        assertEquals(1, queue.size());
+        assertEquals(1, queue.drainTo(drained, 2));
+        assertSame(low, drained.get(2));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testSamePriorityIsFifoAcrossGrowth() throws Exception {
+        PriorityMessageQueue queue = new PriorityMessageQueue();
+        queue.start();
+
+        JmsInboundMessageDispatch[] envelopes = new JmsInboundMessageDispatch[100];
+        for (int i = 0; i < envelopes.length; ++i) {
+            envelopes[i] = createEnvelope(5);
+            queue.enqueue(envelopes[i]);
+            if (i % 3 == 0) {
+                // Shift the ring head so growth has to unwrap it.
+                queue.enqueueFirst(queue.dequeueNoWait());
+            }
+        }
+
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            assertSame(envelope, queue.dequeueNoWait());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testEnqueueFirst() throws Exception {
+        PriorityMessageQueue queue = new PriorityMessageQueue();
+        queue.start();
+
+        JmsInboundMessageDispatch first = createEnvelope(4);
+        JmsInboundMessageDispatch second = createEnvelope(4);
+        JmsInboundMessageDispatch high = createEnvelope(7);
+
+        queue.enqueue(second);
+        queue.enqueueFirst(first);
+        queue.enqueue(high);
+
+        assertSame(high, queue.dequeueNoWait());
+        assertSame(first, queue.dequeueNoWait());
+        assertSame(second, queue.dequeueNoWait());
+    }
+
+    @Test
+    public void testPriorityIsClampedAndReadFromMessage() throws Exception {
+        JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+        assertEquals(javax.jms.Message.DEFAULT_PRIORITY, envelope.getPriority());
+
+        envelope.setPriority(42);
+        assertEquals(9, envelope.getPriority());
+        envelope.setPriority(-1);
+        assertEquals(0, envelope.getPriority());
+
+        JmsMessage message = new JmsDefaultMessageFactory().createMessage();
+        message.setJMSPriority(8);
+        envelope = new JmsInboundMessageDispatch();
+        envelope.setMessage(message);
+        assertEquals(8, envelope.getPriority());
+    }
+
+    @Test
+    public void testRemoveAllAndClear() throws Exception {
+        PriorityMessageQueue queue = new PriorityMessageQueue();
+
+        JmsInboundMessageDispatch low = createEnvelope(0);
+        JmsInboundMessageDispatch high = createEnvelope(9);
+        queue.enqueue(low);
+        queue.enqueue(high);
+
+        List<JmsInboundMessageDispatch> removed = queue.removeAll();
+        assertEquals(2, removed.size());
+        assertSame(high, removed.get(0));
+        assertSame(low, removed.get(1));
+        assertTrue(queue.isEmpty());
+
+        queue.enqueue(low);
+        queue.enqueue(high);
+        queue.clear();
+        assertEquals(0, queue.size());
+
+        queue.start();
+        assertNull(queue.peek());
+        assertNull(queue.dequeueNoWait());
+    }
+
+    private JmsInboundMessageDispatch createEnvelope(int priority) {
+        JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+        envelope.setPriority(priority);
+        return envelope;
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for the RingBufferMessageQueue
+ */
+public class RingBufferMessageQueueTest {
+
+    @Test
+    public void testCapacityIsRoundedToPowerOfTwo() {
+        assertEquals(16, new RingBufferMessageQueue(0).getCapacity());
+        assertEquals(1024, new RingBufferMessageQueue(1000).getCapacity());
+        assertEquals(32768, new RingBufferMessageQueue(Short.MAX_VALUE).getCapacity());
+    }
+
+    @Test
+    public void testDequeueInFifoOrder() throws Exception {
+        RingBufferMessageQueue queue = new RingBufferMessageQueue(16);
+        queue.start();
+
+        JmsInboundMessageDispatch[] envelopes = createEnvelopes(10);
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            queue.enqueue(envelope);
+        }
+
+        assertEquals(10, queue.size());
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            assertSame(envelope, queue.peek());
+            assertSame(envelope, queue.dequeueNoWait());
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.dequeue(0));
+    }
+
+    @Test
+    public void testOverflowRetainsOrder() throws Exception {
+        RingBufferMessageQueue queue = new RingBufferMessageQueue(16);
+        queue.start();
+
+        JmsInboundMessageDispatch[] envelopes = createEnvelopes(100);
+        for (int i = 0; i < 50; ++i) {
+            queue.enqueue(envelopes[i]);
+        }
+        for (int i = 0; i < 10; ++i) {
+            assertSame(envelopes[i], queue.dequeueNoWait());
+        }
+        for (int i = 50; i < 100; ++i) {
+            queue.enqueue(envelopes[i]);
+        }
+
+        assertEquals(90, queue.size());
+        for (int i = 10; i < 100; ++i) {
+            assertSame(envelopes[i], queue.dequeueNoWait());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testDrainToRespectsMaxAndOrder() throws Exception {
+        RingBufferMessageQueue queue = new RingBufferMessageQueue(16);
+
+        JmsInboundMessageDispatch[] envelopes = createEnvelopes(40);
+        queue.enqueueFirst(envelopes[0]);
+        for (int i = 1; i < 40; ++i) {
+            queue.enqueue(envelopes[i]);
+        }
+
+        List<JmsInboundMessageDispatch> drained = new ArrayList<JmsInboundMessageDispatch>();
+        assertEquals(0, queue.drainTo(drained, 10));
+        queue.start();
+
+        assertEquals(25, queue.drainTo(drained, 25));
+        assertEquals(15, queue.drainTo(drained, 25));
+        assertEquals(0, queue.drainTo(drained, 25));
+        for (int i = 0; i < 40; ++i) {
+            assertSame(envelopes[i], drained.get(i));
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testEnqueueFirst() throws Exception {
+        RingBufferMessageQueue queue = new RingBufferMessageQueue(16);
+        queue.start();
+
+        JmsInboundMessageDispatch[] envelopes = createEnvelopes(3);
+        queue.enqueue(envelopes[1]);
+        queue.enqueue(envelopes[2]);
+        queue.enqueueFirst(envelopes[0]);
+
+        assertSame(envelopes[0], queue.peek());
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            assertSame(envelope, queue.dequeueNoWait());
+        }
+    }
+
+    @Test
+    public void testStoppedAndClosedQueueReturnsNull() throws Exception {
+        RingBufferMessageQueue queue = new RingBufferMessageQueue(16);
+        queue.enqueue(createEnvelopes(1)[0]);
+
+        assertNull(queue.dequeueNoWait());
+        assertNull(queue.dequeue(10));
+
+        queue.start();
+        queue.close();
+        assertNull(queue.dequeueNoWait());
+        assertNull(queue.dequeue(-1));
+    }
+
+    @Test(timeout = 30000)
+    public void testBlockingDequeueIsWokenByEnqueue() throws Exception {
+        final RingBufferMessageQueue queue = new RingBufferMessageQueue(16);
+        queue.start();
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<JmsInboundMessageDispatch> received = new AtomicReference<JmsInboundMessageDispatch>();
+        Thread consumer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    received.set(queue.dequeue(-1));
+                } catch (InterruptedException e) {
+                }
+                done.countDown();
+            }
+        });
+        consumer.start();
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        JmsInboundMessageDispatch envelope = createEnvelopes(1)[0];
+        queue.enqueue(envelope);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertSame(envelope, received.get());
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentProducerAndConsumer() throws Exception {
+        final int count = 100000;
+        final RingBufferMessageQueue queue = new RingBufferMessageQueue(64);
+        final JmsInboundMessageDispatch[] envelopes = createEnvelopes(count);
+        queue.start();
+
+        Thread producer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                for (JmsInboundMessageDispatch envelope : envelopes) {
+                    queue.enqueue(envelope);
+                }
+            }
+        });
+        producer.start();
+
+        for (int i = 0; i < count; ++i) {
+            assertSame(envelopes[i], queue.dequeue(-1));
+        }
+
+        producer.join();
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testRemoveAllAndClear() throws Exception {
+        RingBufferMessageQueue queue = new RingBufferMessageQueue(16);
+        JmsInboundMessageDispatch[] envelopes = createEnvelopes(20);
+        for (int i = 1; i < 20; ++i) {
+            queue.enqueue(envelopes[i]);
+        }
+        queue.enqueueFirst(envelopes[0]);
+
+        List<JmsInboundMessageDispatch> removed = queue.removeAll();
+        assertEquals(20, removed.size());
+        for (int i = 0; i < 20; ++i) {
+            assertSame(envelopes[i], removed.get(i));
+        }
+        assertTrue(queue.isEmpty());
+
+        for (JmsInboundMessageDispatch envelope : envelopes) {
+            queue.enqueue(envelope);
+        }
+        queue.clear();
+        assertEquals(0, queue.size());
+    }
+
+    private JmsInboundMessageDispatch[] createEnvelopes(int count) {
+        JmsInboundMessageDispatch[] envelopes = new JmsInboundMessageDispatch[count];
+        for (int i = 0; i < count; ++i) {
+            envelopes[i] = new JmsInboundMessageDispatch();
+        }
+        return envelopes;
+    }
+}
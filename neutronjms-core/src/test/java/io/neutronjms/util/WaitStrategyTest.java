@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.neutronjms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.neutronjms.jms.message.JmsInboundMessageDispatch;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for the WaitStrategy implementations
+ */
+public class WaitStrategyTest {
+
+    private static final String[] STRATEGIES = new String[] {
+        WaitStrategy.BLOCKING, WaitStrategy.SPIN_YIELD, WaitStrategy.SPIN_PARK, WaitStrategy.BUSY_SPIN };
+
+    @Test
+    public void testCreateByName() {
+        for (String name : STRATEGIES) {
+            assertEquals(name, WaitStrategy.create(name, 100).getName());
+        }
+        assertEquals(WaitStrategy.BLOCKING, WaitStrategy.create(null, 100).getName());
+        assertEquals(WaitStrategy.BUSY_SPIN, WaitStrategy.create("BUSY-SPIN", 100).getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateUnknownStrategyFails() {
+        WaitStrategy.create("sleepy", 100);
+    }
+
+    @Test(timeout = 30000)
+    public void testDequeueAvailableMessage() throws Exception {
+        for (String name : STRATEGIES) {
+            MessageQueue queue = new FifoMessageQueue();
+            queue.start();
+            JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+            queue.enqueue(envelope);
+
+            assertSame(name, envelope, WaitStrategy.create(name, 100).dequeue(queue, -1));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testDequeueWaitsForMessage() throws Exception {
+        for (String name : STRATEGIES) {
+            final MessageQueue queue = new RingBufferMessageQueue(16);
+            queue.start();
+            final JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+
+            Thread producer = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(50);
+                    } catch (InterruptedException e) {
+                    }
+                    queue.enqueue(envelope);
+                }
+            });
+            producer.start();
+
+            assertSame(name, envelope, WaitStrategy.create(name, 100).dequeue(queue, -1));
+            producer.join();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testDequeueTimesOut() throws Exception {
+        for (String name : STRATEGIES) {
+            MessageQueue queue = new FifoMessageQueue();
+            queue.start();
+
+            long start = System.nanoTime();
+            assertNull(name, WaitStrategy.create(name, 100).dequeue(queue, 50));
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(name + " returned after " + elapsed + " ms", elapsed >= 45);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testDequeueReturnsWhenQueueClosed() throws Exception {
+        for (String name : STRATEGIES) {
+            final MessageQueue queue = new FifoMessageQueue();
+            queue.start();
+
+            Thread closer = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(50);
+                    } catch (InterruptedException e) {
+                    }
+                    queue.close();
+                }
+            });
+            closer.start();
+
+            assertNull(name, WaitStrategy.create(name, 100).dequeue(queue, -1));
+            closer.join();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testStoppedQueueWaitsForStart() throws Exception {
+        for (String name : STRATEGIES) {
+            final MessageQueue queue = new FifoMessageQueue();
+            final JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch();
+            queue.enqueue(envelope);
+
+            Thread starter = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(50);
+                    } catch (InterruptedException e) {
+                    }
+                    queue.start();
+                }
+            });
+            starter.start();
+
+            assertSame(name, envelope, WaitStrategy.create(name, 100).dequeue(queue, -1));
+            starter.join();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testSpinningDequeueIsInterruptible() throws Exception {
+        for (final String name : new String[] { WaitStrategy.SPIN_YIELD, WaitStrategy.BUSY_SPIN }) {
+            final MessageQueue queue = new FifoMessageQueue();
+            queue.start();
+
+            final CountDownLatch done = new CountDownLatch(1);
+            final AtomicReference<Throwable> result = new AtomicReference<Throwable>();
+            Thread consumer = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        WaitStrategy.create(name, 100).dequeue(queue, -1);
+                    } catch (Throwable t) {
+                        result.set(t);
+                    }
+                    done.countDown();
+                }
+            });
+            consumer.start();
+
+            TimeUnit.MILLISECONDS.sleep(50);
+            consumer.interrupt();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            if (!(result.get() instanceof InterruptedException)) {
+                fail(name + " did not throw InterruptedException: " + result.get());
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package io.neutronjms.provider.openwire;
 
+import io.netty.buffer.Unpooled;
 import io.neutronjms.jms.JmsDestination;
 import io.neutronjms.jms.message.JmsInboundMessageDispatch;
 import io.neutronjms.jms.message.JmsMessageFactory;
@@ -33,11 +34,13 @@ import io.neutronjms.jms.meta.JmsSessionInfo;
 import io.neutronjms.jms.meta.JmsTransactionInfo;
 import io.neutronjms.provider.AbstractAsyncProvider;
 import io.neutronjms.provider.AsyncResult;
+import io.neutronjms.provider.BatchAsyncResult;
 import io.neutronjms.provider.ProviderConstants.ACK_TYPE;
 import io.neutronjms.provider.ProviderFuture;
 import io.neutronjms.transports.TcpTransport;
 import io.neutronjms.transports.Transport;
 import io.neutronjms.transports.TransportListener;
+import io.neutronjms.util.PooledBuffer;
 import io.openwire.codec.OpenWireFormat;
 import io.openwire.codec.OpenWireFormatFactory;
 import io.openwire.commands.BrokerInfo;
@@ -47,6 +50,7 @@ import io.openwire.commands.WireFormatInfo;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -124,6 +128,7 @@ public class OpenWireProvider extends AbstractAsyncProvider implements Transport
         transport.connect();
 
         asyncSend(wireFormat.getPreferedWireFormatInfo());
+        transport.flush();
     }
 
     @Override
@@ -358,6 +363,27 @@ public class OpenWireProvider extends AbstractAsyncProvider implements Transport
         });
     }
 
+    @Override
+    public void send(final List<JmsOutboundMessageDispatch> envelopes, final AsyncResult request) throws IOException, JMSException {
+        checkClosed();
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                BatchAsyncResult batch = new BatchAsyncResult(envelopes.size(), request);
+                try {
+                    checkClosed();
+                    for (JmsOutboundMessageDispatch envelope : envelopes) {
+                        OpenWireProducer producer = connection.getProducer(envelope.getProducerId());
+                        producer.send(envelope, batch.newMember());
+                    }
+                } catch (Exception error) {
+                    batch.onFailure(error);
+                }
+            }
+        });
+    }
+
     @Override
     public void acknowledge(final JmsSessionId sessionId, final AsyncResult request) throws IOException {
         checkClosed();
@@ -395,6 +421,27 @@ public class OpenWireProvider extends AbstractAsyncProvider implements Transport
         });
     }
 
+    @Override
+    public void acknowledge(final List<JmsInboundMessageDispatch> envelopes, final ACK_TYPE ackType, final AsyncResult request) throws IOException {
+        checkClosed();
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    checkClosed();
+                    BatchAsyncResult batch = new BatchAsyncResult(envelopes.size(), request);
+                    for (JmsInboundMessageDispatch envelope : envelopes) {
+                        OpenWireConsumer consumer = connection.getConsumer(envelope.getConsumerId());
+                        consumer.acknowledge(envelope, ackType, batch.newMember());
+                    }
+                } catch (Exception error) {
+                    request.onFailure(error);
+                }
+            }
+        });
+    }
+
     @Override
     public void commit(final JmsSessionId sessionId, final AsyncResult request) throws IOException, JMSException, UnsupportedOperationException {
         checkClosed();
@@ -495,6 +542,16 @@ public class OpenWireProvider extends AbstractAsyncProvider implements Transport
         frameBuilder.onData(incoming);
     }
 
+    @Override
+    public void onData(PooledBuffer incoming) {
+        // The frame builder keeps the buffers it is given, so hand it a copy it owns.
+        try {
+            frameBuilder.onData(new Buffer(Unpooled.copiedBuffer(incoming.getData(), 0, incoming.getLength())));
+        } finally {
+            incoming.release();
+        }
+    }
+
     @Override
     public void onTransportClosed() {
         if (!closed.get()) {
@@ -580,6 +637,17 @@ public class OpenWireProvider extends AbstractAsyncProvider implements Transport
         transport.send(wireFormat.marshal(command));
     }
 
+    @Override
+    protected void onSerializerTaskComplete() {
+        try {
+            if (transport != null && transport.isConnected()) {
+                transport.flush();
+            }
+        } catch (IOException e) {
+            fireProviderException(e);
+        }
+    }
+
     /**
      * Provides an extension point for subclasses to insert other types of transports such
      * as SSL etc.
@@ -62,6 +62,7 @@ public class StompConsumer {
 
     protected final LinkedList<JmsInboundMessageDispatch> delivered =
         new LinkedList<JmsInboundMessageDispatch>();
+    protected final LinkedList<StompFrame> withheldCredit = new LinkedList<StompFrame>();
 
     /**
      * Create a new STOMP Consumer that maps a STOMP subscription to a JMS Framework
@@ -109,7 +110,11 @@ public class StompConsumer {
         //        error out if that's not supported.
         subscribe.setProperty(ACK_MODE, "client");
         if (consumerInfo.getSelector() != null) {
-            subscribe.setProperty(SELECTOR, consumerInfo.getSelector());
+            if (adapter.isSelectorSupported()) {
+                subscribe.setProperty(SELECTOR, consumerInfo.getSelector());
+            } else {
+                consumerInfo.setClientSideSelector(true);
+            }
         }
 
         adapter.addSubscribeHeaders(subscribe, consumerInfo);
@@ -146,6 +151,7 @@ public class StompConsumer {
         envelope.setConsumerId(consumerInfo.getConsumerId());
         envelope.setMessage(converted);
         envelope.setProviderHint(message);
+        envelope.setPriority(converted.getFacade().getPriority());
 
         connection.getProvider().getProviderListener().onMessage(envelope);
     }
@@ -203,7 +209,11 @@ public class StompConsumer {
             delivered.add(envelope);
             StompFrame credit = adapter.createCreditFrame(messageFrame);
             if (credit != null) {
-                connection.send(credit);
+                if (consumerInfo.isCreditWithheld()) {
+                    withheldCredit.add(credit);
+                } else {
+                    connection.send(credit);
+                }
             }
             request.onSuccess();
         } else if (ackType.equals(ACK_TYPE.CONSUMED)) {
@@ -234,10 +244,25 @@ public class StompConsumer {
         }
     }
 
+    /**
+     * Sends the credit frames that were held back while the consumer's buffer was full.
+     *
+     * @throws IOException if an error occurs while writing the frames.
+     */
+    public void resumeCredit() throws IOException {
+        while (!consumerInfo.isCreditWithheld() && !withheldCredit.isEmpty()) {
+            connection.send(withheldCredit.removeFirst());
+        }
+    }
+
     public JmsConsumerId getConsumerId() {
         return this.consumerInfo.getConsumerId();
     }
 
+    public JmsConsumerInfo getConsumerInfo() {
+        return this.consumerInfo;
+    }
+
     public JmsSessionId getSessionId() {
         return this.consumerInfo.getParentId();
     }
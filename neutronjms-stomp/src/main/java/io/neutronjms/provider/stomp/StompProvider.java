@@ -33,15 +33,19 @@ import io.neutronjms.jms.meta.JmsSessionInfo;
 import io.neutronjms.jms.meta.JmsTransactionInfo;
 import io.neutronjms.provider.AbstractAsyncProvider;
 import io.neutronjms.provider.AsyncResult;
+import io.neutronjms.provider.BatchAsyncResult;
 import io.neutronjms.provider.ProviderConstants.ACK_TYPE;
 import io.neutronjms.provider.ProviderFuture;
 import io.neutronjms.transports.TcpTransport;
 import io.neutronjms.transports.Transport;
 import io.neutronjms.transports.TransportListener;
+import io.neutronjms.util.BufferPool;
+import io.neutronjms.util.PooledBuffer;
 
 import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.jms.JMSException;
@@ -58,6 +62,7 @@ public class StompProvider extends AbstractAsyncProvider implements TransportLis
     private static final Logger LOG = LoggerFactory.getLogger(StompProvider.class);
 
     private final StompCodec codec = new StompCodec();
+    private final BufferPool bufferPool = new BufferPool();
 
     private Transport transport;
     private StompConnection connection;
@@ -72,6 +77,7 @@ public class StompProvider extends AbstractAsyncProvider implements TransportLis
         checkClosed();
 
         transport = createTransport(getRemoteURI());
+        transport.setBufferPool(bufferPool);
         transport.connect();
     }
 
@@ -86,7 +92,7 @@ public class StompProvider extends AbstractAsyncProvider implements TransportLis
                     try {
                         // TODO - We should wait, but for now lets just do it async.
                         StompFrame disconnect = new StompFrame(DISCONNECT);
-                        transport.send(codec.encode(disconnect));
+                        transport.sendOwned(codec.encode(disconnect));
                     } catch (Exception e) {
                         LOG.debug("Caught exception while closing proton connection");
                     } finally {
@@ -278,6 +284,27 @@ public class StompProvider extends AbstractAsyncProvider implements TransportLis
         });
     }
 
+    @Override
+    public void send(final List<JmsOutboundMessageDispatch> envelopes, final AsyncResult request) throws IOException, JMSException {
+        checkClosed();
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                BatchAsyncResult batch = new BatchAsyncResult(envelopes.size(), request);
+                try {
+                    checkClosed();
+                    for (JmsOutboundMessageDispatch envelope : envelopes) {
+                        StompProducer producer = connection.getProducer(envelope.getProducerId());
+                        producer.send(envelope, batch.newMember());
+                    }
+                } catch (Exception error) {
+                    batch.onFailure(error);
+                }
+            }
+        });
+    }
+
     @Override
     public void acknowledge(final JmsSessionId sessionId, final AsyncResult request) throws IOException {
         checkClosed();
@@ -315,6 +342,27 @@ public class StompProvider extends AbstractAsyncProvider implements TransportLis
         });
     }
 
+    @Override
+    public void acknowledge(final List<JmsInboundMessageDispatch> envelopes, final ACK_TYPE ackType, final AsyncResult request) throws IOException {
+        checkClosed();
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    checkClosed();
+                    BatchAsyncResult batch = new BatchAsyncResult(envelopes.size(), request);
+                    for (JmsInboundMessageDispatch envelope : envelopes) {
+                        StompConsumer consumer = connection.getConsumer(envelope.getConsumerId());
+                        consumer.acknowledge(envelope, ackType, batch.newMember());
+                    }
+                } catch (Exception error) {
+                    request.onFailure(error);
+                }
+            }
+        });
+    }
+
     @Override
     public void commit(final JmsSessionId sessionId, final AsyncResult request) throws IOException, JMSException, UnsupportedOperationException {
         checkClosed();
@@ -400,6 +448,29 @@ public class StompProvider extends AbstractAsyncProvider implements TransportLis
         });
     }
 
+    @Override
+    public void resumeCredit(final List<JmsConsumerId> consumerIds, final AsyncResult request) throws IOException, UnsupportedOperationException {
+        checkClosed();
+        serializer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    checkClosed();
+                    for (JmsConsumerId consumerId : consumerIds) {
+                        StompConsumer consumer = connection.getConsumer(consumerId);
+                        if (consumer != null) {
+                            consumer.resumeCredit();
+                        }
+                    }
+                    request.onSuccess();
+                } catch (Exception error) {
+                    request.onFailure(error);
+                }
+            }
+        });
+    }
+
     @Override
     public void unsubscribe(final String subscription, final AsyncResult request) throws IOException, JMSException, UnsupportedOperationException {
         checkClosed();
@@ -441,37 +512,68 @@ public class StompProvider extends AbstractAsyncProvider implements TransportLis
      * @throws IOException if an error occurs while encoding or sending the frame.
      */
     protected void send(StompFrame frame) throws IOException {
-        ByteBuffer connect = codec.encode(frame);
-        transport.send(connect);
+        transport.sendOwned(codec.encode(frame));
+    }
+
+    @Override
+    protected void onSerializerTaskComplete() {
+        try {
+            if (transport != null && transport.isConnected()) {
+                transport.flush();
+            }
+        } catch (IOException e) {
+            fireProviderException(e);
+        }
     }
 
     @Override
     public void onData(Buffer incoming) {
-        // Create our own copy since we will process later.
-        final ByteBuffer source = ByteBuffer.wrap(incoming.getBytes());
+        // The listener owns the buffer handed over by the transport, every transport
+        // gives each read a buffer of its own, so we can process it later without
+        // making our own copy.
+        final ByteBuffer source = incoming.getByteBuf().nioBuffer();
 
         serializer.execute(new Runnable() {
 
             @Override
             public void run() {
-                LOG.trace("Received from Broker {} bytes:", source.remaining());
+                processInput(source);
+            }
+        });
+    }
+
+    @Override
+    public void onData(final PooledBuffer incoming) {
+        serializer.execute(new Runnable() {
 
+            @Override
+            public void run() {
                 try {
-                    do {
-                        StompFrame frame = codec.decode(source);
-                        if (frame != null) {
-                            connection.processFrame(frame);
-                        }
-                    } while (source.hasRemaining());
-                } catch (Exception e) {
-                    LOG.warn("Caught exception while processing new data: {}", e.getMessage());
-                    LOG.trace("Exception detail: ", e);
-                    fireProviderException(e);
+                    processInput(incoming.toByteBuffer());
+                } finally {
+                    incoming.release();
                 }
             }
         });
     }
 
+    private void processInput(ByteBuffer source) {
+        LOG.trace("Received from Broker {} bytes:", source.remaining());
+
+        try {
+            do {
+                StompFrame frame = codec.decode(source);
+                if (frame != null) {
+                    connection.processFrame(frame);
+                }
+            } while (source.hasRemaining());
+        } catch (Exception e) {
+            LOG.warn("Caught exception while processing new data: {}", e.getMessage());
+            LOG.trace("Exception detail: ", e);
+            fireProviderException(e);
+        }
+    }
+
     /**
      * Callback method for the Transport to report connection errors.  When called
      * the method will queue a new task to fire the failure error back to the listener.
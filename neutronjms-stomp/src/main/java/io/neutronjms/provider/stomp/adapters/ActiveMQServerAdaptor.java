@@ -92,6 +92,11 @@ public class ActiveMQServerAdaptor extends GenericStompServerAdaptor {
         frame.setProperty(PREFETCH, String.valueOf(consumerInfo.getPrefetchSize()));
     }
 
+    @Override
+    public boolean isSelectorSupported() {
+        return true;
+    }
+
     @Override
     public boolean isEndOfBrowse(StompFrame message) {
         String browser = message.getProperty(BROWSER);
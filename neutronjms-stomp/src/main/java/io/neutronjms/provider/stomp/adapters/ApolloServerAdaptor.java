@@ -71,6 +71,11 @@ public class ApolloServerAdaptor extends GenericStompServerAdaptor {
         }
     }
 
+    @Override
+    public boolean isSelectorSupported() {
+        return true;
+    }
+
     @Override
     public StompFrame createUnsubscribeFrame(JmsConsumerInfo consumerInfo) throws JMSException {
         StompFrame frame = new StompFrame();
@@ -143,6 +143,11 @@ public class GenericStompServerAdaptor implements StompServerAdapter {
         }
     }
 
+    @Override
+    public boolean isSelectorSupported() {
+        return false;
+    }
+
     @Override
     public boolean isEndOfBrowse(StompFrame message) {
         return false;
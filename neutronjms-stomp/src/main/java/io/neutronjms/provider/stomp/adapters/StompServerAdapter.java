@@ -104,6 +104,15 @@ public interface StompServerAdapter {
      */
     void addSubscribeHeaders(StompFrame frame, JmsConsumerInfo consumerInfo) throws JMSException;
 
+    /**
+     * Indicates whether the server applies the JMS selector sent in the selector header
+     * of a SUBSCRIBE frame.  When it does not the consumer's selector is evaluated in the
+     * client instead.
+     *
+     * @return true if the server filters subscriptions with a selector header.
+     */
+    boolean isSelectorSupported();
+
     /**
      * Checks the incoming frame to determine if it indicates the end of a Queue browse
      * operation.  The method is called from a browser instance on receipt of a new frame